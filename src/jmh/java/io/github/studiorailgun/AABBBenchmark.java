@@ -0,0 +1,245 @@
+package io.github.studiorailgun;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Vector3d;
+import org.joml.Vector3i;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the branchless axis aligned box distance functions of {@link GeomUtils} against the branching 27-leaf Vector3i and Vector3d functions,
+ * for one query point against a batch of chunk boxes
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AABBBenchmark {
+
+    /**
+     * The number of boxes per invocation
+     */
+    private static final int BOXES = 4096;
+
+    /**
+     * The number of query points, cycled through so the branches of the tree are not predictable
+     */
+    private static final int POINTS = 1024;
+
+    /**
+     * The x minimums of the boxes
+     */
+    private int[] minX = new int[BOXES];
+
+    /**
+     * The y minimums of the boxes
+     */
+    private int[] minY = new int[BOXES];
+
+    /**
+     * The z minimums of the boxes
+     */
+    private int[] minZ = new int[BOXES];
+
+    /**
+     * The x maximums of the boxes
+     */
+    private int[] maxX = new int[BOXES];
+
+    /**
+     * The y maximums of the boxes
+     */
+    private int[] maxY = new int[BOXES];
+
+    /**
+     * The z maximums of the boxes
+     */
+    private int[] maxZ = new int[BOXES];
+
+    /**
+     * The x minimums of the boxes as doubles
+     */
+    private double[] minXd = new double[BOXES];
+
+    /**
+     * The y minimums of the boxes as doubles
+     */
+    private double[] minYd = new double[BOXES];
+
+    /**
+     * The z minimums of the boxes as doubles
+     */
+    private double[] minZd = new double[BOXES];
+
+    /**
+     * The x maximums of the boxes as doubles
+     */
+    private double[] maxXd = new double[BOXES];
+
+    /**
+     * The y maximums of the boxes as doubles
+     */
+    private double[] maxYd = new double[BOXES];
+
+    /**
+     * The z maximums of the boxes as doubles
+     */
+    private double[] maxZd = new double[BOXES];
+
+    /**
+     * The minimums of the boxes as vectors
+     */
+    private Vector3i[] mins = new Vector3i[BOXES];
+
+    /**
+     * The maximums of the boxes as vectors
+     */
+    private Vector3i[] maxs = new Vector3i[BOXES];
+
+    /**
+     * The minimums of the boxes as double vectors
+     */
+    private Vector3d[] minsd = new Vector3d[BOXES];
+
+    /**
+     * The maximums of the boxes as double vectors
+     */
+    private Vector3d[] maxsd = new Vector3d[BOXES];
+
+    /**
+     * The query points
+     */
+    private Vector3i[] points = new Vector3i[POINTS];
+
+    /**
+     * The query points as double vectors
+     */
+    private Vector3d[] pointsd = new Vector3d[POINTS];
+
+    /**
+     * The index of the next query point
+     */
+    private int point = 0;
+
+    /**
+     * The output of the batch functions
+     */
+    private double[] out = new double[BOXES];
+
+    /**
+     * Fills the boxes with a 16x16x16 grid of 16 unit chunks and scatters the query points over it
+     */
+    @Setup
+    public void setup(){
+        for(int i = 0; i < BOXES; i++){
+            minX[i] = ((i & 15) - 8) * 16;
+            minY[i] = (((i >> 4) & 15) - 8) * 16;
+            minZ[i] = ((i >> 8) - 8) * 16;
+            maxX[i] = minX[i] + 16;
+            maxY[i] = minY[i] + 16;
+            maxZ[i] = minZ[i] + 16;
+            minXd[i] = minX[i];
+            minYd[i] = minY[i];
+            minZd[i] = minZ[i];
+            maxXd[i] = maxX[i];
+            maxYd[i] = maxY[i];
+            maxZd[i] = maxZ[i];
+            mins[i] = new Vector3i(minX[i], minY[i], minZ[i]);
+            maxs[i] = new Vector3i(maxX[i], maxY[i], maxZ[i]);
+            minsd[i] = new Vector3d(minXd[i], minYd[i], minZd[i]);
+            maxsd[i] = new Vector3d(maxXd[i], maxYd[i], maxZd[i]);
+        }
+        SplittableRandom random = new SplittableRandom(0);
+        for(int i = 0; i < POINTS; i++){
+            points[i] = new Vector3i(random.nextInt(-128, 128), random.nextInt(-128, 128), random.nextInt(-128, 128));
+            pointsd[i] = new Vector3d(points[i]);
+        }
+    }
+
+    /**
+     * Gets the next query point
+     * @return The index of the point
+     */
+    private int nextPoint(){
+        point = (point + 1) & (POINTS - 1);
+        return point;
+    }
+
+    /**
+     * The branching Vector3i function
+     * @param blackhole Consumes the distances
+     */
+    @Benchmark
+    @OperationsPerInvocation(BOXES)
+    public void treeInt(Blackhole blackhole){
+        Vector3i pos = points[nextPoint()];
+        for(int i = 0; i < BOXES; i++){
+            blackhole.consume(GeomUtils.getMinSquaredDistanceAABB(pos, mins[i], maxs[i]));
+        }
+    }
+
+    /**
+     * The branching Vector3d function
+     * @param blackhole Consumes the distances
+     */
+    @Benchmark
+    @OperationsPerInvocation(BOXES)
+    public void treeDouble(Blackhole blackhole){
+        Vector3d pos = pointsd[nextPoint()];
+        for(int i = 0; i < BOXES; i++){
+            blackhole.consume(GeomUtils.getMinSquaredDistanceAABB(pos, minsd[i], maxsd[i]));
+        }
+    }
+
+    /**
+     * The branchless scalar int function
+     * @param blackhole Consumes the distances
+     */
+    @Benchmark
+    @OperationsPerInvocation(BOXES)
+    public void unrolledInt(Blackhole blackhole){
+        Vector3i pos = points[nextPoint()];
+        for(int i = 0; i < BOXES; i++){
+            blackhole.consume(GeomUtils.getMinSquaredDistanceAABBUnrolled(pos.x, pos.y, pos.z, minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i]));
+        }
+    }
+
+    /**
+     * The branchless int batch function
+     * @return The distances
+     */
+    @Benchmark
+    @OperationsPerInvocation(BOXES)
+    public double[] batchInt(){
+        Vector3i pos = points[nextPoint()];
+        GeomUtils.getMinSquaredDistancesAABB(pos.x, pos.y, pos.z, minX, minY, minZ, maxX, maxY, maxZ, out, BOXES);
+        return out;
+    }
+
+    /**
+     * The branchless double batch function
+     * @return The distances
+     */
+    @Benchmark
+    @OperationsPerInvocation(BOXES)
+    public double[] batchDouble(){
+        Vector3d pos = pointsd[nextPoint()];
+        GeomUtils.getMinSquaredDistancesAABB(pos.x, pos.y, pos.z, minXd, minYd, minZd, maxXd, maxYd, maxZd, out, BOXES);
+        return out;
+    }
+
+}
@@ -0,0 +1,105 @@
+package io.github.studiorailgun;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.studiorailgun.FractalNoise.FractalMode;
+import io.github.studiorailgun.NoiseUtils.CellNoiseType;
+
+/**
+ * Compares filling a grid with {@link FractalNoise#fillGrid(double[], double, double, double, double, int, int, int)} against sampling every octave of every sample with the scalar functions
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FractalBenchmark {
+
+    /**
+     * The number of samples along each axis
+     */
+    private static final int DIM = 32;
+
+    /**
+     * The number of samples per invocation
+     */
+    private static final int SAMPLES = DIM * DIM * DIM;
+
+    /**
+     * The distance between neighboring samples
+     */
+    private static final double STEP = 0.1;
+
+    /**
+     * The type of noise to sum
+     */
+    @Param({"VORONOI", "SMOOTH_VORONOI_FAST"})
+    private CellNoiseType type;
+
+    /**
+     * The frequency multiplier between octaves
+     */
+    @Param({"2.0", "1.9"})
+    private double lacunarity;
+
+    /**
+     * The fractal noise
+     */
+    private FractalNoise noise;
+
+    /**
+     * The output grid
+     */
+    private double[] out = new double[SAMPLES];
+
+    /**
+     * Creates a four octave fractal noise
+     */
+    @Setup
+    public void setup(){
+        noise = new FractalNoise(type, 16, FractalMode.FBM, 4, lacunarity, 0.5);
+    }
+
+    /**
+     * Fills the grid one octave at a time
+     * @return The grid
+     */
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] fillGrid(){
+        noise.fillGrid(out, 0.3, -4.1, 12.7, STEP, DIM, DIM, DIM);
+        return out;
+    }
+
+    /**
+     * Samples every octave of every sample with the scalar functions
+     * @return The grid
+     */
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] scalar(){
+        for(int z = 0; z < DIM; z++){
+            for(int y = 0; y < DIM; y++){
+                for(int x = 0; x < DIM; x++){
+                    out[x + DIM * (y + DIM * z)] = noise.sample(0.3 + x * STEP, -4.1 + y * STEP, 12.7 + z * STEP);
+                }
+            }
+        }
+        return out;
+    }
+
+}
@@ -0,0 +1,101 @@
+package io.github.studiorailgun;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the throughput of the mixing hashes of {@link HashUtils} against the cantor hashes, over the coordinates of a voxel grid
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashBenchmark {
+
+    /**
+     * The number of voxels per invocation
+     */
+    private static final int VOXELS = 4096;
+
+    /**
+     * The x coordinates of the voxels
+     */
+    private int[] xs = new int[VOXELS];
+
+    /**
+     * The y coordinates of the voxels
+     */
+    private int[] ys = new int[VOXELS];
+
+    /**
+     * The z coordinates of the voxels
+     */
+    private int[] zs = new int[VOXELS];
+
+    /**
+     * The output of the batch hashes
+     */
+    private long[] out = new long[VOXELS];
+
+    /**
+     * Fills the coordinates with a 16x16x16 grid
+     */
+    @Setup
+    public void setup(){
+        for(int i = 0; i < VOXELS; i++){
+            xs[i] = (i & 15) - 8;
+            ys[i] = ((i >> 4) & 15) - 8;
+            zs[i] = (i >> 8) - 8;
+        }
+    }
+
+    /**
+     * Hashes the voxels with the cantor hash
+     * @param blackhole Consumes the hashes
+     */
+    @Benchmark
+    @OperationsPerInvocation(VOXELS)
+    public void cantorHash(Blackhole blackhole){
+        for(int i = 0; i < VOXELS; i++){
+            blackhole.consume(HashUtils.cantorHash(xs[i], ys[i], zs[i]));
+        }
+    }
+
+    /**
+     * Hashes the voxels with the mixing hash
+     * @param blackhole Consumes the hashes
+     */
+    @Benchmark
+    @OperationsPerInvocation(VOXELS)
+    public void hash(Blackhole blackhole){
+        for(int i = 0; i < VOXELS; i++){
+            blackhole.consume(HashUtils.hash(xs[i], ys[i], zs[i]));
+        }
+    }
+
+    /**
+     * Hashes the voxels with the batch mixing hash
+     * @return The hashes
+     */
+    @Benchmark
+    @OperationsPerInvocation(VOXELS)
+    public long[] hashBatch(){
+        HashUtils.hash(xs, ys, zs, out, VOXELS);
+        return out;
+    }
+
+}
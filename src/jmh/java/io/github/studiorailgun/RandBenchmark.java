@@ -0,0 +1,86 @@
+package io.github.studiorailgun;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the throughput of the sine and integer hash backends of {@link RandUtils}, near the origin and far from it
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RandBenchmark {
+
+    /**
+     * The number of cells per invocation
+     */
+    private static final int CELLS = 1024;
+
+    /**
+     * The backend
+     */
+    @Param({"SINE", "INTEGER_HASH"})
+    public String backend;
+
+    /**
+     * The distance of the cells from the origin
+     */
+    @Param({"0", "5000000"})
+    public double offset;
+
+    /**
+     * The backend that was selected before the benchmark
+     */
+    private RandUtils.RandBackend previous;
+
+    /**
+     * Selects the backend
+     */
+    @Setup
+    public void setup(){
+        previous = RandUtils.getBackend();
+        RandUtils.setBackend(RandUtils.RandBackend.valueOf(backend));
+    }
+
+    /**
+     * Restores the backend
+     */
+    @TearDown
+    public void tearDown(){
+        RandUtils.setBackend(previous);
+    }
+
+    /**
+     * Computes the feature points of a row of cells, as the voronoi noises do
+     * @param blackhole Consumes the points
+     */
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public void featurePoints(Blackhole blackhole){
+        for(int i = 0; i < CELLS; i++){
+            double x = offset + (i & 31);
+            double y = offset + (i >> 5);
+            blackhole.consume(RandUtils.rand(x, y, offset, 0));
+            blackhole.consume(RandUtils.rand(x, y, offset, 1));
+            blackhole.consume(RandUtils.rand(x, y, offset, 2));
+        }
+    }
+
+}
@@ -0,0 +1,707 @@
+package io.github.studiorailgun;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import org.joml.AABBd;
+import org.joml.Vector3d;
+
+/**
+ * A bounding volume hierarchy over a fixed set of axis aligned boxes, stored in flat arrays.
+ * The tree is built top down with a binned surface area heuristic and laid out depth first, so the left child of a node is the next node
+ * and every child comes after its parent. Boxes are identified by their index in the arrays they were built from.
+ * Moving boxes with {@link #setBounds(int, double, double, double, double, double, double)} and calling {@link #refit()} keeps the tree valid in linear time;
+ * rebuild if boxes move far enough that the queries slow down.
+ * Queries only read the tree and may run concurrently; building, moving boxes and refitting may not.
+ */
+public class BoundingVolumeHierarchy {
+
+    /**
+     * The default maximum number of boxes in a leaf
+     */
+    public static final int DEFAULT_LEAF_SIZE = 4;
+
+    /**
+     * The number of bins the surface area heuristic evaluates splits between
+     */
+    private static final int BIN_COUNT = 16;
+
+    /**
+     * The maximum number of boxes in a leaf
+     */
+    private final int leafSize;
+
+    /**
+     * The number of boxes
+     */
+    private final int count;
+
+    /**
+     * The bounds of the boxes
+     */
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] minZ;
+    private final double[] maxX;
+    private final double[] maxY;
+    private final double[] maxZ;
+
+    /**
+     * The box indices, grouped so each leaf references a contiguous range
+     */
+    private final int[] order;
+
+    /**
+     * The bounds of the nodes
+     */
+    private final double[] nodeMinX;
+    private final double[] nodeMinY;
+    private final double[] nodeMinZ;
+    private final double[] nodeMaxX;
+    private final double[] nodeMaxY;
+    private final double[] nodeMaxZ;
+
+    /**
+     * For internal nodes, the index of the right child. For leaves, the index into the order of the first box.
+     */
+    private final int[] nodeOffsets;
+
+    /**
+     * For leaves, the number of boxes. 0 for internal nodes.
+     */
+    private final int[] nodeCounts;
+
+    /**
+     * The number of nodes
+     */
+    private int nodeCount = 0;
+
+    /**
+     * The number of levels of the tree
+     */
+    private int depth = 0;
+
+    /**
+     * Builds a hierarchy
+     * @param boxes The boxes
+     */
+    public BoundingVolumeHierarchy(AABBd[] boxes){
+        this(boxes.length, DEFAULT_LEAF_SIZE);
+        for(int i = 0; i < count; i++){
+            AABBd box = boxes[i];
+            this.storeBounds(i, box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+        }
+        this.build();
+    }
+
+    /**
+     * Builds a hierarchy. The bounds are copied, so the arrays may be reused afterwards.
+     * @param minX The x minimums of the boxes
+     * @param minY The y minimums of the boxes
+     * @param minZ The z minimums of the boxes
+     * @param maxX The x maximums of the boxes
+     * @param maxY The y maximums of the boxes
+     * @param maxZ The z maximums of the boxes
+     * @param count The number of boxes
+     * @param leafSize The maximum number of boxes in a leaf
+     */
+    public BoundingVolumeHierarchy(double[] minX, double[] minY, double[] minZ, double[] maxX, double[] maxY, double[] maxZ, int count, int leafSize){
+        this(count, leafSize);
+        for(int i = 0; i < count; i++){
+            this.storeBounds(i, minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i]);
+        }
+        this.build();
+    }
+
+    /**
+     * Allocates the arrays of a hierarchy
+     * @param count The number of boxes
+     * @param leafSize The maximum number of boxes in a leaf
+     */
+    private BoundingVolumeHierarchy(int count, int leafSize){
+        if(count < 0){
+            throw new Error("Count must be non-negative! " + count);
+        }
+        if(leafSize < 1){
+            throw new Error("Leaf size must be positive! " + leafSize);
+        }
+        this.count = count;
+        this.leafSize = leafSize;
+        this.minX = new double[count];
+        this.minY = new double[count];
+        this.minZ = new double[count];
+        this.maxX = new double[count];
+        this.maxY = new double[count];
+        this.maxZ = new double[count];
+        this.order = new int[count];
+        //a binary tree with count leaves at most has 2 * count - 1 nodes
+        int maxNodes = Math.max(1, 2 * count - 1);
+        this.nodeMinX = new double[maxNodes];
+        this.nodeMinY = new double[maxNodes];
+        this.nodeMinZ = new double[maxNodes];
+        this.nodeMaxX = new double[maxNodes];
+        this.nodeMaxY = new double[maxNodes];
+        this.nodeMaxZ = new double[maxNodes];
+        this.nodeOffsets = new int[maxNodes];
+        this.nodeCounts = new int[maxNodes];
+    }
+
+    /**
+     * Moves or resizes a box. The tree is not updated until {@link #refit()} or {@link #rebuild()} is called.
+     * @param id The index of the box
+     * @param minX The new x minimum of the box
+     * @param minY The new y minimum of the box
+     * @param minZ The new z minimum of the box
+     * @param maxX The new x maximum of the box
+     * @param maxY The new y maximum of the box
+     * @param maxZ The new z maximum of the box
+     */
+    public void setBounds(int id, double minX, double minY, double minZ, double maxX, double maxY, double maxZ){
+        if(id < 0 || id >= count){
+            throw new Error("Id out of range! " + id);
+        }
+        this.storeBounds(id, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Moves or resizes a box. The tree is not updated until {@link #refit()} or {@link #rebuild()} is called.
+     * @param id The index of the box
+     * @param box The new bounds of the box
+     */
+    public void setBounds(int id, AABBd box){
+        this.setBounds(id, box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+    }
+
+    /**
+     * Gets the bounds of a box
+     * @param id The index of the box
+     * @param out The box to store the bounds in
+     * @return The box
+     */
+    public AABBd getBounds(int id, AABBd out){
+        if(id < 0 || id >= count){
+            throw new Error("Id out of range! " + id);
+        }
+        out.minX = minX[id];
+        out.minY = minY[id];
+        out.minZ = minZ[id];
+        out.maxX = maxX[id];
+        out.maxY = maxY[id];
+        out.maxZ = maxZ[id];
+        return out;
+    }
+
+    /**
+     * Recomputes the bounds of every node from the current bounds of the boxes, keeping the structure of the tree
+     */
+    public void refit(){
+        //children come after their parents, so walking backwards visits both children of a node before the node
+        for(int node = nodeCount - 1; node >= 0; node--){
+            int boxCount = nodeCounts[node];
+            if(boxCount > 0){
+                this.fitLeaf(node, nodeOffsets[node], nodeOffsets[node] + boxCount);
+            } else {
+                int left = node + 1;
+                int right = nodeOffsets[node];
+                nodeMinX[node] = Math.min(nodeMinX[left], nodeMinX[right]);
+                nodeMinY[node] = Math.min(nodeMinY[left], nodeMinY[right]);
+                nodeMinZ[node] = Math.min(nodeMinZ[left], nodeMinZ[right]);
+                nodeMaxX[node] = Math.max(nodeMaxX[left], nodeMaxX[right]);
+                nodeMaxY[node] = Math.max(nodeMaxY[left], nodeMaxY[right]);
+                nodeMaxZ[node] = Math.max(nodeMaxZ[left], nodeMaxZ[right]);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the tree from the current bounds of the boxes
+     */
+    public void rebuild(){
+        this.build();
+    }
+
+    /**
+     * Finds every box within a distance of a point
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @param radius The distance
+     * @param consumer Receives the index of each box, in no particular order
+     */
+    public void queryRadius(double x, double y, double z, double radius, IntConsumer consumer){
+        if(count == 0){
+            return;
+        }
+        double radiusSquared = radius * radius;
+        int[] stack = new int[depth + 1];
+        int stackSize = 1;
+        stack[0] = 0;
+        while(stackSize > 0){
+            stackSize--;
+            int node = stack[stackSize];
+            if(this.nodeDistanceSquared(node, x, y, z) > radiusSquared){
+                continue;
+            }
+            int boxCount = nodeCounts[node];
+            if(boxCount > 0){
+                int start = nodeOffsets[node];
+                for(int i = start; i < start + boxCount; i++){
+                    int id = order[i];
+                    if(this.boxDistanceSquared(id, x, y, z) <= radiusSquared){
+                        consumer.accept(id);
+                    }
+                }
+            } else {
+                stack[stackSize] = nodeOffsets[node];
+                stack[stackSize + 1] = node + 1;
+                stackSize = stackSize + 2;
+            }
+        }
+    }
+
+    /**
+     * Finds every box that overlaps a tube around a line segment
+     * @param tubeStart The start of the tube
+     * @param tubeEnd The end of the tube
+     * @param radius The radius of the tube
+     * @param consumer Receives the index of each box, in no particular order
+     */
+    public void queryTube(Vector3d tubeStart, Vector3d tubeEnd, double radius, IntConsumer consumer){
+        if(count == 0){
+            return;
+        }
+        AABBd scratchBox = new AABBd();
+        int[] stack = new int[depth + 1];
+        int stackSize = 1;
+        stack[0] = 0;
+        while(stackSize > 0){
+            stackSize--;
+            int node = stack[stackSize];
+            scratchBox.setMin(nodeMinX[node], nodeMinY[node], nodeMinZ[node]);
+            scratchBox.setMax(nodeMaxX[node], nodeMaxY[node], nodeMaxZ[node]);
+            if(!GeomUtils.intersectAABBTube(scratchBox, tubeStart, tubeEnd, radius)){
+                continue;
+            }
+            int boxCount = nodeCounts[node];
+            if(boxCount > 0){
+                int start = nodeOffsets[node];
+                for(int i = start; i < start + boxCount; i++){
+                    int id = order[i];
+                    this.getBounds(id, scratchBox);
+                    if(GeomUtils.intersectAABBTube(scratchBox, tubeStart, tubeEnd, radius)){
+                        consumer.accept(id);
+                    }
+                }
+            } else {
+                stack[stackSize] = nodeOffsets[node];
+                stack[stackSize + 1] = node + 1;
+                stackSize = stackSize + 2;
+            }
+        }
+    }
+
+    /**
+     * Finds the boxes nearest to a point.
+     * Visits the nearer child of each node first and skips nodes that are farther than the k-th nearest box found so far.
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @param k The maximum number of boxes to find
+     * @param outIds The array to store the indices in, nearest first
+     * @param outDistances The array to store the squared distances in, or null
+     * @return The number of boxes found (less than k if there are fewer than k boxes)
+     */
+    public int queryNearest(double x, double y, double z, int k, int[] outIds, double[] outDistances){
+        if(k < 0 || outIds.length < k || (outDistances != null && outDistances.length < k)){
+            throw new Error("Invalid k or output length! " + k);
+        }
+        if(k == 0 || count == 0){
+            return 0;
+        }
+        int[] heapIds = new int[k];
+        double[] heapDistances = new double[k];
+        int heapSize = 0;
+        int[] stack = new int[depth + 1];
+        double[] stackDistances = new double[depth + 1];
+        int stackSize = 1;
+        stack[0] = 0;
+        stackDistances[0] = this.nodeDistanceSquared(0, x, y, z);
+        while(stackSize > 0){
+            stackSize--;
+            int node = stack[stackSize];
+            if(heapSize == k && stackDistances[stackSize] >= heapDistances[0]){
+                continue;
+            }
+            int boxCount = nodeCounts[node];
+            if(boxCount > 0){
+                int start = nodeOffsets[node];
+                for(int i = start; i < start + boxCount; i++){
+                    int id = order[i];
+                    double distance = this.boxDistanceSquared(id, x, y, z);
+                    if(heapSize < k){
+                        heapSize = SpatialHashGrid.heapPush(heapIds, heapDistances, heapSize, id, distance);
+                    } else if(distance < heapDistances[0]){
+                        SpatialHashGrid.heapReplaceTop(heapIds, heapDistances, heapSize, id, distance);
+                    }
+                }
+            } else {
+                int left = node + 1;
+                int right = nodeOffsets[node];
+                double leftDistance = this.nodeDistanceSquared(left, x, y, z);
+                double rightDistance = this.nodeDistanceSquared(right, x, y, z);
+                //push the farther child first so the nearer one is visited first
+                if(leftDistance <= rightDistance){
+                    stack[stackSize] = right;
+                    stackDistances[stackSize] = rightDistance;
+                    stack[stackSize + 1] = left;
+                    stackDistances[stackSize + 1] = leftDistance;
+                } else {
+                    stack[stackSize] = left;
+                    stackDistances[stackSize] = leftDistance;
+                    stack[stackSize + 1] = right;
+                    stackDistances[stackSize + 1] = rightDistance;
+                }
+                stackSize = stackSize + 2;
+            }
+        }
+        SpatialHashGrid.heapDrain(heapIds, heapDistances, heapSize, outIds, outDistances);
+        return heapSize;
+    }
+
+    /**
+     * Gets the number of boxes
+     * @return The number of boxes
+     */
+    public int size(){
+        return count;
+    }
+
+    /**
+     * Gets the number of nodes
+     * @return The number of nodes
+     */
+    public int getNodeCount(){
+        return nodeCount;
+    }
+
+    /**
+     * Gets the number of levels of the tree
+     * @return The number of levels
+     */
+    public int getDepth(){
+        return depth;
+    }
+
+    /**
+     * Stores the bounds of a box
+     * @param id The index of the box
+     * @param minX The x minimum of the box
+     * @param minY The y minimum of the box
+     * @param minZ The z minimum of the box
+     * @param maxX The x maximum of the box
+     * @param maxY The y maximum of the box
+     * @param maxZ The z maximum of the box
+     */
+    private void storeBounds(int id, double minX, double minY, double minZ, double maxX, double maxY, double maxZ){
+        //negated so NaN bounds, which compare false either way, are rejected too
+        if(!(minX <= maxX) || !(minY <= maxY) || !(minZ <= maxZ)){
+            throw new Error("Box min must not exceed max or be NaN! " + minX + "," + minY + "," + minZ + " " + maxX + "," + maxY + "," + maxZ);
+        }
+        this.minX[id] = minX;
+        this.minY[id] = minY;
+        this.minZ[id] = minZ;
+        this.maxX[id] = maxX;
+        this.maxY[id] = maxY;
+        this.maxZ[id] = maxZ;
+    }
+
+    /**
+     * Builds the tree from the current bounds of the boxes
+     */
+    private void build(){
+        nodeCount = 0;
+        depth = 0;
+        if(count == 0){
+            return;
+        }
+        for(int i = 0; i < count; i++){
+            order[i] = i;
+        }
+        //scratch space for the bins
+        int[] binCounts = new int[BIN_COUNT];
+        double[] binBounds = new double[BIN_COUNT * 6];
+        double[] rightAreas = new double[BIN_COUNT];
+        int[] binOf = new int[count];
+
+        //pending ranges (start, end, parent, depth), built without recursion since unbalanced inputs can make the tree deep.
+        //the right range of a split is pushed first so the left child is built immediately after its parent
+        int[] tasks = new int[64 * 4];
+        int taskCount = 1;
+        tasks[0] = 0;
+        tasks[1] = count;
+        tasks[2] = -1;
+        tasks[3] = 1;
+        while(taskCount > 0){
+            taskCount--;
+            int start = tasks[taskCount * 4];
+            int end = tasks[taskCount * 4 + 1];
+            int parent = tasks[taskCount * 4 + 2];
+            int level = tasks[taskCount * 4 + 3];
+            int node = nodeCount;
+            nodeCount++;
+            depth = Math.max(depth, level);
+            if(parent >= 0 && node != parent + 1){
+                //this is the right child of its parent
+                nodeOffsets[parent] = node;
+            }
+            this.fitLeaf(node, start, end);
+            int mid = this.split(node, start, end, binCounts, binBounds, rightAreas, binOf);
+            if(mid < 0){
+                nodeOffsets[node] = start;
+                nodeCounts[node] = end - start;
+                continue;
+            }
+            nodeCounts[node] = 0;
+            if((taskCount + 2) * 4 > tasks.length){
+                tasks = Arrays.copyOf(tasks, tasks.length * 2);
+            }
+            tasks[taskCount * 4] = mid;
+            tasks[taskCount * 4 + 1] = end;
+            tasks[taskCount * 4 + 2] = node;
+            tasks[taskCount * 4 + 3] = level + 1;
+            tasks[taskCount * 4 + 4] = start;
+            tasks[taskCount * 4 + 5] = mid;
+            tasks[taskCount * 4 + 6] = node;
+            tasks[taskCount * 4 + 7] = level + 1;
+            taskCount = taskCount + 2;
+        }
+    }
+
+    /**
+     * Chooses a split of a range of boxes with the binned surface area heuristic and partitions the range around it
+     * @param node The node of the range, with its bounds already fit
+     * @param start The first index of the range in the order
+     * @param end One past the last index of the range in the order
+     * @param binCounts Scratch array for the number of boxes per bin
+     * @param binBounds Scratch array for the bounds of each bin
+     * @param rightAreas Scratch array for the areas of the right side of each split
+     * @param binOf Scratch array for the bin of each box
+     * @return The index the right half of the range starts at, or -1 if the range should be a leaf
+     */
+    private int split(int node, int start, int end, int[] binCounts, double[] binBounds, double[] rightAreas, int[] binOf){
+        int rangeCount = end - start;
+        if(rangeCount <= leafSize){
+            return -1;
+        }
+        //bin along the axis the box centers are spread the most on
+        double centerMinX = Double.POSITIVE_INFINITY, centerMinY = Double.POSITIVE_INFINITY, centerMinZ = Double.POSITIVE_INFINITY;
+        double centerMaxX = Double.NEGATIVE_INFINITY, centerMaxY = Double.NEGATIVE_INFINITY, centerMaxZ = Double.NEGATIVE_INFINITY;
+        for(int i = start; i < end; i++){
+            int id = order[i];
+            double centerX = minX[id] + maxX[id];
+            double centerY = minY[id] + maxY[id];
+            double centerZ = minZ[id] + maxZ[id];
+            centerMinX = Math.min(centerMinX, centerX);
+            centerMinY = Math.min(centerMinY, centerY);
+            centerMinZ = Math.min(centerMinZ, centerZ);
+            centerMaxX = Math.max(centerMaxX, centerX);
+            centerMaxY = Math.max(centerMaxY, centerY);
+            centerMaxZ = Math.max(centerMaxZ, centerZ);
+        }
+        double extentX = centerMaxX - centerMinX;
+        double extentY = centerMaxY - centerMinY;
+        double extentZ = centerMaxZ - centerMinZ;
+        int axis = 0;
+        double centerMin = centerMinX;
+        double extent = extentX;
+        if(extentY > extent){
+            axis = 1;
+            centerMin = centerMinY;
+            extent = extentY;
+        }
+        if(extentZ > extent){
+            axis = 2;
+            centerMin = centerMinZ;
+            extent = extentZ;
+        }
+        if(!(extent > 0)){
+            //every center is the same, so no split separates them; halve the range to keep leaves small
+            return start + rangeCount / 2;
+        }
+        double[] axisMin = axis == 0 ? minX : (axis == 1 ? minY : minZ);
+        double[] axisMax = axis == 0 ? maxX : (axis == 1 ? maxY : maxZ);
+
+        //fill the bins
+        Arrays.fill(binCounts, 0);
+        for(int bin = 0; bin < BIN_COUNT; bin++){
+            BoundingVolumeHierarchy.emptyBounds(binBounds, bin);
+        }
+        double binScale = BIN_COUNT / extent;
+        for(int i = start; i < end; i++){
+            int id = order[i];
+            int bin = Math.min(BIN_COUNT - 1, (int)((axisMin[id] + axisMax[id] - centerMin) * binScale));
+            binOf[i] = bin;
+            binCounts[bin]++;
+            int offset = bin * 6;
+            binBounds[offset] = Math.min(binBounds[offset], minX[id]);
+            binBounds[offset + 1] = Math.min(binBounds[offset + 1], minY[id]);
+            binBounds[offset + 2] = Math.min(binBounds[offset + 2], minZ[id]);
+            binBounds[offset + 3] = Math.max(binBounds[offset + 3], maxX[id]);
+            binBounds[offset + 4] = Math.max(binBounds[offset + 4], maxY[id]);
+            binBounds[offset + 5] = Math.max(binBounds[offset + 5], maxZ[id]);
+        }
+
+        //sweep from the right to get the area of everything right of each split
+        double sweepMinX = Double.POSITIVE_INFINITY, sweepMinY = Double.POSITIVE_INFINITY, sweepMinZ = Double.POSITIVE_INFINITY;
+        double sweepMaxX = Double.NEGATIVE_INFINITY, sweepMaxY = Double.NEGATIVE_INFINITY, sweepMaxZ = Double.NEGATIVE_INFINITY;
+        for(int bin = BIN_COUNT - 1; bin > 0; bin--){
+            int offset = bin * 6;
+            sweepMinX = Math.min(sweepMinX, binBounds[offset]);
+            sweepMinY = Math.min(sweepMinY, binBounds[offset + 1]);
+            sweepMinZ = Math.min(sweepMinZ, binBounds[offset + 2]);
+            sweepMaxX = Math.max(sweepMaxX, binBounds[offset + 3]);
+            sweepMaxY = Math.max(sweepMaxY, binBounds[offset + 4]);
+            sweepMaxZ = Math.max(sweepMaxZ, binBounds[offset + 5]);
+            rightAreas[bin] = BoundingVolumeHierarchy.halfArea(sweepMinX, sweepMinY, sweepMinZ, sweepMaxX, sweepMaxY, sweepMaxZ);
+        }
+
+        //sweep from the left, costing each split as the area of each side times the number of boxes in it
+        sweepMinX = Double.POSITIVE_INFINITY;
+        sweepMinY = Double.POSITIVE_INFINITY;
+        sweepMinZ = Double.POSITIVE_INFINITY;
+        sweepMaxX = Double.NEGATIVE_INFINITY;
+        sweepMaxY = Double.NEGATIVE_INFINITY;
+        sweepMaxZ = Double.NEGATIVE_INFINITY;
+        int leftCount = 0;
+        int bestSplit = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for(int bin = 0; bin < BIN_COUNT - 1; bin++){
+            int offset = bin * 6;
+            sweepMinX = Math.min(sweepMinX, binBounds[offset]);
+            sweepMinY = Math.min(sweepMinY, binBounds[offset + 1]);
+            sweepMinZ = Math.min(sweepMinZ, binBounds[offset + 2]);
+            sweepMaxX = Math.max(sweepMaxX, binBounds[offset + 3]);
+            sweepMaxY = Math.max(sweepMaxY, binBounds[offset + 4]);
+            sweepMaxZ = Math.max(sweepMaxZ, binBounds[offset + 5]);
+            leftCount = leftCount + binCounts[bin];
+            int rightCount = rangeCount - leftCount;
+            if(leftCount == 0 || rightCount == 0){
+                continue;
+            }
+            double cost = BoundingVolumeHierarchy.halfArea(sweepMinX, sweepMinY, sweepMinZ, sweepMaxX, sweepMaxY, sweepMaxZ) * leftCount + rightAreas[bin + 1] * rightCount;
+            if(cost < bestCost){
+                bestCost = cost;
+                bestSplit = bin;
+            }
+        }
+
+        //partition the range so the boxes in bins up to the split come first
+        int left = start;
+        int right = end - 1;
+        while(left <= right){
+            if(binOf[left] <= bestSplit){
+                left++;
+            } else {
+                int swapId = order[left];
+                order[left] = order[right];
+                order[right] = swapId;
+                int swapBin = binOf[left];
+                binOf[left] = binOf[right];
+                binOf[right] = swapBin;
+                right--;
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Sets the bounds of a node to the union of a range of boxes
+     * @param node The node
+     * @param start The first index of the range in the order
+     * @param end One past the last index of the range in the order
+     */
+    private void fitLeaf(int node, int start, int end){
+        double boundsMinX = Double.POSITIVE_INFINITY, boundsMinY = Double.POSITIVE_INFINITY, boundsMinZ = Double.POSITIVE_INFINITY;
+        double boundsMaxX = Double.NEGATIVE_INFINITY, boundsMaxY = Double.NEGATIVE_INFINITY, boundsMaxZ = Double.NEGATIVE_INFINITY;
+        for(int i = start; i < end; i++){
+            int id = order[i];
+            boundsMinX = Math.min(boundsMinX, minX[id]);
+            boundsMinY = Math.min(boundsMinY, minY[id]);
+            boundsMinZ = Math.min(boundsMinZ, minZ[id]);
+            boundsMaxX = Math.max(boundsMaxX, maxX[id]);
+            boundsMaxY = Math.max(boundsMaxY, maxY[id]);
+            boundsMaxZ = Math.max(boundsMaxZ, maxZ[id]);
+        }
+        nodeMinX[node] = boundsMinX;
+        nodeMinY[node] = boundsMinY;
+        nodeMinZ[node] = boundsMinZ;
+        nodeMaxX[node] = boundsMaxX;
+        nodeMaxY[node] = boundsMaxY;
+        nodeMaxZ[node] = boundsMaxZ;
+    }
+
+    /**
+     * Gets the squared distance from a point to a node
+     * @param node The node
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @return The squared distance
+     */
+    private double nodeDistanceSquared(int node, double x, double y, double z){
+        return GeomUtils.getMinSquaredDistanceAABB(
+            x, y, z,
+            nodeMinX[node], nodeMinY[node], nodeMinZ[node],
+            nodeMaxX[node], nodeMaxY[node], nodeMaxZ[node]
+        );
+    }
+
+    /**
+     * Gets the squared distance from a point to a box
+     * @param id The index of the box
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @return The squared distance
+     */
+    private double boxDistanceSquared(int id, double x, double y, double z){
+        return GeomUtils.getMinSquaredDistanceAABB(
+            x, y, z,
+            minX[id], minY[id], minZ[id],
+            maxX[id], maxY[id], maxZ[id]
+        );
+    }
+
+    /**
+     * Sets a slot of a bounds array to empty bounds
+     * @param bounds The bounds array (minX, minY, minZ, maxX, maxY, maxZ per slot)
+     * @param slot The slot
+     */
+    private static void emptyBounds(double[] bounds, int slot){
+        int offset = slot * 6;
+        bounds[offset] = Double.POSITIVE_INFINITY;
+        bounds[offset + 1] = Double.POSITIVE_INFINITY;
+        bounds[offset + 2] = Double.POSITIVE_INFINITY;
+        bounds[offset + 3] = Double.NEGATIVE_INFINITY;
+        bounds[offset + 4] = Double.NEGATIVE_INFINITY;
+        bounds[offset + 5] = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Gets half the surface area of a box, which ranks splits the same as the full area
+     * @param minX The x minimum of the box
+     * @param minY The y minimum of the box
+     * @param minZ The z minimum of the box
+     * @param maxX The x maximum of the box
+     * @param maxY The y maximum of the box
+     * @param maxZ The z maximum of the box
+     * @return Half the surface area
+     */
+    private static double halfArea(double minX, double minY, double minZ, double maxX, double maxY, double maxZ){
+        double sizeX = maxX - minX;
+        double sizeY = maxY - minY;
+        double sizeZ = maxZ - minZ;
+        return sizeX * sizeY + sizeY * sizeZ + sizeZ * sizeX;
+    }
+
+}
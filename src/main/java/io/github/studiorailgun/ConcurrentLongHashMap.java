@@ -0,0 +1,658 @@
+package io.github.studiorailgun;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * A thread-safe hash map from primitive longs to objects, laid out for keys from {@link VecHashUtils#hashVoxel(int, int, int, int, int, int)}.
+ * The map is split into segments that are each guarded by a {@link StampedLock}. Reads are optimistic and only take the lock if a write raced them.
+ * The segment of a key is picked from its chunk bits (the lowest 24 bits of a voxel hash), so every voxel of a chunk lives in the same segment
+ * and per-chunk operations only lock that one segment.
+ * Within a segment entries are stored like {@link LongHashMap}: linear probing, backward-shift removal and fibonacci hashing.
+ * @param <V> The type of the values
+ */
+public class ConcurrentLongHashMap<V> {
+
+    /**
+     * Mask of the chunk bits of a voxel hash
+     */
+    public static final long CHUNK_MASK = 0xFFFFFFL;
+
+    /**
+     * The multiplier used to pick segments (2^64 divided by the golden ratio)
+     */
+    private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Marks an empty slot. The zero key is stored outside the table.
+     */
+    private static final long EMPTY = 0;
+
+    /**
+     * The segments of the map
+     */
+    private final Segment[] segments;
+
+    /**
+     * The number of bits to shift a spread chunk by to get its segment
+     */
+    private final int segmentShift;
+
+    /**
+     * Creates a map
+     */
+    public ConcurrentLongHashMap(){
+        this(LongHashMap.DEFAULT_CAPACITY, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Creates a map
+     * @param capacity The number of entries the map can hold before growing
+     * @param concurrency The number of segments to split the map into (rounded up to a power of two)
+     */
+    public ConcurrentLongHashMap(int capacity, int concurrency){
+        if(capacity < 0){
+            throw new Error("Capacity must be non-negative! " + capacity);
+        }
+        if(concurrency < 1 || concurrency > (1 << 16)){
+            throw new Error("Concurrency must be in range [1, 65536] " + concurrency);
+        }
+        int segmentCount = concurrency == 1 ? 1 : Integer.highestOneBit(concurrency - 1) << 1;
+        int segmentCapacity = (capacity + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for(int i = 0; i < segmentCount; i++){
+            this.segments[i] = new Segment(segmentCapacity);
+        }
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    /**
+     * Gets the value of a key
+     * @param key The key
+     * @return The value, or null if the key has no entry
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key){
+        return (V)this.segmentFor(key).get(key);
+    }
+
+    /**
+     * Checks if a key has an entry
+     * @param key The key
+     * @return true if it has an entry, false otherwise
+     */
+    public boolean containsKey(long key){
+        return this.segmentFor(key).containsKey(key);
+    }
+
+    /**
+     * Sets the value of a key
+     * @param key The key
+     * @param value The value
+     * @return The previous value, or null if the key had no entry
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value){
+        return (V)this.segmentFor(key).put(key, value, false);
+    }
+
+    /**
+     * Sets the value of a key if it has no entry
+     * @param key The key
+     * @param value The value
+     * @return The current value, or null if the key had no entry and the value was stored
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(long key, V value){
+        return (V)this.segmentFor(key).put(key, value, true);
+    }
+
+    /**
+     * Gets the value of a key, creating it if the key has no entry.
+     * The function is called while the segment is locked, so it must not access this map.
+     * @param key The key
+     * @param function Creates the value from the key
+     * @return The value
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<V> function){
+        Segment segment = this.segmentFor(key);
+        Object rVal = segment.get(key);
+        if(rVal != null){
+            return (V)rVal;
+        }
+        return (V)segment.computeIfAbsent(key, function);
+    }
+
+    /**
+     * Removes the entry of a key
+     * @param key The key
+     * @return The value of the removed entry, or null if the key had no entry
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key){
+        return (V)this.segmentFor(key).remove(key);
+    }
+
+    /**
+     * Calls a consumer with every entry of a chunk. The consumer is called while the chunk's segment is read locked, so it must not modify this map.
+     * @param chunkX The chunk x position
+     * @param chunkY The chunk y position
+     * @param chunkZ The chunk z position
+     * @param consumer The consumer
+     */
+    public void forEachInChunk(int chunkX, int chunkY, int chunkZ, LongHashMap.EntryConsumer<V> consumer){
+        long chunk = VecHashUtils.hashVoxel(chunkX, chunkY, chunkZ, 0, 0, 0);
+        this.segmentFor(chunk).forEachInChunk(chunk, consumer);
+    }
+
+    /**
+     * Removes every entry of a chunk
+     * @param chunkX The chunk x position
+     * @param chunkY The chunk y position
+     * @param chunkZ The chunk z position
+     * @return The number of removed entries
+     */
+    public int removeChunk(int chunkX, int chunkY, int chunkZ){
+        long chunk = VecHashUtils.hashVoxel(chunkX, chunkY, chunkZ, 0, 0, 0);
+        return this.segmentFor(chunk).removeChunk(chunk);
+    }
+
+    /**
+     * Sets the values of several keys, locking each segment once per run of keys that fall into it (ie the voxels of one chunk)
+     * @param keys The keys
+     * @param values The values
+     * @param count The number of entries
+     */
+    public void putAll(long[] keys, V[] values, int count){
+        int i = 0;
+        while(i < count){
+            Segment segment = this.segmentFor(keys[i]);
+            int end = i + 1;
+            while(end < count && this.segmentFor(keys[end]) == segment){
+                end++;
+            }
+            segment.putAll(keys, values, i, end);
+            i = end;
+        }
+    }
+
+    /**
+     * Calls a consumer with every entry. Each segment is read locked while its entries are visited, so the consumer must not modify this map.
+     * @param consumer The consumer
+     */
+    public void forEach(LongHashMap.EntryConsumer<V> consumer){
+        for(Segment segment : segments){
+            segment.forEachInChunk(-1, consumer);
+        }
+    }
+
+    /**
+     * Gets the number of entries. Concurrent writes may or may not be counted.
+     * @return The number of entries
+     */
+    public int size(){
+        int rVal = 0;
+        for(Segment segment : segments){
+            rVal = rVal + segment.size();
+        }
+        return rVal;
+    }
+
+    /**
+     * Checks if the map has no entries
+     * @return true if it is empty, false otherwise
+     */
+    public boolean isEmpty(){
+        return this.size() == 0;
+    }
+
+    /**
+     * Removes all entries
+     */
+    public void clear(){
+        for(Segment segment : segments){
+            segment.clear();
+        }
+    }
+
+    /**
+     * Gets the segment of a key from its chunk bits
+     * @param key The key
+     * @return The segment
+     */
+    private Segment segmentFor(long key){
+        if(segments.length == 1){
+            return segments[0];
+        }
+        return segments[(int)(((key & CHUNK_MASK) * SPREAD) >>> segmentShift)];
+    }
+
+    /**
+     * The arrays of a segment, replaced as a whole when the segment grows so optimistic readers always see a consistent size
+     */
+    private static class Table {
+
+        /**
+         * The keys of each slot
+         */
+        private final long[] keys;
+
+        /**
+         * The values of each slot
+         */
+        private final Object[] values;
+
+        /**
+         * The number of bits to shift a spread key by to get its slot
+         */
+        private final int shift;
+
+        /**
+         * Creates a table
+         * @param length The number of slots (a power of two)
+         */
+        private Table(int length){
+            this.keys = new long[length];
+            this.values = new Object[length];
+            this.shift = 64 - Integer.numberOfTrailingZeros(length);
+        }
+
+    }
+
+    /**
+     * A single locked segment of the map
+     */
+    private static class Segment {
+
+        /**
+         * Guards the segment
+         */
+        private final StampedLock lock = new StampedLock();
+
+        /**
+         * The table of entries
+         */
+        private Table table;
+
+        /**
+         * The number of entries in the table (excluding the zero key)
+         */
+        private int tableSize = 0;
+
+        /**
+         * true if the zero key has an entry
+         */
+        private boolean hasZeroKey = false;
+
+        /**
+         * The value of the zero key
+         */
+        private Object zeroValue = null;
+
+        /**
+         * Creates a segment
+         * @param capacity The number of entries the segment can hold before growing
+         */
+        private Segment(int capacity){
+            this.table = new Table(LongHashMap.tableSizeFor(capacity));
+        }
+
+        /**
+         * Gets the value of a key, without locking unless a write races the read
+         * @param key The key
+         * @return The value, or null if the key has no entry
+         */
+        private Object get(long key){
+            long stamp = lock.tryOptimisticRead();
+            if(stamp != 0){
+                Object rVal = this.find(key);
+                if(lock.validate(stamp)){
+                    return rVal;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return this.find(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Checks if a key has an entry, without locking unless a write races the read
+         * @param key The key
+         * @return true if it has an entry, false otherwise
+         */
+        private boolean containsKey(long key){
+            long stamp = lock.tryOptimisticRead();
+            if(stamp != 0){
+                boolean rVal = this.findSlot(key) != -1;
+                if(lock.validate(stamp)){
+                    return rVal;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return this.findSlot(key) != -1;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Sets the value of a key
+         * @param key The key
+         * @param value The value
+         * @param onlyIfAbsent true to keep the current value if there is one
+         * @return The previous value, or null if the key had no entry
+         */
+        private Object put(long key, Object value, boolean onlyIfAbsent){
+            long stamp = lock.writeLock();
+            try {
+                return this.putLocked(key, value, onlyIfAbsent);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Sets the values of a range of keys
+         * @param keys The keys
+         * @param values The values
+         * @param start The first index (inclusive)
+         * @param end The last index (exclusive)
+         */
+        private void putAll(long[] keys, Object[] values, int start, int end){
+            long stamp = lock.writeLock();
+            try {
+                for(int i = start; i < end; i++){
+                    this.putLocked(keys[i], values[i], false);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Gets the value of a key, creating it under the write lock if the key has no entry
+         * @param key The key
+         * @param function Creates the value from the key
+         * @return The value
+         */
+        private Object computeIfAbsent(long key, LongFunction<?> function){
+            long stamp = lock.writeLock();
+            try {
+                Object rVal = this.find(key);
+                if(rVal == null){
+                    rVal = function.apply(key);
+                    this.putLocked(key, rVal, false);
+                }
+                return rVal;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Removes the entry of a key
+         * @param key The key
+         * @return The value of the removed entry, or null if the key had no entry
+         */
+        private Object remove(long key){
+            long stamp = lock.writeLock();
+            try {
+                if(key == EMPTY){
+                    Object rVal = zeroValue;
+                    zeroValue = null;
+                    hasZeroKey = false;
+                    return rVal;
+                }
+                int slot = this.findSlot(key);
+                if(slot < 0){
+                    return null;
+                }
+                Object rVal = table.values[slot];
+                this.removeSlot(slot);
+                return rVal;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Calls a consumer with every entry of a chunk
+         * @param chunk The chunk bits, or -1 for every entry
+         * @param consumer The consumer
+         */
+        @SuppressWarnings("unchecked")
+        private <V> void forEachInChunk(long chunk, LongHashMap.EntryConsumer<V> consumer){
+            long stamp = lock.readLock();
+            try {
+                if(hasZeroKey && (chunk == -1 || chunk == 0)){
+                    consumer.accept(EMPTY, (V)zeroValue);
+                }
+                long[] keys = table.keys;
+                Object[] values = table.values;
+                for(int i = 0; i < keys.length; i++){
+                    long key = keys[i];
+                    if(key != EMPTY && (chunk == -1 || (key & CHUNK_MASK) == chunk)){
+                        consumer.accept(key, (V)values[i]);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Removes every entry of a chunk
+         * @param chunk The chunk bits
+         * @return The number of removed entries
+         */
+        private int removeChunk(long chunk){
+            long stamp = lock.writeLock();
+            try {
+                int rVal = 0;
+                if(hasZeroKey && chunk == 0){
+                    hasZeroKey = false;
+                    zeroValue = null;
+                    rVal++;
+                }
+                long[] keys = table.keys;
+                int i = 0;
+                while(i < keys.length){
+                    long key = keys[i];
+                    if(key != EMPTY && (key & CHUNK_MASK) == chunk){
+                        //the shift may move an unvisited entry into this slot, so check it again
+                        this.removeSlot(i);
+                        rVal++;
+                    } else {
+                        i++;
+                    }
+                }
+                return rVal;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Gets the number of entries
+         * @return The number of entries
+         */
+        private int size(){
+            long stamp = lock.tryOptimisticRead();
+            int rVal = tableSize + (hasZeroKey ? 1 : 0);
+            if(lock.validate(stamp)){
+                return rVal;
+            }
+            stamp = lock.readLock();
+            try {
+                return tableSize + (hasZeroKey ? 1 : 0);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Removes all entries
+         */
+        private void clear(){
+            long stamp = lock.writeLock();
+            try {
+                Arrays.fill(table.keys, EMPTY);
+                Arrays.fill(table.values, null);
+                tableSize = 0;
+                hasZeroKey = false;
+                zeroValue = null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /**
+         * Finds the value of a key. Safe to call optimistically: it never leaves the bounds of the table it started with and always terminates.
+         * @param key The key
+         * @return The value, or null if the key has no entry
+         */
+        private Object find(long key){
+            if(key == EMPTY){
+                return zeroValue;
+            }
+            Table table = this.table;
+            long[] keys = table.keys;
+            int mask = keys.length - 1;
+            int slot = LongHashMap.spread(key, table.shift) & mask;
+            for(int probes = 0; probes < keys.length; probes++){
+                long current = keys[slot];
+                if(current == key){
+                    return table.values[slot];
+                }
+                if(current == EMPTY){
+                    return null;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * Finds the slot of a key. Safe to call optimistically.
+         * @param key The key
+         * @return The slot, -2 for the zero key if it has an entry, or -1 if the key has no entry
+         */
+        private int findSlot(long key){
+            if(key == EMPTY){
+                return hasZeroKey ? -2 : -1;
+            }
+            Table table = this.table;
+            long[] keys = table.keys;
+            int mask = keys.length - 1;
+            int slot = LongHashMap.spread(key, table.shift) & mask;
+            for(int probes = 0; probes < keys.length; probes++){
+                long current = keys[slot];
+                if(current == key){
+                    return slot;
+                }
+                if(current == EMPTY){
+                    return -1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * Sets the value of a key while holding the write lock
+         * @param key The key
+         * @param value The value
+         * @param onlyIfAbsent true to keep the current value if there is one
+         * @return The previous value, or null if the key had no entry
+         */
+        private Object putLocked(long key, Object value, boolean onlyIfAbsent){
+            if(key == EMPTY){
+                Object rVal = zeroValue;
+                if(!hasZeroKey || !onlyIfAbsent){
+                    zeroValue = value;
+                }
+                hasZeroKey = true;
+                return rVal;
+            }
+            long[] keys = table.keys;
+            int mask = keys.length - 1;
+            int slot = LongHashMap.spread(key, table.shift);
+            long current;
+            while((current = keys[slot]) != EMPTY){
+                if(current == key){
+                    Object rVal = table.values[slot];
+                    if(!onlyIfAbsent){
+                        table.values[slot] = value;
+                    }
+                    return rVal;
+                }
+                slot = (slot + 1) & mask;
+            }
+            //grow before inserting, so a segment that can't grow is left unchanged
+            if(tableSize >= (int)(keys.length * LongHashMap.MAX_LOAD)){
+                this.grow();
+                return this.putLocked(key, value, onlyIfAbsent);
+            }
+            //publish the value before the key so optimistic readers never match a key with a stale value
+            table.values[slot] = value;
+            keys[slot] = key;
+            tableSize++;
+            return null;
+        }
+
+        /**
+         * Empties a slot while holding the write lock, shifting back the entries that follow it so no tombstones are left
+         * @param slot The slot
+         */
+        private void removeSlot(int slot){
+            long[] keys = table.keys;
+            Object[] values = table.values;
+            int mask = keys.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            long current;
+            while((current = keys[next]) != EMPTY){
+                int home = LongHashMap.spread(current, table.shift);
+                //move the entry back if its home is not between the hole and its current position
+                if(((next - home) & mask) >= ((next - hole) & mask)){
+                    keys[hole] = current;
+                    values[hole] = values[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = EMPTY;
+            values[hole] = null;
+            tableSize--;
+        }
+
+        /**
+         * Doubles the table while holding the write lock, up to {@link LongHashMap#MAX_TABLE_SIZE} slots
+         */
+        private void grow(){
+            Table oldTable = this.table;
+            Table newTable = new Table(LongHashMap.grownTableSize(oldTable.keys.length));
+            int mask = newTable.keys.length - 1;
+            for(int i = 0; i < oldTable.keys.length; i++){
+                long key = oldTable.keys[i];
+                if(key != EMPTY){
+                    int slot = LongHashMap.spread(key, newTable.shift);
+                    while(newTable.keys[slot] != EMPTY){
+                        slot = (slot + 1) & mask;
+                    }
+                    newTable.keys[slot] = key;
+                    newTable.values[slot] = oldTable.values[i];
+                }
+            }
+            this.table = newTable;
+        }
+
+    }
+
+}
@@ -0,0 +1,193 @@
+package io.github.studiorailgun;
+
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+
+/**
+ * A splittable random number generator whose n-th value is a pure function of its seed and n (SplitMix64).
+ * The n-th value is mix64(seed + n * gamma), so the generator can jump to any position in constant time,
+ * and splitting produces a generator with a new seed and gamma so the streams don't overlap in practice.
+ * A generator is not thread-safe; give each worker its own, ie from {@link #forChunk(long, int, int, int)} or {@link #split()}.
+ */
+public class CounterRandom implements RandomGenerator.SplittableGenerator {
+
+    /**
+     * The default gamma (the golden ratio as a 64-bit fraction)
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Seeds used to hash each coordinate of a chunk
+     */
+    private static final long CHUNK_SEED_X = 0xC2B2AE3D27D4EB4FL;
+    private static final long CHUNK_SEED_Y = 0x165667B19E3779F9L;
+    private static final long CHUNK_SEED_Z = 0x27D4EB2F165667C5L;
+
+    /**
+     * The seed of the stream
+     */
+    private final long seed;
+
+    /**
+     * The odd increment between consecutive positions of the stream
+     */
+    private final long gamma;
+
+    /**
+     * The position of the next value in the stream
+     */
+    private long counter = 0;
+
+    /**
+     * Creates a generator
+     * @param seed The seed
+     */
+    public CounterRandom(long seed){
+        this(HashUtils.mix64(seed), CounterRandom.mixGamma(seed + GOLDEN_GAMMA));
+    }
+
+    /**
+     * Creates a generator with an explicit seed and gamma
+     * @param seed The seed of the stream
+     * @param gamma The odd increment between positions
+     */
+    private CounterRandom(long seed, long gamma){
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Creates the generator for a chunk. The same world seed and chunk always give the same stream, independent of which worker or in what order chunks are generated.
+     * @param worldSeed The seed of the world
+     * @param chunkX The x coordinate of the chunk
+     * @param chunkY The y coordinate of the chunk
+     * @param chunkZ The z coordinate of the chunk
+     * @return The generator
+     */
+    public static CounterRandom forChunk(long worldSeed, int chunkX, int chunkY, int chunkZ){
+        long h = HashUtils.mix64(worldSeed ^ CHUNK_SEED_Z ^ chunkZ);
+        h = HashUtils.mix64(h ^ CHUNK_SEED_Y ^ chunkY);
+        h = HashUtils.mix64(h ^ CHUNK_SEED_X ^ chunkX);
+        return new CounterRandom(h);
+    }
+
+    /**
+     * Creates the generator for a hashed key, ie a position packed by {@link VecHashUtils}
+     * @param worldSeed The seed of the world
+     * @param key The key
+     * @return The generator
+     */
+    public static CounterRandom forKey(long worldSeed, long key){
+        return new CounterRandom(HashUtils.mix64(worldSeed ^ CHUNK_SEED_X) ^ key);
+    }
+
+    @Override
+    public long nextLong(){
+        long rVal = this.valueAt(this.counter);
+        this.counter++;
+        return rVal;
+    }
+
+    /**
+     * Gets the value at a position in the stream without moving the generator
+     * @param position The position
+     * @return The value that {@link #nextLong()} returns at that position
+     */
+    public long valueAt(long position){
+        return HashUtils.mix64(seed + (position + 1) * gamma);
+    }
+
+    /**
+     * Moves the generator forward (or backward, if negative) by a number of values in constant time
+     * @param steps The number of values to skip
+     */
+    public void advance(long steps){
+        this.counter = this.counter + steps;
+    }
+
+    /**
+     * Gets the position of the next value in the stream
+     * @return The position
+     */
+    public long getCounter(){
+        return counter;
+    }
+
+    /**
+     * Sets the position of the next value in the stream
+     * @param counter The position
+     */
+    public void setCounter(long counter){
+        this.counter = counter;
+    }
+
+    /**
+     * Creates a copy of this generator at the same position
+     * @return The copy
+     */
+    public CounterRandom copy(){
+        CounterRandom rVal = new CounterRandom(seed, gamma);
+        rVal.counter = this.counter;
+        return rVal;
+    }
+
+    @Override
+    public CounterRandom split(){
+        return this.split(this);
+    }
+
+    @Override
+    public CounterRandom split(SplittableGenerator source){
+        return new CounterRandom(source.nextLong(), CounterRandom.mixGamma(source.nextLong()));
+    }
+
+    @Override
+    public Stream<SplittableGenerator> splits(){
+        return this.splits(this);
+    }
+
+    /**
+     * Gets a stream of generators split off this one
+     * @param streamSize The number of generators
+     * @return The stream
+     * @throws IllegalArgumentException If the stream size is negative, as required by {@link RandomGenerator.SplittableGenerator#splits(long)}
+     */
+    @Override
+    public Stream<SplittableGenerator> splits(long streamSize){
+        return this.splits(streamSize, this);
+    }
+
+    @Override
+    public Stream<SplittableGenerator> splits(SplittableGenerator source){
+        return Stream.<SplittableGenerator>generate(() -> this.split(source));
+    }
+
+    /**
+     * Gets a stream of generators split off this one, seeded from another generator
+     * @param streamSize The number of generators
+     * @param source The generator to seed the new generators from
+     * @return The stream
+     * @throws IllegalArgumentException If the stream size is negative, as required by {@link RandomGenerator.SplittableGenerator#splits(long, RandomGenerator.SplittableGenerator)}
+     */
+    @Override
+    public Stream<SplittableGenerator> splits(long streamSize, SplittableGenerator source){
+        if(streamSize < 0){
+            throw new IllegalArgumentException("Stream size must be non-negative! " + streamSize);
+        }
+        return Stream.<SplittableGenerator>generate(() -> this.split(source)).limit(streamSize);
+    }
+
+    /**
+     * Derives an odd gamma from a value, avoiding gammas with too few bit transitions (which produce poorly mixed sequences)
+     * @param value The value
+     * @return The gamma
+     */
+    private static long mixGamma(long value){
+        long rVal = HashUtils.mix64(value) | 1L;
+        if(Long.bitCount(rVal ^ (rVal >>> 1)) < 24){
+            rVal = rVal ^ 0xAAAAAAAAAAAAAAAAL;
+        }
+        return rVal;
+    }
+
+}
@@ -0,0 +1,235 @@
+package io.github.studiorailgun;
+
+import io.github.studiorailgun.NoiseUtils.CellNoiseType;
+
+/**
+ * Warps the domain of a cellular noise by offsetting each sample position with three other noise fields.
+ * The offset fields are filled over a whole grid at once with {@link NoiseUtils#fillGrid(CellNoiseType, double, double[], double, double, double, double, int, int, int)},
+ * optionally on a coarser lattice that is trilinearly interpolated, and the warped positions are then sampled in bulk with
+ * {@link NoiseUtils#sampleBatch(CellNoiseType, double, double[], double[], double[], double[], int)}.
+ * The offset along each axis is amplitude * (2 * noise - 1), with the offset noise sampled at position * frequency (shifted per axis so the three fields are independent).
+ */
+public class DomainWarp {
+
+    /**
+     * Shifts applied to the offset noise positions so the x,y,z offset fields don't share feature points
+     */
+    private static final double[][] AXIS_SHIFTS = new double[][]{
+        { 0.0, 0.0, 0.0 },
+        { 131.7, -57.3, 219.1 },
+        { -311.9, 173.5, -97.3 },
+    };
+
+    /**
+     * The type of noise that is warped
+     */
+    private final CellNoiseType type;
+
+    /**
+     * The parameter of the noise that is warped
+     */
+    private final double param;
+
+    /**
+     * The type of noise used for the offsets
+     */
+    private final CellNoiseType warpType;
+
+    /**
+     * The parameter of the noise used for the offsets
+     */
+    private final double warpParam;
+
+    /**
+     * The frequency of the offset noise relative to the sample positions
+     */
+    private final double frequency;
+
+    /**
+     * The maximum distance a sample is moved along each axis
+     */
+    private final double amplitude;
+
+    /**
+     * The offsets are computed every this many samples along each axis and interpolated in between
+     */
+    private final int resolution;
+
+    /**
+     * Creates a domain warp that computes the offsets at every sample
+     * @param type The type of noise that is warped
+     * @param param The parameter of the noise that is warped, ignored by types that don't take one
+     * @param warpType The type of noise used for the offsets
+     * @param warpParam The parameter of the noise used for the offsets, ignored by types that don't take one
+     * @param frequency The frequency of the offset noise relative to the sample positions
+     * @param amplitude The maximum distance a sample is moved along each axis
+     */
+    public DomainWarp(CellNoiseType type, double param, CellNoiseType warpType, double warpParam, double frequency, double amplitude){
+        this(type, param, warpType, warpParam, frequency, amplitude, 1);
+    }
+
+    /**
+     * Creates a domain warp
+     * @param type The type of noise that is warped
+     * @param param The parameter of the noise that is warped, ignored by types that don't take one
+     * @param warpType The type of noise used for the offsets
+     * @param warpParam The parameter of the noise used for the offsets, ignored by types that don't take one
+     * @param frequency The frequency of the offset noise relative to the sample positions
+     * @param amplitude The maximum distance a sample is moved along each axis
+     * @param resolution The offsets are computed every this many samples along each axis and interpolated in between (1 computes them at every sample)
+     */
+    public DomainWarp(CellNoiseType type, double param, CellNoiseType warpType, double warpParam, double frequency, double amplitude, int resolution){
+        if(resolution < 1){
+            throw new Error("Resolution must be positive! " + resolution);
+        }
+        this.type = type;
+        this.param = param;
+        this.warpType = warpType;
+        this.warpParam = warpParam;
+        this.frequency = frequency;
+        this.amplitude = amplitude;
+        this.resolution = resolution;
+    }
+
+    /**
+     * Samples the warped noise at a single point
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The noise value
+     */
+    public double sample(double x, double y, double z){
+        double warpX = x + this.offset(0, x, y, z);
+        double warpY = y + this.offset(1, x, y, z);
+        double warpZ = z + this.offset(2, x, y, z);
+        return NoiseUtils.sample(type, param, warpX, warpY, warpZ);
+    }
+
+    /**
+     * Fills a grid with the warped noise.
+     * The sample at (x,y,z) is taken at (originX + x * step, originY + y * step, originZ + z * step) before warping and stored at index x + dimX * (y + dimY * z).
+     * @param out The output array
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param step The distance between neighboring samples
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     */
+    public void fillGrid(double[] out, double originX, double originY, double originZ, double step, int dimX, int dimY, int dimZ){
+        NoiseUtils.checkGrid(out.length, dimX, dimY, dimZ);
+        int count = dimX * dimY * dimZ;
+        double[] xs = new double[count];
+        double[] ys = new double[count];
+        double[] zs = new double[count];
+        this.warpGrid(xs, ys, zs, originX, originY, originZ, step, dimX, dimY, dimZ);
+        NoiseUtils.sampleBatch(type, param, xs, ys, zs, out, count);
+    }
+
+    /**
+     * Computes the warped positions of a grid without sampling the warped noise, ie to feed them to a {@link NoiseProgram}.
+     * The position of the sample at (x,y,z) is (originX + x * step, originY + y * step, originZ + z * step) before warping and is stored at index x + dimX * (y + dimY * z).
+     * @param xs The array to store the warped x coordinates in
+     * @param ys The array to store the warped y coordinates in
+     * @param zs The array to store the warped z coordinates in
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param step The distance between neighboring samples
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     */
+    public void warpGrid(double[] xs, double[] ys, double[] zs, double originX, double originY, double originZ, double step, int dimX, int dimY, int dimZ){
+        NoiseUtils.checkGrid(xs.length, dimX, dimY, dimZ);
+        NoiseUtils.checkGrid(ys.length, dimX, dimY, dimZ);
+        NoiseUtils.checkGrid(zs.length, dimX, dimY, dimZ);
+        if(dimX == 0 || dimY == 0 || dimZ == 0){
+            return;
+        }
+
+        //dimensions of the lattice the offsets are computed on
+        int latticeX = NoiseUtils.latticeDim(dimX, resolution);
+        int latticeY = NoiseUtils.latticeDim(dimY, resolution);
+        int latticeZ = NoiseUtils.latticeDim(dimZ, resolution);
+        int latticeCount = latticeX * latticeY * latticeZ;
+        double latticeStep = step * resolution * frequency;
+
+        double[] lattice = new double[latticeCount];
+        double[][] outputs = new double[][]{ xs, ys, zs };
+        for(int axis = 0; axis < 3; axis++){
+            double[] shift = AXIS_SHIFTS[axis];
+            NoiseUtils.fillGrid(
+                warpType, warpParam, lattice,
+                originX * frequency + shift[0], originY * frequency + shift[1], originZ * frequency + shift[2],
+                latticeStep,
+                latticeX, latticeY, latticeZ
+            );
+            //convert the noise to an offset once per lattice point rather than once per sample
+            for(int i = 0; i < latticeCount; i++){
+                lattice[i] = amplitude * (2.0 * lattice[i] - 1.0);
+            }
+            double[] axisOut = outputs[axis];
+            if(resolution == 1){
+                System.arraycopy(lattice, 0, axisOut, 0, latticeCount);
+            } else {
+                NoiseUtils.upsampleGrid(lattice, latticeX, latticeY, latticeZ, resolution, resolution, resolution, axisOut, null, dimX, dimY, dimZ);
+            }
+        }
+
+        //add the unwarped positions
+        int i = 0;
+        for(int z = 0; z < dimZ; z++){
+            double posZ = originZ + z * step;
+            for(int y = 0; y < dimY; y++){
+                double posY = originY + y * step;
+                for(int x = 0; x < dimX; x++){
+                    xs[i] = xs[i] + (originX + x * step);
+                    ys[i] = ys[i] + posY;
+                    zs[i] = zs[i] + posZ;
+                    i++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the offset along an axis at a single point
+     * @param axis The axis (0=x, 1=y, 2=z)
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The offset
+     */
+    private double offset(int axis, double x, double y, double z){
+        double[] shift = AXIS_SHIFTS[axis];
+        double noise = NoiseUtils.sample(warpType, warpParam, x * frequency + shift[0], y * frequency + shift[1], z * frequency + shift[2]);
+        return amplitude * (2.0 * noise - 1.0);
+    }
+
+    /**
+     * Gets the type of noise that is warped
+     * @return The type of noise
+     */
+    public CellNoiseType getType(){
+        return type;
+    }
+
+    /**
+     * Gets the type of noise used for the offsets
+     * @return The type of noise
+     */
+    public CellNoiseType getWarpType(){
+        return warpType;
+    }
+
+    /**
+     * Gets the number of samples between the points the offsets are computed at
+     * @return The resolution
+     */
+    public int getResolution(){
+        return resolution;
+    }
+
+}
@@ -0,0 +1,357 @@
+package io.github.studiorailgun;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of the feature points of voronoi cells.
+ * The cache is split into independently locked segments, each of which evicts with the clock (second-chance) algorithm.
+ * The points are computed with the random backend the cache was created with, a cache never changes backend,
+ * so after changing the backend with {@link RandUtils#setBackend(RandUtils.RandBackend)} create a new cache for the new backend's points.
+ */
+public class FeaturePointCache {
+
+    /**
+     * The minimum number of points held by a single segment
+     */
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    /**
+     * The segments of the cache
+     */
+    private final Segment[] segments;
+
+    /**
+     * Mask used to pick a segment from a hash
+     */
+    private final int segmentMask;
+
+    /**
+     * The total number of points the cache can hold
+     */
+    private final int capacity;
+
+    /**
+     * The number of lookups that were served from the cache
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The number of lookups that had to compute the point
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The random backend the points are computed with
+     */
+    private final RandUtils.RandBackend backend;
+
+    /**
+     * Creates a feature point cache whose points are computed with the current random backend
+     * @param capacity The maximum number of points to hold
+     */
+    public FeaturePointCache(int capacity){
+        this(capacity, RandUtils.getBackend());
+    }
+
+    /**
+     * Creates a feature point cache
+     * @param capacity The maximum number of points to hold
+     * @param backend The random backend the points are computed with
+     */
+    public FeaturePointCache(int capacity, RandUtils.RandBackend backend){
+        if(capacity < 1){
+            throw new Error("Capacity must be positive! " + capacity);
+        }
+        int segmentCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4));
+        while(segmentCount > 1 && capacity / segmentCount < MIN_SEGMENT_CAPACITY){
+            segmentCount = segmentCount / 2;
+        }
+        int segmentCapacity = (capacity + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for(int i = 0; i < segmentCount; i++){
+            this.segments[i] = new Segment(segmentCapacity);
+        }
+        this.segmentMask = segmentCount - 1;
+        this.capacity = segmentCapacity * segmentCount;
+        this.backend = backend;
+    }
+
+    /**
+     * Gets the feature point of a cell, computing it if it is not cached.
+     * The point is identical to the one computed by {@link RandUtils#rand(RandUtils.RandBackend, double, double, double, double)} with the cache's backend and w=0,1,2.
+     * @param x The x coordinate of the cell
+     * @param y The y coordinate of the cell
+     * @param z The z coordinate of the cell
+     * @param out The array to store the point in
+     * @param offset The offset into the array to store the x,y,z components of the point at
+     */
+    public void getPoint(long x, long y, long z, double[] out, int offset){
+        long hash = FeaturePointCache.hash(x, y, z);
+        Segment segment = this.segments[(int)(hash >>> 32) & this.segmentMask];
+        if(segment.get(x, y, z, (int)hash, out, offset)){
+            this.hits.increment();
+            return;
+        }
+        this.misses.increment();
+        double p_x = RandUtils.rand(this.backend, x, y, z, 0);
+        double p_y = RandUtils.rand(this.backend, x, y, z, 1);
+        double p_z = RandUtils.rand(this.backend, x, y, z, 2);
+        out[offset] = p_x;
+        out[offset + 1] = p_y;
+        out[offset + 2] = p_z;
+        segment.put(x, y, z, (int)hash, p_x, p_y, p_z);
+    }
+
+    /**
+     * Gets the number of lookups that were served from the cache
+     * @return The number of hits
+     */
+    public long getHits(){
+        return this.hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that had to compute the point
+     * @return The number of misses
+     */
+    public long getMisses(){
+        return this.misses.sum();
+    }
+
+    /**
+     * Gets the random backend the points are computed with
+     * @return The backend
+     */
+    public RandUtils.RandBackend getBackend(){
+        return this.backend;
+    }
+
+    /**
+     * Gets the maximum number of points the cache can hold
+     * @return The capacity
+     */
+    public int getCapacity(){
+        return this.capacity;
+    }
+
+    /**
+     * Removes all points from the cache and resets the counters
+     */
+    public void clear(){
+        for(Segment segment : this.segments){
+            segment.clear();
+        }
+        this.hits.reset();
+        this.misses.reset();
+    }
+
+    /**
+     * Hashes the coordinates of a cell
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The hash
+     */
+    private static long hash(long x, long y, long z){
+        return HashUtils.hash(x, y, z);
+    }
+
+    /**
+     * A single locked segment of the cache
+     */
+    private static class Segment {
+
+        /**
+         * Marks an empty entry in the index table
+         */
+        private static final int EMPTY = -1;
+
+        /**
+         * The x coordinates of the cells in each slot
+         */
+        private final long[] keyX;
+
+        /**
+         * The y coordinates of the cells in each slot
+         */
+        private final long[] keyY;
+
+        /**
+         * The z coordinates of the cells in each slot
+         */
+        private final long[] keyZ;
+
+        /**
+         * The hashes of the cells in each slot
+         */
+        private final int[] keyHash;
+
+        /**
+         * The feature points of each slot (interleaved x,y,z)
+         */
+        private final double[] points;
+
+        /**
+         * The reference bits of each slot
+         */
+        private final boolean[] referenced;
+
+        /**
+         * Open addressing table mapping hashes to slots
+         */
+        private final int[] index;
+
+        /**
+         * Mask for the index table
+         */
+        private final int indexMask;
+
+        /**
+         * The number of occupied slots
+         */
+        private int size = 0;
+
+        /**
+         * The hand of the clock
+         */
+        private int hand = 0;
+
+        /**
+         * Creates a segment
+         * @param capacity The number of slots in the segment
+         */
+        private Segment(int capacity){
+            this.keyX = new long[capacity];
+            this.keyY = new long[capacity];
+            this.keyZ = new long[capacity];
+            this.keyHash = new int[capacity];
+            this.points = new double[capacity * 3];
+            this.referenced = new boolean[capacity];
+            int indexSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+            this.index = new int[indexSize];
+            this.indexMask = indexSize - 1;
+            Arrays.fill(this.index, EMPTY);
+        }
+
+        /**
+         * Looks up a cell
+         * @param x The x coordinate
+         * @param y The y coordinate
+         * @param z The z coordinate
+         * @param hash The hash of the cell
+         * @param out The array to store the point in
+         * @param offset The offset into the array
+         * @return true if the cell was found, false otherwise
+         */
+        private synchronized boolean get(long x, long y, long z, int hash, double[] out, int offset){
+            int slot = this.find(x, y, z, hash);
+            if(slot == EMPTY){
+                return false;
+            }
+            this.referenced[slot] = true;
+            out[offset] = this.points[slot * 3];
+            out[offset + 1] = this.points[slot * 3 + 1];
+            out[offset + 2] = this.points[slot * 3 + 2];
+            return true;
+        }
+
+        /**
+         * Stores a cell, evicting another if the segment is full
+         * @param x The x coordinate
+         * @param y The y coordinate
+         * @param z The z coordinate
+         * @param hash The hash of the cell
+         * @param p_x The x component of the point
+         * @param p_y The y component of the point
+         * @param p_z The z component of the point
+         */
+        private synchronized void put(long x, long y, long z, int hash, double p_x, double p_y, double p_z){
+            //another thread may have stored it in the meantime
+            if(this.find(x, y, z, hash) != EMPTY){
+                return;
+            }
+            int slot;
+            if(this.size < this.keyX.length){
+                slot = this.size;
+                this.size++;
+            } else {
+                //advance the clock until a slot without a second chance is found
+                while(this.referenced[this.hand]){
+                    this.referenced[this.hand] = false;
+                    this.hand = (this.hand + 1) % this.keyX.length;
+                }
+                slot = this.hand;
+                this.hand = (this.hand + 1) % this.keyX.length;
+                this.removeIndex(slot);
+            }
+            this.keyX[slot] = x;
+            this.keyY[slot] = y;
+            this.keyZ[slot] = z;
+            this.keyHash[slot] = hash;
+            this.points[slot * 3] = p_x;
+            this.points[slot * 3 + 1] = p_y;
+            this.points[slot * 3 + 2] = p_z;
+            this.referenced[slot] = false;
+            int pos = hash & this.indexMask;
+            while(this.index[pos] != EMPTY){
+                pos = (pos + 1) & this.indexMask;
+            }
+            this.index[pos] = slot;
+        }
+
+        /**
+         * Finds the slot holding a cell
+         * @param x The x coordinate
+         * @param y The y coordinate
+         * @param z The z coordinate
+         * @param hash The hash of the cell
+         * @return The slot, or EMPTY if the cell is not stored
+         */
+        private int find(long x, long y, long z, int hash){
+            int pos = hash & this.indexMask;
+            int slot;
+            while((slot = this.index[pos]) != EMPTY){
+                if(this.keyHash[slot] == hash && this.keyX[slot] == x && this.keyY[slot] == y && this.keyZ[slot] == z){
+                    return slot;
+                }
+                pos = (pos + 1) & this.indexMask;
+            }
+            return EMPTY;
+        }
+
+        /**
+         * Removes a slot from the index table, shifting back the entries that follow it so no tombstones are left
+         * @param slot The slot
+         */
+        private void removeIndex(int slot){
+            int pos = this.keyHash[slot] & this.indexMask;
+            while(this.index[pos] != slot){
+                pos = (pos + 1) & this.indexMask;
+            }
+            int next = (pos + 1) & this.indexMask;
+            while(this.index[next] != EMPTY){
+                int home = this.keyHash[this.index[next]] & this.indexMask;
+                //move the entry back if its home is not between the hole and its current position
+                if(((next - home) & this.indexMask) >= ((next - pos) & this.indexMask)){
+                    this.index[pos] = this.index[next];
+                    pos = next;
+                }
+                next = (next + 1) & this.indexMask;
+            }
+            this.index[pos] = EMPTY;
+        }
+
+        /**
+         * Removes all cells from the segment
+         */
+        private synchronized void clear(){
+            Arrays.fill(this.index, EMPTY);
+            Arrays.fill(this.referenced, false);
+            this.size = 0;
+            this.hand = 0;
+        }
+
+    }
+
+}
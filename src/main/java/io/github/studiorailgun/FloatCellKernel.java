@@ -0,0 +1,75 @@
+package io.github.studiorailgun;
+
+/**
+ * The 27-cell distance pass of {@link NoiseUtils#sampleBatchFloat(NoiseUtils.CellNoiseType, double, double[], double[], double[], float[], int)},
+ * evaluated for a block of samples at once.
+ * Feature points are laid out cell major, so the point of cell i for sample lane is at [i * BLOCK + lane],
+ * which lets an implementation evaluate every lane of a cell with one vector operation.
+ * The implementation uses the jdk.incubator.vector API, so it is compiled separately from the rest of the library and added to the jar as is.
+ * It is only loaded (reflectively) when the module is present (ie the program is run with --add-modules jdk.incubator.vector),
+ * otherwise the batch functions fall back to their scalar loops.
+ */
+interface FloatCellKernel {
+
+    /**
+     * The number of samples in a block
+     */
+    static final int BLOCK = 16;
+
+    /**
+     * The squared distance the nearest distances start at, larger than any distance within a 3x3x3 neighborhood
+     */
+    static final float FAR_DIST_SQ = 100.0f;
+
+    /**
+     * The name of the vector implementation
+     */
+    static final String VECTOR_CLASS = "io.github.studiorailgun.VectorFloatCellKernel";
+
+    /**
+     * Finds the three smallest squared distances from each sample to the feature points
+     * @param pointX The x coordinates of the feature points relative to each sample's cell
+     * @param pointY The y coordinates of the feature points relative to each sample's cell
+     * @param pointZ The z coordinates of the feature points relative to each sample's cell
+     * @param x_r The x coordinates of the samples within their cells
+     * @param y_r The y coordinates of the samples within their cells
+     * @param z_r The z coordinates of the samples within their cells
+     * @param cells The number of cells
+     * @param min1 Filled with the smallest squared distance of each sample
+     * @param min2 Filled with the second smallest squared distance of each sample
+     * @param min3 Filled with the third smallest squared distance of each sample
+     */
+    public void nearest(float[] pointX, float[] pointY, float[] pointZ, float[] x_r, float[] y_r, float[] z_r, int cells, float[] min1, float[] min2, float[] min3);
+
+    /**
+     * Computes the smooth minimum of the distances from each sample to the feature points.
+     * The sum is taken relative to the closest point, so it is at least 1 and can't underflow.
+     * @param falloff The falloff of the smooth minimum
+     * @param cutoff Points whose term is below exp(-cutoff) are skipped, pass infinity to sum every point
+     * @param pointX The x coordinates of the feature points relative to each sample's cell
+     * @param pointY The y coordinates of the feature points relative to each sample's cell
+     * @param pointZ The z coordinates of the feature points relative to each sample's cell
+     * @param x_r The x coordinates of the samples within their cells
+     * @param y_r The y coordinates of the samples within their cells
+     * @param z_r The z coordinates of the samples within their cells
+     * @param cells The number of cells
+     * @param out Filled with the value of each sample
+     */
+    public void smooth(float falloff, float cutoff, float[] pointX, float[] pointY, float[] pointZ, float[] x_r, float[] y_r, float[] z_r, int cells, float[] out);
+
+    /**
+     * Loads the vector implementation if the vector module is present and the vector classes are on the classpath
+     * @return The kernel, or null if it can't be loaded
+     */
+    static FloatCellKernel load(){
+        if(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()){
+            try {
+                return (FloatCellKernel)Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+            } catch(ReflectiveOperationException | LinkageError e){
+                //the vector classes are missing (ie a build directory without them), the caller falls back to scalar loops
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,256 @@
+package io.github.studiorailgun;
+
+import io.github.studiorailgun.NoiseUtils.CellNoiseType;
+
+/**
+ * Sums octaves of a cellular noise into a fractal noise.
+ * Each octave samples the noise at a frequency multiplied by the lacunarity and an amplitude multiplied by the gain.
+ * The noise values are assumed to lie roughly within [0,1].
+ */
+public class FractalNoise {
+
+    /**
+     * The ways octaves can be shaped before being summed
+     */
+    public static enum FractalMode {
+        /**
+         * Fractal brownian motion, sums the raw noise values
+         */
+        FBM,
+        /**
+         * Sums 1 - |2n - 1|, producing sharp ridges where the noise crosses 0.5
+         */
+        RIDGED,
+        /**
+         * Sums |2n - 1|, producing rounded billows with creases where the noise crosses 0.5
+         */
+        BILLOW,
+    }
+
+    /**
+     * The type of noise to sum
+     */
+    private final CellNoiseType type;
+
+    /**
+     * The parameter of the noise
+     */
+    private final double param;
+
+    /**
+     * The way octaves are shaped
+     */
+    private final FractalMode mode;
+
+    /**
+     * The number of octaves
+     */
+    private final int octaves;
+
+    /**
+     * The frequency multiplier between octaves
+     */
+    private final double lacunarity;
+
+    /**
+     * The amplitude multiplier between octaves
+     */
+    private final double gain;
+
+    /**
+     * Octaves are skipped once the sum of the remaining amplitudes falls below this
+     */
+    private final double tolerance;
+
+    /**
+     * The number of octaves left after skipping those below the tolerance
+     */
+    private final int evaluatedOctaves;
+
+    /**
+     * Creates a fractal noise that evaluates every octave
+     * @param type The type of noise to sum
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param mode The way octaves are shaped
+     * @param octaves The number of octaves
+     * @param lacunarity The frequency multiplier between octaves (usually 2)
+     * @param gain The amplitude multiplier between octaves (usually 0.5)
+     */
+    public FractalNoise(CellNoiseType type, double param, FractalMode mode, int octaves, double lacunarity, double gain){
+        this(type, param, mode, octaves, lacunarity, gain, 0);
+    }
+
+    /**
+     * Creates a fractal noise
+     * @param type The type of noise to sum
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param mode The way octaves are shaped
+     * @param octaves The number of octaves
+     * @param lacunarity The frequency multiplier between octaves (usually 2)
+     * @param gain The amplitude multiplier between octaves (usually 0.5)
+     * @param tolerance Octaves are skipped once the sum of the remaining amplitudes falls below this
+     */
+    public FractalNoise(CellNoiseType type, double param, FractalMode mode, int octaves, double lacunarity, double gain, double tolerance){
+        if(octaves < 1){
+            throw new Error("Must have at least one octave! " + octaves);
+        }
+        if(tolerance < 0){
+            throw new Error("Tolerance must be non-negative! " + tolerance);
+        }
+        this.type = type;
+        this.param = param;
+        this.mode = mode;
+        this.octaves = octaves;
+        this.lacunarity = lacunarity;
+        this.gain = gain;
+        this.tolerance = tolerance;
+        this.evaluatedOctaves = this.countEvaluatedOctaves();
+    }
+
+    /**
+     * Samples the fractal noise at a single point
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The noise value
+     */
+    public double sample(double x, double y, double z){
+        int octaveCount = this.evaluatedOctaves;
+        double frequency = 1.0;
+        double amplitude = 1.0;
+        double rVal = 0;
+        for(int i = 0; i < octaveCount; i++){
+            double noise = NoiseUtils.sample(type, param, x * frequency, y * frequency, z * frequency);
+            rVal = rVal + this.shape(noise) * amplitude;
+            frequency = frequency * lacunarity;
+            amplitude = amplitude * gain;
+        }
+        return rVal;
+    }
+
+    /**
+     * Fills a grid with the fractal noise, evaluating each octave over the whole grid with {@link NoiseUtils#fillGrid(CellNoiseType, double, double[], double, double, double, double, int, int, int)}.
+     * The sample at (x,y,z) is taken at (originX + x * step, originY + y * step, originZ + z * step) and stored at index x + dimX * (y + dimY * z).
+     * The values are identical to calling {@link FractalNoise#sample(double, double, double)} for each sample.
+     * @param out The output array
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param step The distance between neighboring samples
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     */
+    public void fillGrid(double[] out, double originX, double originY, double originZ, double step, int dimX, int dimY, int dimZ){
+        NoiseUtils.checkGrid(out.length, dimX, dimY, dimZ);
+        int count = dimX * dimY * dimZ;
+        int octaveCount = this.evaluatedOctaves;
+        double[] octave = new double[count];
+        double frequency = 1.0;
+        double amplitude = 1.0;
+        for(int i = 0; i < count; i++){
+            out[i] = 0;
+        }
+        for(int o = 0; o < octaveCount; o++){
+            //positions are scaled after stepping, rounding the same way as sample() does
+            NoiseUtils.fillGrid(type, param, octave, null, originX, originY, originZ, step, step, step, dimX, dimY, 0, dimX, 0, dimY, 0, dimZ, frequency);
+            for(int i = 0; i < count; i++){
+                out[i] = out[i] + this.shape(octave[i]) * amplitude;
+            }
+            frequency = frequency * lacunarity;
+            amplitude = amplitude * gain;
+        }
+    }
+
+    /**
+     * Gets the number of octaves that are evaluated after skipping those below the tolerance
+     * @return The number of octaves
+     */
+    public int getEvaluatedOctaves(){
+        return evaluatedOctaves;
+    }
+
+    /**
+     * Counts the octaves that remain after skipping those below the tolerance
+     * @return The number of octaves
+     */
+    private int countEvaluatedOctaves(){
+        if(tolerance <= 0){
+            return octaves;
+        }
+        //sum of the amplitudes of every octave from each one onwards
+        double[] remaining = new double[octaves + 1];
+        double amplitude = 1.0;
+        for(int i = 0; i < octaves; i++){
+            remaining[i] = Math.abs(amplitude);
+            amplitude = amplitude * gain;
+        }
+        for(int i = octaves - 1; i >= 0; i--){
+            remaining[i] = remaining[i] + remaining[i + 1];
+        }
+        int count = octaves;
+        while(count > 1 && remaining[count - 1] < tolerance){
+            count--;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the sum of the amplitudes of the evaluated octaves, which bounds the output for noise values within [0,1]
+     * @return The sum of the amplitudes
+     */
+    public double getAmplitudeSum(){
+        int octaveCount = this.evaluatedOctaves;
+        double amplitude = 1.0;
+        double rVal = 0;
+        for(int i = 0; i < octaveCount; i++){
+            rVal = rVal + Math.abs(amplitude);
+            amplitude = amplitude * gain;
+        }
+        return rVal;
+    }
+
+    /**
+     * Shapes a single octave's noise value
+     * @param noise The noise value
+     * @return The shaped value
+     */
+    private double shape(double noise){
+        switch(mode){
+            case RIDGED: {
+                return 1.0 - Math.abs(2.0 * noise - 1.0);
+            }
+            case BILLOW: {
+                return Math.abs(2.0 * noise - 1.0);
+            }
+            default: {
+                return noise;
+            }
+        }
+    }
+
+    /**
+     * Gets the type of noise that is summed
+     * @return The type of noise
+     */
+    public CellNoiseType getType(){
+        return type;
+    }
+
+    /**
+     * Gets the way octaves are shaped
+     * @return The mode
+     */
+    public FractalMode getMode(){
+        return mode;
+    }
+
+    /**
+     * Gets the number of octaves
+     * @return The number of octaves
+     */
+    public int getOctaves(){
+        return octaves;
+    }
+
+}
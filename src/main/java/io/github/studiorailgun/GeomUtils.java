@@ -444,84 +444,96 @@ public class GeomUtils {
      * @return the distance
      */
     public static double getMinSquaredDistanceAABBUnrolled(int posX, int posY, int posZ, int minX, int minY, int minZ, int maxX, int maxY, int maxZ){
-        if(posX > minX && posX < maxX){
-            if(posY > minY && posY < maxY){
-                if(posZ > minZ && posZ < maxZ){
-                    return 0;
-                } else if(Math.abs(posZ - minZ) < Math.abs(posZ - maxZ)){
-                    return (posZ - minZ) * (posZ - minZ);
-                } else {
-                    return (posZ - maxZ) * (posZ - maxZ);
-                }
-            } else if(Math.abs(posY - minY) < Math.abs(posY - maxY)){
-                if(posZ > minZ && posZ < maxZ){
-                    return (posY - minY) * (posY - minY);
-                } else if(Math.abs(posZ - minZ) < Math.abs(posZ - maxZ)){
-                    return (posY - minY) * (posY - minY) + (posZ - minZ) * (posZ - minZ);
-                } else {
-                    return (posY - minY) * (posY - minY) + (posZ - maxZ) * (posZ - maxZ);
-                }
-            } else {
-                if(posZ > minZ && posZ < maxZ){
-                    return (posY - maxY) * (posY - maxY);
-                } else if(Math.abs(posZ - minZ) < Math.abs(posZ - maxZ)){
-                    return (posY - maxY) * (posY - maxY) + (posZ - minZ) * (posZ - minZ);
-                } else {
-                    return (posY - maxY) * (posY - maxY) + (posZ - maxZ) * (posZ - maxZ);
-                }
-            }
-        } else if(Math.abs(posX - minX) < Math.abs(posX - maxX)){
-            if(posY > minY && posY < maxY){
-                if(posZ > minZ && posZ < maxZ){
-                    return (posX - minX) * (posX - minX);
-                } else if(Math.abs(posZ - minZ) < Math.abs(posZ - maxZ)){
-                    return (posX - minX) * (posX - minX) + (posZ - minZ) * (posZ - minZ);
-                } else {
-                    return (posX - minX) * (posX - minX) + (posZ - maxZ) * (posZ - maxZ);
-                }
-            } else if(Math.abs(posY - minY) < Math.abs(posY - maxY)){
-                if(posZ > minZ && posZ < maxZ){
-                    return (posX - minX) * (posX - minX);
-                } else if(Math.abs(posZ - minZ) < Math.abs(posZ - maxZ)){
-                    return (posX - minX) * (posX - minX) + (posY - minY) * (posY - minY) + (posZ - minZ) * (posZ - minZ);
-                } else {
-                    return (posX - minX) * (posX - minX) + (posY - minY) * (posY - minY) + (posZ - maxZ) * (posZ - maxZ);
-                }
-            } else {
-                if(posZ > minZ && posZ < maxZ){
-                    return (posX - minX) * (posX - minX) + (posY - maxY) * (posY - maxY);
-                } else if(Math.abs(posZ - minZ) < Math.abs(posZ - maxZ)){
-                    return (posX - minX) * (posX - minX) + (posY - maxY) * (posY - maxY) + (posZ - minZ) * (posZ - minZ);
-                } else {
-                    return (posX - minX) * (posX - minX) + (posY - maxY) * (posY - maxY) + (posZ - maxZ) * (posZ - maxZ);
-                }
-            }
-        } else {
-            if(posY > minY && posY < maxY){
-                if(posZ > minZ && posZ < maxZ){
-                    return (posX - maxX) * (posX - maxX);
-                } else if(Math.abs(posZ - minZ) < Math.abs(posZ - maxZ)){
-                    return (posX - maxX) * (posX - maxX) + (posZ - minZ) * (posZ - minZ);
-                } else {
-                    return (posX - maxX) * (posX - maxX) + (posZ - maxZ) * (posZ - maxZ);
-                }
-            } else if(Math.abs(posY - minY) < Math.abs(posY - maxY)){
-                if(posZ > minZ && posZ < maxZ){
-                    return (posX - maxX) * (posX - maxX);
-                } else if(Math.abs(posZ - minZ) < Math.abs(posZ - maxZ)){
-                    return (posX - maxX) * (posX - maxX) + (posY - minY) * (posY - minY) + (posZ - minZ) * (posZ - minZ);
-                } else {
-                    return (posX - maxX) * (posX - maxX) + (posY - minY) * (posY - minY) + (posZ - maxZ) * (posZ - maxZ);
-                }
-            } else {
-                if(posZ > minZ && posZ < maxZ){
-                    return (posX - maxX) * (posX - maxX) + (posY - maxY) * (posY - maxY);
-                } else if(Math.abs(posZ - minZ) < Math.abs(posZ - maxZ)){
-                    return (posX - maxX) * (posX - maxX) + (posY - maxY) * (posY - maxY) + (posZ - minZ) * (posZ - minZ);
-                } else {
-                    return (posX - maxX) * (posX - maxX) + (posY - maxY) * (posY - maxY) + (posZ - maxZ) * (posZ - maxZ);
-                }
-            }
+        //the distance along each axis is how far the point is past whichever face it is outside of (zero if it is between them).
+        //the differences are taken in long, a difference of two ints can overflow an int.
+        double dx = Math.max(0, Math.max((long)minX - posX, (long)posX - maxX));
+        double dy = Math.max(0, Math.max((long)minY - posY, (long)posY - maxY));
+        double dz = Math.max(0, Math.max((long)minZ - posZ, (long)posZ - maxZ));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Gets the minimum squared distance from a point to an axis aligned cube
+     * @param posX the x position to check against
+     * @param posY the y position to check against
+     * @param posZ the z position to check against
+     * @param minX the x minimum of the AABB
+     * @param minY the y minimum of the AABB
+     * @param minZ the z minimum of the AABB
+     * @param maxX the x maximum of the AABB
+     * @param maxY the y maximum of the AABB
+     * @param maxZ the z maximum of the AABB
+     * @return the distance
+     */
+    public static double getMinSquaredDistanceAABB(double posX, double posY, double posZ, double minX, double minY, double minZ, double maxX, double maxY, double maxZ){
+        double dx = Math.max(0, Math.max(minX - posX, posX - maxX));
+        double dy = Math.max(0, Math.max(minY - posY, posY - maxY));
+        double dz = Math.max(0, Math.max(minZ - posZ, posZ - maxZ));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Gets the minimum squared distance from a point to each of a batch of axis aligned cubes.
+     * The cubes are stored as columns (the i-th cube spans minX[i] to maxX[i] etc) and the loop has no branches, so the JIT can vectorize it.
+     * @param posX the x position to check against
+     * @param posY the y position to check against
+     * @param posZ the z position to check against
+     * @param minX the x minimums of the AABBs
+     * @param minY the y minimums of the AABBs
+     * @param minZ the z minimums of the AABBs
+     * @param maxX the x maximums of the AABBs
+     * @param maxY the y maximums of the AABBs
+     * @param maxZ the z maximums of the AABBs, each must be at least the corresponding minimum
+     * @param out The array to store the distances in
+     * @param count The number of AABBs
+     */
+    public static void getMinSquaredDistancesAABB(int posX, int posY, int posZ, int[] minX, int[] minY, int[] minZ, int[] maxX, int[] maxY, int[] maxZ, double[] out, int count){
+        for(int i = 0; i < count; i++){
+            //the differences are taken in long, a difference of two ints can overflow an int
+            long belowX = (long)minX[i] - posX;
+            long belowY = (long)minY[i] - posY;
+            long belowZ = (long)minZ[i] - posZ;
+            long aboveX = (long)posX - maxX[i];
+            long aboveY = (long)posY - maxY[i];
+            long aboveZ = (long)posZ - maxZ[i];
+            //at most one of below/above is positive, so the distance is the sum of their positive parts.
+            //v & ~(v >> 63) is the positive part without a branch or a long max, which keeps the loop vectorized.
+            double dx = (belowX & ~(belowX >> 63)) + (aboveX & ~(aboveX >> 63));
+            double dy = (belowY & ~(belowY >> 63)) + (aboveY & ~(aboveY >> 63));
+            double dz = (belowZ & ~(belowZ >> 63)) + (aboveZ & ~(aboveZ >> 63));
+            out[i] = dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    /**
+     * Gets the minimum squared distance from a point to each of a batch of axis aligned cubes.
+     * The cubes are stored as columns (the i-th cube spans minX[i] to maxX[i] etc) and the loop has no branches, so the JIT can vectorize it.
+     * @param posX the x position to check against
+     * @param posY the y position to check against
+     * @param posZ the z position to check against
+     * @param minX the x minimums of the AABBs
+     * @param minY the y minimums of the AABBs
+     * @param minZ the z minimums of the AABBs
+     * @param maxX the x maximums of the AABBs
+     * @param maxY the y maximums of the AABBs
+     * @param maxZ the z maximums of the AABBs, each must be at least the corresponding minimum
+     * @param out The array to store the distances in
+     * @param count The number of AABBs
+     */
+    public static void getMinSquaredDistancesAABB(double posX, double posY, double posZ, double[] minX, double[] minY, double[] minZ, double[] maxX, double[] maxY, double[] maxZ, double[] out, int count){
+        for(int i = 0; i < count; i++){
+            double belowX = minX[i] - posX;
+            double belowY = minY[i] - posY;
+            double belowZ = minZ[i] - posZ;
+            double aboveX = posX - maxX[i];
+            double aboveY = posY - maxY[i];
+            double aboveZ = posZ - maxZ[i];
+            //at most one of below/above is positive, so the distance is the sum of their positive parts ((v + |v|) / 2 is exact).
+            //unlike Math.max on doubles, Math.abs vectorizes.
+            double dx = (belowX + Math.abs(belowX)) * 0.5 + (aboveX + Math.abs(aboveX)) * 0.5;
+            double dy = (belowY + Math.abs(belowY)) * 0.5 + (aboveY + Math.abs(aboveY)) * 0.5;
+            double dz = (belowZ + Math.abs(belowZ)) * 0.5 + (aboveZ + Math.abs(aboveZ)) * 0.5;
+            out[i] = dx * dx + dy * dy + dz * dz;
         }
     }
 
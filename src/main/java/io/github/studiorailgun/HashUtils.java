@@ -6,6 +6,21 @@ package io.github.studiorailgun;
  */
 public class HashUtils {
 
+    /**
+     * Odd multipliers applied to each number before they are combined
+     */
+    private static final long MIX_A = 0x9E3779B97F4A7C15L;
+    private static final long MIX_B = 0xC2B2AE3D27D4EB4FL;
+    private static final long MIX_C = 0x165667B19E3779F9L;
+    private static final long MIX_D = 0x87C37B91114253D5L;
+
+    /**
+     * Seeds that separate the hashes of different numbers of inputs
+     */
+    private static final long HASH_SEED_2 = 0x27D4EB2F165667C5L;
+    private static final long HASH_SEED_3 = 0x4CF5AD432745937FL;
+    private static final long HASH_SEED_4 = 0x52DCE729DA3ED6B5L;
+
     /**
      * Computes the cantor pairing of two numbes
      * @param a The first number
@@ -38,5 +53,136 @@ public class HashUtils {
     public static long cantorHash(long a, long b, long c, long d){
         return HashUtils.cantor(a, HashUtils.cantor(b, HashUtils.cantor(c,d)));
     }
+
+    /**
+     * Hashes two numbers by multiplying each by an odd constant, rotating them apart and mixing the combination with {@link #mix64(long)}.
+     * Unlike {@link #cantor(long, long)} the hash doesn't overflow into collisions for large or negative numbers; changing any single number always changes the hash.
+     * @param a The first number
+     * @param b The second number
+     * @return The hash
+     */
+    public static long hash(long a, long b){
+        return HashUtils.mix64((a * MIX_A) ^ Long.rotateLeft(b * MIX_B, 21) ^ HASH_SEED_2);
+    }
+
+    /**
+     * Hashes three numbers by multiplying each by an odd constant, rotating them apart and mixing the combination with {@link #mix64(long)}.
+     * Unlike {@link #cantorHash(long, long, long)} the hash doesn't overflow into collisions for large or negative numbers; changing any single number always changes the hash.
+     * @param a The first number
+     * @param b The second number
+     * @param c The third number
+     * @return The hash
+     */
+    public static long hash(long a, long b, long c){
+        return HashUtils.mix64((a * MIX_A) ^ Long.rotateLeft(b * MIX_B, 21) ^ Long.rotateLeft(c * MIX_C, 42) ^ HASH_SEED_3);
+    }
+
+    /**
+     * Hashes four numbers by multiplying each by an odd constant, rotating them apart and mixing the combination with {@link #mix64(long)}.
+     * Unlike {@link #cantorHash(long, long, long, long)} the hash doesn't overflow into collisions for large or negative numbers; changing any single number always changes the hash.
+     * @param a The first number
+     * @param b The second number
+     * @param c The third number
+     * @param d The fourth number
+     * @return The hash
+     */
+    public static long hash(long a, long b, long c, long d){
+        return HashUtils.mix64((a * MIX_A) ^ Long.rotateLeft(b * MIX_B, 21) ^ Long.rotateLeft(c * MIX_C, 42) ^ Long.rotateLeft(d * MIX_D, 53) ^ HASH_SEED_4);
+    }
+
+    /**
+     * Hashes a batch of pairs of numbers, identical to calling {@link #hash(long, long)} for each
+     * @param as The first numbers
+     * @param bs The second numbers
+     * @param out The output array
+     * @param count The number of hashes
+     */
+    public static void hash(long[] as, long[] bs, long[] out, int count){
+        for(int i = 0; i < count; i++){
+            out[i] = HashUtils.hash(as[i], bs[i]);
+        }
+    }
+
+    /**
+     * Hashes a batch of triples of numbers, identical to calling {@link #hash(long, long, long)} for each
+     * @param as The first numbers
+     * @param bs The second numbers
+     * @param cs The third numbers
+     * @param out The output array
+     * @param count The number of hashes
+     */
+    public static void hash(long[] as, long[] bs, long[] cs, long[] out, int count){
+        for(int i = 0; i < count; i++){
+            out[i] = HashUtils.hash(as[i], bs[i], cs[i]);
+        }
+    }
+
+    /**
+     * Hashes a batch of quadruples of numbers, identical to calling {@link #hash(long, long, long, long)} for each
+     * @param as The first numbers
+     * @param bs The second numbers
+     * @param cs The third numbers
+     * @param ds The fourth numbers
+     * @param out The output array
+     * @param count The number of hashes
+     */
+    public static void hash(long[] as, long[] bs, long[] cs, long[] ds, long[] out, int count){
+        for(int i = 0; i < count; i++){
+            out[i] = HashUtils.hash(as[i], bs[i], cs[i], ds[i]);
+        }
+    }
+
+    /**
+     * Hashes a batch of pairs of integers, identical to calling {@link #hash(long, long)} for each
+     * @param as The first integers
+     * @param bs The second integers
+     * @param out The output array
+     * @param count The number of hashes
+     */
+    public static void hash(int[] as, int[] bs, long[] out, int count){
+        for(int i = 0; i < count; i++){
+            out[i] = HashUtils.hash(as[i], bs[i]);
+        }
+    }
+
+    /**
+     * Hashes a batch of triples of integers, identical to calling {@link #hash(long, long, long)} for each
+     * @param as The first integers
+     * @param bs The second integers
+     * @param cs The third integers
+     * @param out The output array
+     * @param count The number of hashes
+     */
+    public static void hash(int[] as, int[] bs, int[] cs, long[] out, int count){
+        for(int i = 0; i < count; i++){
+            out[i] = HashUtils.hash(as[i], bs[i], cs[i]);
+        }
+    }
+
+    /**
+     * Hashes a batch of quadruples of integers, identical to calling {@link #hash(long, long, long, long)} for each
+     * @param as The first integers
+     * @param bs The second integers
+     * @param cs The third integers
+     * @param ds The fourth integers
+     * @param out The output array
+     * @param count The number of hashes
+     */
+    public static void hash(int[] as, int[] bs, int[] cs, int[] ds, long[] out, int count){
+        for(int i = 0; i < count; i++){
+            out[i] = HashUtils.hash(as[i], bs[i], cs[i], ds[i]);
+        }
+    }
+
+    /**
+     * Mixes the bits of a number so that every input bit affects every output bit (the murmur3 64-bit finalizer)
+     * @param a The number
+     * @return The mixed number
+     */
+    public static long mix64(long a){
+        a = (a ^ (a >>> 33)) * 0xFF51AFD7ED558CCDL;
+        a = (a ^ (a >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return a ^ (a >>> 33);
+    }
     
 }
@@ -0,0 +1,410 @@
+package io.github.studiorailgun;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * A hash map from primitive longs (ie keys from {@link VecHashUtils}) to objects, without boxing the keys.
+ * Entries are stored in flat arrays with linear probing. Removal shifts the following entries back instead of leaving tombstones,
+ * so the table never degrades under repeated insertion and removal.
+ * Keys are spread by fibonacci hashing (multiplying by the golden ratio and taking the top bits), so every lane of a packed key affects the slot.
+ * Not thread-safe.
+ * @param <V> The type of the values
+ */
+public class LongHashMap<V> {
+
+    /**
+     * The default number of entries the map can hold before growing
+     */
+    static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The maximum fraction of slots that are used before the table grows
+     */
+    static final double MAX_LOAD = 0.6;
+
+    /**
+     * The maximum number of slots of a table (the largest power of two an array can hold)
+     */
+    static final int MAX_TABLE_SIZE = 1 << 30;
+
+    /**
+     * The multiplier used to spread keys (2^64 divided by the golden ratio)
+     */
+    private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Marks an empty slot. The zero key is stored outside the table.
+     */
+    private static final long EMPTY = 0;
+
+    /**
+     * Receives the entries of a map
+     * @param <V> The type of the values
+     */
+    public static interface EntryConsumer<V> {
+        /**
+         * Accepts an entry
+         * @param key The key
+         * @param value The value
+         */
+        public void accept(long key, V value);
+    }
+
+    /**
+     * The keys of each slot
+     */
+    private long[] keys;
+
+    /**
+     * The values of each slot
+     */
+    private Object[] values;
+
+    /**
+     * Mask for the table
+     */
+    private int mask;
+
+    /**
+     * The number of bits to shift a spread key by to get its slot
+     */
+    private int shift;
+
+    /**
+     * The number of entries in the table (excluding the zero key)
+     */
+    private int tableSize = 0;
+
+    /**
+     * The number of entries the table can hold before growing
+     */
+    private int threshold;
+
+    /**
+     * true if the zero key has an entry
+     */
+    private boolean hasZeroKey = false;
+
+    /**
+     * The value of the zero key
+     */
+    private V zeroValue = null;
+
+    /**
+     * Creates a map
+     */
+    public LongHashMap(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a map
+     * @param capacity The number of entries the map can hold before growing
+     */
+    public LongHashMap(int capacity){
+        if(capacity < 0){
+            throw new Error("Capacity must be non-negative! " + capacity);
+        }
+        this.allocate(LongHashMap.tableSizeFor(capacity));
+    }
+
+    /**
+     * Gets the value of a key
+     * @param key The key
+     * @return The value, or null if the key has no entry
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key){
+        if(key == EMPTY){
+            return zeroValue;
+        }
+        int slot = this.find(key);
+        return slot < 0 ? null : (V)values[slot];
+    }
+
+    /**
+     * Gets the value of a key
+     * @param key The key
+     * @param defaultValue The value to return if the key has no entry
+     * @return The value, or the default value if the key has no entry
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(long key, V defaultValue){
+        if(key == EMPTY){
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = this.find(key);
+        return slot < 0 ? defaultValue : (V)values[slot];
+    }
+
+    /**
+     * Checks if a key has an entry
+     * @param key The key
+     * @return true if it has an entry, false otherwise
+     */
+    public boolean containsKey(long key){
+        if(key == EMPTY){
+            return hasZeroKey;
+        }
+        return this.find(key) >= 0;
+    }
+
+    /**
+     * Sets the value of a key
+     * @param key The key
+     * @param value The value
+     * @return The previous value, or null if the key had no entry
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value){
+        if(key == EMPTY){
+            V rVal = zeroValue;
+            zeroValue = value;
+            hasZeroKey = true;
+            return rVal;
+        }
+        int slot = this.slot(key);
+        long current;
+        while((current = keys[slot]) != EMPTY){
+            if(current == key){
+                V rVal = (V)values[slot];
+                values[slot] = value;
+                return rVal;
+            }
+            slot = (slot + 1) & mask;
+        }
+        //grow before inserting, so a map that can't grow is left unchanged
+        if(this.tableSize >= this.threshold){
+            this.allocate(LongHashMap.grownTableSize(keys.length));
+            return this.put(key, value);
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        this.tableSize++;
+        return null;
+    }
+
+    /**
+     * Gets the value of a key, creating it if the key has no entry
+     * @param key The key
+     * @param function Creates the value from the key
+     * @return The value
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<V> function){
+        if(key == EMPTY){
+            if(!hasZeroKey){
+                zeroValue = function.apply(key);
+                hasZeroKey = true;
+            }
+            return zeroValue;
+        }
+        int slot = this.find(key);
+        if(slot >= 0){
+            return (V)values[slot];
+        }
+        V rVal = function.apply(key);
+        this.put(key, rVal);
+        return rVal;
+    }
+
+    /**
+     * Removes the entry of a key
+     * @param key The key
+     * @return The value of the removed entry, or null if the key had no entry
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key){
+        if(key == EMPTY){
+            V rVal = zeroValue;
+            zeroValue = null;
+            hasZeroKey = false;
+            return rVal;
+        }
+        int slot = this.find(key);
+        if(slot < 0){
+            return null;
+        }
+        V rVal = (V)values[slot];
+        this.removeSlot(slot);
+        return rVal;
+    }
+
+    /**
+     * Gets the number of entries
+     * @return The number of entries
+     */
+    public int size(){
+        return tableSize + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * Checks if the map has no entries
+     * @return true if it is empty, false otherwise
+     */
+    public boolean isEmpty(){
+        return this.size() == 0;
+    }
+
+    /**
+     * Removes all entries, keeping the allocated table
+     */
+    public void clear(){
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        tableSize = 0;
+        hasZeroKey = false;
+        zeroValue = null;
+    }
+
+    /**
+     * Calls a consumer with every entry, in table order. The map must not be modified during iteration.
+     * @param consumer The consumer
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<V> consumer){
+        if(hasZeroKey){
+            consumer.accept(EMPTY, zeroValue);
+        }
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        for(int i = 0; i < keys.length; i++){
+            if(keys[i] != EMPTY){
+                consumer.accept(keys[i], (V)values[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets every key
+     * @return A new array of the keys, in table order
+     */
+    public long[] keys(){
+        long[] rVal = new long[this.size()];
+        int index = 0;
+        if(hasZeroKey){
+            rVal[index] = EMPTY;
+            index++;
+        }
+        for(int i = 0; i < keys.length; i++){
+            if(keys[i] != EMPTY){
+                rVal[index] = keys[i];
+                index++;
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the slot a key hashes to
+     * @param key The key
+     * @return The slot
+     */
+    private int slot(long key){
+        return LongHashMap.spread(key, shift);
+    }
+
+    /**
+     * Finds the slot of a non-zero key
+     * @param key The key
+     * @return The slot, or -1 if the key has no entry
+     */
+    private int find(long key){
+        int slot = this.slot(key);
+        long current;
+        while((current = keys[slot]) != EMPTY){
+            if(current == key){
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Empties a slot, shifting back the entries that follow it so no tombstones are left
+     * @param slot The slot
+     */
+    private void removeSlot(int slot){
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        long current;
+        while((current = keys[next]) != EMPTY){
+            int home = this.slot(current);
+            //move the entry back if its home is not between the hole and its current position
+            if(((next - home) & mask) >= ((next - hole) & mask)){
+                keys[hole] = current;
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        values[hole] = null;
+        tableSize--;
+    }
+
+    /**
+     * Allocates a new table and reinserts the existing entries
+     * @param length The number of slots (a power of two)
+     */
+    private void allocate(int length){
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        this.keys = new long[length];
+        this.values = new Object[length];
+        this.mask = length - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(length);
+        this.threshold = (int)(length * MAX_LOAD);
+        if(oldKeys != null){
+            for(int i = 0; i < oldKeys.length; i++){
+                long key = oldKeys[i];
+                if(key != EMPTY){
+                    int slot = this.slot(key);
+                    while(keys[slot] != EMPTY){
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = key;
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of slots needed to hold a number of entries
+     * @param capacity The number of entries
+     * @return The number of slots (a power of two)
+     */
+    static int tableSizeFor(int capacity){
+        long needed = (long)Math.ceil(capacity / MAX_LOAD) + 1;
+        if(needed > MAX_TABLE_SIZE){
+            throw new Error("Capacity too large! " + capacity);
+        }
+        return Math.max(2, Integer.highestOneBit((int)needed - 1) << 1);
+    }
+
+    /**
+     * Gets the number of slots a full table grows to
+     * @param length The current number of slots
+     * @return The new number of slots
+     */
+    static int grownTableSize(int length){
+        if(length >= MAX_TABLE_SIZE){
+            throw new Error("Table can't grow past the maximum size! " + length);
+        }
+        return length * 2;
+    }
+
+    /**
+     * Spreads a key into a slot of a table
+     * @param key The key
+     * @param shift 64 minus the number of bits in the table size
+     * @return The slot
+     */
+    static int spread(long key, int shift){
+        return (int)((key * SPREAD) >>> shift);
+    }
+
+}
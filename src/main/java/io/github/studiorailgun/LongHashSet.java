@@ -0,0 +1,241 @@
+package io.github.studiorailgun;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A hash set of primitive longs (ie keys from {@link VecHashUtils}), without boxing.
+ * Uses the same layout as {@link LongHashMap}: linear probing over a flat array, removal by shifting entries back and fibonacci hashing.
+ * Not thread-safe.
+ */
+public class LongHashSet {
+
+    /**
+     * Marks an empty slot. The zero key is stored outside the table.
+     */
+    private static final long EMPTY = 0;
+
+    /**
+     * The keys of each slot
+     */
+    private long[] keys;
+
+    /**
+     * Mask for the table
+     */
+    private int mask;
+
+    /**
+     * The number of bits to shift a spread key by to get its slot
+     */
+    private int shift;
+
+    /**
+     * The number of keys in the table (excluding the zero key)
+     */
+    private int tableSize = 0;
+
+    /**
+     * The number of keys the table can hold before growing
+     */
+    private int threshold;
+
+    /**
+     * true if the set contains the zero key
+     */
+    private boolean hasZeroKey = false;
+
+    /**
+     * Creates a set
+     */
+    public LongHashSet(){
+        this(LongHashMap.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a set
+     * @param capacity The number of keys the set can hold before growing
+     */
+    public LongHashSet(int capacity){
+        if(capacity < 0){
+            throw new Error("Capacity must be non-negative! " + capacity);
+        }
+        this.allocate(LongHashMap.tableSizeFor(capacity));
+    }
+
+    /**
+     * Adds a key
+     * @param key The key
+     * @return true if the key was added, false if it was already in the set
+     */
+    public boolean add(long key){
+        if(key == EMPTY){
+            boolean rVal = !hasZeroKey;
+            hasZeroKey = true;
+            return rVal;
+        }
+        int slot = LongHashMap.spread(key, shift);
+        long current;
+        while((current = keys[slot]) != EMPTY){
+            if(current == key){
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        //grow before inserting, so a set that can't grow is left unchanged
+        if(this.tableSize >= this.threshold){
+            this.allocate(LongHashMap.grownTableSize(keys.length));
+            return this.add(key);
+        }
+        keys[slot] = key;
+        this.tableSize++;
+        return true;
+    }
+
+    /**
+     * Checks if the set contains a key
+     * @param key The key
+     * @return true if it contains the key, false otherwise
+     */
+    public boolean contains(long key){
+        if(key == EMPTY){
+            return hasZeroKey;
+        }
+        return this.find(key) >= 0;
+    }
+
+    /**
+     * Removes a key
+     * @param key The key
+     * @return true if the key was removed, false if it wasn't in the set
+     */
+    public boolean remove(long key){
+        if(key == EMPTY){
+            boolean rVal = hasZeroKey;
+            hasZeroKey = false;
+            return rVal;
+        }
+        int slot = this.find(key);
+        if(slot < 0){
+            return false;
+        }
+        //shift back the entries that follow so no tombstones are left
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        long current;
+        while((current = keys[next]) != EMPTY){
+            int home = LongHashMap.spread(current, shift);
+            if(((next - home) & mask) >= ((next - hole) & mask)){
+                keys[hole] = current;
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        tableSize--;
+        return true;
+    }
+
+    /**
+     * Gets the number of keys
+     * @return The number of keys
+     */
+    public int size(){
+        return tableSize + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * Checks if the set has no keys
+     * @return true if it is empty, false otherwise
+     */
+    public boolean isEmpty(){
+        return this.size() == 0;
+    }
+
+    /**
+     * Removes all keys, keeping the allocated table
+     */
+    public void clear(){
+        Arrays.fill(keys, EMPTY);
+        tableSize = 0;
+        hasZeroKey = false;
+    }
+
+    /**
+     * Calls a consumer with every key, in table order. The set must not be modified during iteration.
+     * @param consumer The consumer
+     */
+    public void forEach(LongConsumer consumer){
+        if(hasZeroKey){
+            consumer.accept(EMPTY);
+        }
+        long[] keys = this.keys;
+        for(int i = 0; i < keys.length; i++){
+            if(keys[i] != EMPTY){
+                consumer.accept(keys[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets every key
+     * @return A new array of the keys, in table order
+     */
+    public long[] toArray(){
+        long[] rVal = new long[this.size()];
+        int index = 0;
+        if(hasZeroKey){
+            rVal[index] = EMPTY;
+            index++;
+        }
+        for(int i = 0; i < keys.length; i++){
+            if(keys[i] != EMPTY){
+                rVal[index] = keys[i];
+                index++;
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Finds the slot of a non-zero key
+     * @param key The key
+     * @return The slot, or -1 if the key isn't in the set
+     */
+    private int find(long key){
+        int slot = LongHashMap.spread(key, shift);
+        long current;
+        while((current = keys[slot]) != EMPTY){
+            if(current == key){
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Allocates a new table and reinserts the existing keys
+     * @param length The number of slots (a power of two)
+     */
+    private void allocate(int length){
+        long[] oldKeys = this.keys;
+        this.keys = new long[length];
+        this.mask = length - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(length);
+        this.threshold = (int)(length * LongHashMap.MAX_LOAD);
+        if(oldKeys != null){
+            for(int i = 0; i < oldKeys.length; i++){
+                long key = oldKeys[i];
+                if(key != EMPTY){
+                    int slot = LongHashMap.spread(key, shift);
+                    while(keys[slot] != EMPTY){
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = key;
+                }
+            }
+        }
+    }
+
+}
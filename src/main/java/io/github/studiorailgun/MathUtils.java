@@ -5,6 +5,49 @@ package io.github.studiorailgun;
  */
 public class MathUtils {
 
+    /**
+     * The number of subdivisions of an octave in the fast exp/log tables
+     */
+    private static final int FAST_TABLE_SIZE = 64;
+
+    /**
+     * 64 / ln(2)
+     */
+    private static final double FAST_EXP_SCALE = FAST_TABLE_SIZE / 0.6931471805599453;
+
+    /**
+     * ln(2) / 64
+     */
+    private static final double FAST_EXP_STEP = 0.6931471805599453 / FAST_TABLE_SIZE;
+
+    /**
+     * ln(2)
+     */
+    private static final double LN_2 = 0.6931471805599453;
+
+    /**
+     * 2^(i/64) for each subdivision i
+     */
+    private static final double[] FAST_EXP_TABLE = new double[FAST_TABLE_SIZE];
+
+    /**
+     * ln(1 + i/64) for each subdivision i
+     */
+    private static final double[] FAST_LOG_TABLE = new double[FAST_TABLE_SIZE];
+
+    /**
+     * 1 / (1 + i/64) for each subdivision i
+     */
+    private static final double[] FAST_LOG_INVERSE_TABLE = new double[FAST_TABLE_SIZE];
+
+    static {
+        for(int i = 0; i < FAST_TABLE_SIZE; i++){
+            FAST_EXP_TABLE[i] = Math.pow(2.0, i / (double)FAST_TABLE_SIZE);
+            FAST_LOG_TABLE[i] = Math.log(1.0 + i / (double)FAST_TABLE_SIZE);
+            FAST_LOG_INVERSE_TABLE[i] = 1.0 / (1.0 + i / (double)FAST_TABLE_SIZE);
+        }
+    }
+
     /**
      * Calculates the fractional component of a number
      * @param num The number
@@ -135,5 +178,43 @@ public class MathUtils {
     public static double lerp(double a, double b, double percent){
         return a * (1.0 - percent) + (b * percent);
     }
+
+    /**
+     * Approximates e^x as 2^(k/64) * e^r, |r| &lt;= ln(2)/128, using a 64 entry table and a cubic polynomial for e^r.
+     * The maximum relative error is 4e-11 for inputs in [-708, 709]; smaller inputs return 0 and larger inputs return infinity.
+     * @param x The exponent
+     * @return The approximate value of e^x
+     */
+    public static double fastExp(double x){
+        if(x < -708.0){
+            return 0;
+        }
+        if(x > 709.0){
+            return Double.POSITIVE_INFINITY;
+        }
+        long k = (long)Math.floor(x * FAST_EXP_SCALE + 0.5);
+        double r = x - k * FAST_EXP_STEP;
+        double p = 1.0 + r * (1.0 + r * (1.0 / 2.0 + r * (1.0 / 6.0)));
+        return p * FAST_EXP_TABLE[(int)(k & (FAST_TABLE_SIZE - 1))] * Double.longBitsToDouble(((k >> 6) + 1023L) << 52);
+    }
+
+    /**
+     * Approximates ln(x) as e * ln(2) + ln(1 + i/64) + ln(1 + t), |t| &lt; 1/64, using a 64 entry table and a quartic polynomial for ln(1 + t).
+     * The maximum absolute error is 2e-10. Inputs that are zero, negative, subnormal, infinite or NaN are passed to {@link Math#log(double)}.
+     * @param x The value
+     * @return The approximate natural log of x
+     */
+    public static double fastLog(double x){
+        if(!(x >= Double.MIN_NORMAL && x <= Double.MAX_VALUE)){
+            return Math.log(x);
+        }
+        long bits = Double.doubleToRawLongBits(x);
+        long exponent = (bits >>> 52) - 1023;
+        int index = (int)((bits >>> 46) & (FAST_TABLE_SIZE - 1));
+        double m = Double.longBitsToDouble((bits & 0x000FFFFFFFFFFFFFL) | 0x3FF0000000000000L);
+        double t = m * FAST_LOG_INVERSE_TABLE[index] - 1.0;
+        double p = t * (1.0 - t * (1.0 / 2.0 - t * (1.0 / 3.0 - t * (1.0 / 4.0))));
+        return p + FAST_LOG_TABLE[index] + exponent * LN_2;
+    }
     
 }
@@ -0,0 +1,591 @@
+package io.github.studiorailgun;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.github.studiorailgun.NoiseUtils.CellNoiseType;
+
+/**
+ * Declares a density function as a graph of noise sources, arithmetic and interpolation nodes.
+ * Nodes are referenced by the integer handles returned when they are created.
+ * Identical nodes are only created once (common subexpression elimination) and nodes whose inputs are all constants are folded.
+ * Domain transforms are expressed by feeding arithmetic on the coordinate nodes into a noise node.
+ * The graph is compiled into a {@link NoiseProgram} that evaluates whole batches of positions one node at a time.
+ */
+public class NoiseGraph {
+
+    /**
+     * The x coordinate of the sample
+     */
+    static final int OP_X = 0;
+
+    /**
+     * The y coordinate of the sample
+     */
+    static final int OP_Y = 1;
+
+    /**
+     * The z coordinate of the sample
+     */
+    static final int OP_Z = 2;
+
+    /**
+     * A constant value
+     */
+    static final int OP_CONSTANT = 3;
+
+    /**
+     * a + b
+     */
+    static final int OP_ADD = 4;
+
+    /**
+     * a - b
+     */
+    static final int OP_SUB = 5;
+
+    /**
+     * a * b
+     */
+    static final int OP_MUL = 6;
+
+    /**
+     * a / b
+     */
+    static final int OP_DIV = 7;
+
+    /**
+     * min(a, b)
+     */
+    static final int OP_MIN = 8;
+
+    /**
+     * max(a, b)
+     */
+    static final int OP_MAX = 9;
+
+    /**
+     * |a|
+     */
+    static final int OP_ABS = 10;
+
+    /**
+     * clamp(a, b, c)
+     */
+    static final int OP_CLAMP = 11;
+
+    /**
+     * lerp(a, b, c)
+     */
+    static final int OP_LERP = 12;
+
+    /**
+     * A cellular noise sampled at (a, b, c)
+     */
+    static final int OP_NOISE = 13;
+
+    /**
+     * Marks an unused operand
+     */
+    static final int NONE = -1;
+
+    /**
+     * The nodes of the graph in creation order (operands always precede the nodes that use them)
+     */
+    private final List<Node> nodes = new ArrayList<Node>();
+
+    /**
+     * Lookup of existing nodes for common subexpression elimination
+     */
+    private final Map<Node,Integer> nodeLookup = new HashMap<Node,Integer>();
+
+    /**
+     * Creates an empty graph
+     */
+    public NoiseGraph(){
+    }
+
+    /**
+     * Gets the x coordinate of the sample
+     * @return The node
+     */
+    public int x(){
+        return this.intern(new Node(OP_X, NONE, NONE, NONE, 0, null, 0));
+    }
+
+    /**
+     * Gets the y coordinate of the sample
+     * @return The node
+     */
+    public int y(){
+        return this.intern(new Node(OP_Y, NONE, NONE, NONE, 0, null, 0));
+    }
+
+    /**
+     * Gets the z coordinate of the sample
+     * @return The node
+     */
+    public int z(){
+        return this.intern(new Node(OP_Z, NONE, NONE, NONE, 0, null, 0));
+    }
+
+    /**
+     * Creates a constant
+     * @param value The value
+     * @return The node
+     */
+    public int constant(double value){
+        return this.intern(new Node(OP_CONSTANT, NONE, NONE, NONE, value, null, 0));
+    }
+
+    /**
+     * Adds two nodes
+     * @param a The first node
+     * @param b The second node
+     * @return The node
+     */
+    public int add(int a, int b){
+        return this.binary(OP_ADD, Math.min(a, b), Math.max(a, b));
+    }
+
+    /**
+     * Subtracts one node from another
+     * @param a The node to subtract from
+     * @param b The node to subtract
+     * @return The node
+     */
+    public int sub(int a, int b){
+        return this.binary(OP_SUB, a, b);
+    }
+
+    /**
+     * Multiplies two nodes
+     * @param a The first node
+     * @param b The second node
+     * @return The node
+     */
+    public int mul(int a, int b){
+        return this.binary(OP_MUL, Math.min(a, b), Math.max(a, b));
+    }
+
+    /**
+     * Divides one node by another
+     * @param a The numerator
+     * @param b The denominator
+     * @return The node
+     */
+    public int div(int a, int b){
+        return this.binary(OP_DIV, a, b);
+    }
+
+    /**
+     * Takes the minimum of two nodes
+     * @param a The first node
+     * @param b The second node
+     * @return The node
+     */
+    public int min(int a, int b){
+        return this.binary(OP_MIN, Math.min(a, b), Math.max(a, b));
+    }
+
+    /**
+     * Takes the maximum of two nodes
+     * @param a The first node
+     * @param b The second node
+     * @return The node
+     */
+    public int max(int a, int b){
+        return this.binary(OP_MAX, Math.min(a, b), Math.max(a, b));
+    }
+
+    /**
+     * Takes the absolute value of a node
+     * @param a The node
+     * @return The node
+     */
+    public int abs(int a){
+        this.checkNode(a);
+        if(this.isConstant(a)){
+            return this.constant(Math.abs(this.constantValue(a)));
+        }
+        return this.intern(new Node(OP_ABS, a, NONE, NONE, 0, null, 0));
+    }
+
+    /**
+     * Clamps a node, as {@link MathUtils#clamp(double, double, double)}
+     * @param val The node to clamp
+     * @param min The minimum
+     * @param max The maximum
+     * @return The node
+     */
+    public int clamp(int val, int min, int max){
+        this.checkNode(val);
+        this.checkNode(min);
+        this.checkNode(max);
+        if(this.isConstant(val) && this.isConstant(min) && this.isConstant(max)){
+            return this.constant(MathUtils.clamp(this.constantValue(val), this.constantValue(min), this.constantValue(max)));
+        }
+        return this.intern(new Node(OP_CLAMP, val, min, max, 0, null, 0));
+    }
+
+    /**
+     * Linearly interpolates between two nodes, as {@link MathUtils#lerp(double, double, double)}
+     * @param a The first node
+     * @param b The second node
+     * @param percent The percentage to interpolate between them
+     * @return The node
+     */
+    public int lerp(int a, int b, int percent){
+        this.checkNode(a);
+        this.checkNode(b);
+        this.checkNode(percent);
+        if(this.isConstant(a) && this.isConstant(b) && this.isConstant(percent)){
+            return this.constant(MathUtils.lerp(this.constantValue(a), this.constantValue(b), this.constantValue(percent)));
+        }
+        return this.intern(new Node(OP_LERP, a, b, percent, 0, null, 0));
+    }
+
+    /**
+     * Samples a cellular noise
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param x The node giving the x coordinate to sample at
+     * @param y The node giving the y coordinate to sample at
+     * @param z The node giving the z coordinate to sample at
+     * @return The node
+     */
+    public int noise(CellNoiseType type, double param, int x, int y, int z){
+        this.checkNode(x);
+        this.checkNode(y);
+        this.checkNode(z);
+        return this.intern(new Node(OP_NOISE, x, y, z, 0, type, param));
+    }
+
+    /**
+     * Samples voronoi noise
+     * @param x The node giving the x coordinate to sample at
+     * @param y The node giving the y coordinate to sample at
+     * @param z The node giving the z coordinate to sample at
+     * @return The node
+     */
+    public int voronoi(int x, int y, int z){
+        return this.noise(CellNoiseType.VORONOI, 0, x, y, z);
+    }
+
+    /**
+     * Samples smooth voronoi noise
+     * @param x The node giving the x coordinate to sample at
+     * @param y The node giving the y coordinate to sample at
+     * @param z The node giving the z coordinate to sample at
+     * @param falloff The falloff
+     * @return The node
+     */
+    public int smoothVoronoi(int x, int y, int z, double falloff){
+        return this.noise(CellNoiseType.SMOOTH_VORONOI, falloff, x, y, z);
+    }
+
+    /**
+     * Samples diamond noise
+     * @param x The node giving the x coordinate to sample at
+     * @param y The node giving the y coordinate to sample at
+     * @param z The node giving the z coordinate to sample at
+     * @return The node
+     */
+    public int diamond(int x, int y, int z){
+        return this.noise(CellNoiseType.DIAMOND, 0, x, y, z);
+    }
+
+    /**
+     * Gets the number of distinct nodes in the graph
+     * @return The number of nodes
+     */
+    public int getNodeCount(){
+        return nodes.size();
+    }
+
+    /**
+     * Compiles the part of the graph that an output node depends on into a program
+     * @param output The output node
+     * @return The program
+     */
+    public NoiseProgram compile(int output){
+        this.checkNode(output);
+
+        //find the nodes the output depends on
+        boolean[] live = new boolean[nodes.size()];
+        live[output] = true;
+        for(int i = output; i >= 0; i--){
+            if(live[i]){
+                Node node = nodes.get(i);
+                if(node.a != NONE){
+                    live[node.a] = true;
+                }
+                if(node.b != NONE){
+                    live[node.b] = true;
+                }
+                if(node.c != NONE){
+                    live[node.c] = true;
+                }
+            }
+        }
+
+        //find the last instruction that reads each node
+        int[] lastUse = new int[nodes.size()];
+        for(int i = 0; i <= output; i++){
+            if(live[i]){
+                Node node = nodes.get(i);
+                if(node.a != NONE){
+                    lastUse[node.a] = i;
+                }
+                if(node.b != NONE){
+                    lastUse[node.b] = i;
+                }
+                if(node.c != NONE){
+                    lastUse[node.c] = i;
+                }
+            }
+        }
+        lastUse[output] = Integer.MAX_VALUE;
+
+        //assign registers, reusing them once their node is no longer read
+        //registers 0,1,2 are the x,y,z inputs
+        int[] register = new int[nodes.size()];
+        List<Integer> freeRegisters = new ArrayList<Integer>();
+        int registerCount = NoiseProgram.FIRST_REGISTER;
+        List<Node> instructions = new ArrayList<Node>();
+        List<Integer> destinations = new ArrayList<Integer>();
+        for(int i = 0; i <= output; i++){
+            if(!live[i]){
+                continue;
+            }
+            Node node = nodes.get(i);
+            if(node.op == OP_X || node.op == OP_Y || node.op == OP_Z){
+                register[i] = node.op - OP_X;
+                continue;
+            }
+            int dst;
+            if(freeRegisters.isEmpty()){
+                dst = registerCount;
+                registerCount++;
+            } else {
+                dst = freeRegisters.remove(freeRegisters.size() - 1);
+            }
+            instructions.add(new Node(
+                node.op,
+                node.a == NONE ? NONE : register[node.a],
+                node.b == NONE ? NONE : register[node.b],
+                node.c == NONE ? NONE : register[node.c],
+                node.constant, node.type, node.param
+            ));
+            destinations.add(dst);
+            register[i] = dst;
+            //release operands whose last read was this instruction (after allocating so the destination never aliases an operand)
+            this.release(node.a, i, lastUse, register, freeRegisters);
+            if(node.b != node.a){
+                this.release(node.b, i, lastUse, register, freeRegisters);
+            }
+            if(node.c != node.a && node.c != node.b){
+                this.release(node.c, i, lastUse, register, freeRegisters);
+            }
+        }
+
+        int count = instructions.size();
+        int[] ops = new int[count];
+        int[] dst = new int[count];
+        int[] srcA = new int[count];
+        int[] srcB = new int[count];
+        int[] srcC = new int[count];
+        double[] constants = new double[count];
+        CellNoiseType[] types = new CellNoiseType[count];
+        for(int i = 0; i < count; i++){
+            Node node = instructions.get(i);
+            ops[i] = node.op;
+            dst[i] = destinations.get(i);
+            srcA[i] = node.a;
+            srcB[i] = node.b;
+            srcC[i] = node.c;
+            constants[i] = node.op == OP_NOISE ? node.param : node.constant;
+            types[i] = node.type;
+        }
+        return new NoiseProgram(ops, dst, srcA, srcB, srcC, constants, types, registerCount, register[output]);
+    }
+
+    /**
+     * Frees the register of an operand if this instruction was its last reader
+     * @param operand The operand node
+     * @param instruction The index of the reading node
+     * @param lastUse The last reader of each node
+     * @param register The register of each node
+     * @param freeRegisters The free registers
+     */
+    private void release(int operand, int instruction, int[] lastUse, int[] register, List<Integer> freeRegisters){
+        if(operand != NONE && lastUse[operand] == instruction && register[operand] >= NoiseProgram.FIRST_REGISTER){
+            freeRegisters.add(register[operand]);
+        }
+    }
+
+    /**
+     * Creates a binary node, folding it if both operands are constant
+     * @param op The operation
+     * @param a The first operand
+     * @param b The second operand
+     * @return The node
+     */
+    private int binary(int op, int a, int b){
+        this.checkNode(a);
+        this.checkNode(b);
+        if(this.isConstant(a) && this.isConstant(b)){
+            double valA = this.constantValue(a);
+            double valB = this.constantValue(b);
+            switch(op){
+                case OP_ADD: {
+                    return this.constant(valA + valB);
+                }
+                case OP_SUB: {
+                    return this.constant(valA - valB);
+                }
+                case OP_MUL: {
+                    return this.constant(valA * valB);
+                }
+                case OP_DIV: {
+                    return this.constant(valA / valB);
+                }
+                case OP_MIN: {
+                    return this.constant(Math.min(valA, valB));
+                }
+                case OP_MAX: {
+                    return this.constant(Math.max(valA, valB));
+                }
+            }
+        }
+        return this.intern(new Node(op, a, b, NONE, 0, null, 0));
+    }
+
+    /**
+     * Adds a node to the graph unless an identical node already exists
+     * @param node The node
+     * @return The handle of the node
+     */
+    private int intern(Node node){
+        Integer existing = nodeLookup.get(node);
+        if(existing != null){
+            return existing;
+        }
+        int index = nodes.size();
+        nodes.add(node);
+        nodeLookup.put(node, index);
+        return index;
+    }
+
+    /**
+     * Checks that a handle refers to a node in this graph
+     * @param node The handle
+     */
+    private void checkNode(int node){
+        if(node < 0 || node >= nodes.size()){
+            throw new Error("Undefined node! " + node);
+        }
+    }
+
+    /**
+     * Checks if a node is a constant
+     * @param node The node
+     * @return true if it is a constant, false otherwise
+     */
+    private boolean isConstant(int node){
+        return nodes.get(node).op == OP_CONSTANT;
+    }
+
+    /**
+     * Gets the value of a constant node
+     * @param node The node
+     * @return The value
+     */
+    private double constantValue(int node){
+        return nodes.get(node).constant;
+    }
+
+    /**
+     * A single node of the graph
+     */
+    private static class Node {
+
+        /**
+         * The operation
+         */
+        private final int op;
+
+        /**
+         * The first operand
+         */
+        private final int a;
+
+        /**
+         * The second operand
+         */
+        private final int b;
+
+        /**
+         * The third operand
+         */
+        private final int c;
+
+        /**
+         * The value of a constant node
+         */
+        private final double constant;
+
+        /**
+         * The type of a noise node
+         */
+        private final CellNoiseType type;
+
+        /**
+         * The parameter of a noise node
+         */
+        private final double param;
+
+        /**
+         * Creates a node
+         * @param op The operation
+         * @param a The first operand
+         * @param b The second operand
+         * @param c The third operand
+         * @param constant The value of a constant node
+         * @param type The type of a noise node
+         * @param param The parameter of a noise node
+         */
+        private Node(int op, int a, int b, int c, double constant, CellNoiseType type, double param){
+            this.op = op;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.constant = constant;
+            this.type = type;
+            this.param = param;
+        }
+
+        @Override
+        public boolean equals(Object other){
+            if(!(other instanceof Node)){
+                return false;
+            }
+            Node node = (Node)other;
+            return op == node.op && a == node.a && b == node.b && c == node.c &&
+                Double.doubleToLongBits(constant) == Double.doubleToLongBits(node.constant) &&
+                type == node.type &&
+                Double.doubleToLongBits(param) == Double.doubleToLongBits(node.param);
+        }
+
+        @Override
+        public int hashCode(){
+            long hash = HashUtils.mix64(op + 31L * (a + 31L * (b + 31L * c)));
+            hash = HashUtils.mix64(hash ^ Double.doubleToLongBits(constant) ^ Double.doubleToLongBits(param) * 31L);
+            return (int)hash ^ (type == null ? 0 : type.ordinal());
+        }
+
+    }
+
+}
@@ -0,0 +1,341 @@
+package io.github.studiorailgun;
+
+import java.util.Arrays;
+
+import io.github.studiorailgun.NoiseUtils.CellNoiseType;
+
+/**
+ * A {@link NoiseGraph} compiled into a flat list of instructions over registers.
+ * Each instruction is run over the whole batch before the next one, so every inner loop is a single monomorphic operation over primitive arrays
+ * and noise instructions go through {@link NoiseUtils#sampleBatch(CellNoiseType, double, double[], double[], double[], double[], int)}.
+ * Programs are immutable and can be evaluated from multiple threads at once.
+ * The registers live in a per-thread pool shared by every program, grown to the largest register count and batch evaluated on that thread and never shrunk,
+ * so evaluating doesn't allocate once a thread has seen its largest batch.
+ */
+public class NoiseProgram {
+
+    /**
+     * The first register that isn't an input (registers 0,1,2 hold the x,y,z coordinates)
+     */
+    static final int FIRST_REGISTER = 3;
+
+    /**
+     * The register pool of each thread
+     */
+    private static final ThreadLocal<RegisterPool> REGISTER_POOL = ThreadLocal.withInitial(RegisterPool::new);
+
+    /**
+     * The operation of each instruction
+     */
+    private final int[] ops;
+
+    /**
+     * The destination register of each instruction
+     */
+    private final int[] dst;
+
+    /**
+     * The first source register of each instruction
+     */
+    private final int[] srcA;
+
+    /**
+     * The second source register of each instruction
+     */
+    private final int[] srcB;
+
+    /**
+     * The third source register of each instruction
+     */
+    private final int[] srcC;
+
+    /**
+     * The constant of each instruction (the value of constants, the parameter of noises)
+     */
+    private final double[] constants;
+
+    /**
+     * The noise type of each instruction
+     */
+    private final CellNoiseType[] types;
+
+    /**
+     * The number of registers, including the inputs
+     */
+    private final int registerCount;
+
+    /**
+     * The register holding the output
+     */
+    private final int output;
+
+    /**
+     * Creates a program
+     * @param ops The operation of each instruction
+     * @param dst The destination register of each instruction
+     * @param srcA The first source register of each instruction
+     * @param srcB The second source register of each instruction
+     * @param srcC The third source register of each instruction
+     * @param constants The constant of each instruction
+     * @param types The noise type of each instruction
+     * @param registerCount The number of registers, including the inputs
+     * @param output The register holding the output
+     */
+    NoiseProgram(int[] ops, int[] dst, int[] srcA, int[] srcB, int[] srcC, double[] constants, CellNoiseType[] types, int registerCount, int output){
+        this.ops = ops;
+        this.dst = dst;
+        this.srcA = srcA;
+        this.srcB = srcB;
+        this.srcC = srcC;
+        this.constants = constants;
+        this.types = types;
+        this.registerCount = registerCount;
+        this.output = output;
+    }
+
+    /**
+     * Evaluates the program at a batch of positions
+     * @param xs The x coordinates of the samples
+     * @param ys The y coordinates of the samples
+     * @param zs The z coordinates of the samples
+     * @param out The output array
+     * @param count The number of samples
+     */
+    public void evaluate(double[] xs, double[] ys, double[] zs, double[] out, int count){
+        if(xs.length < count || ys.length < count || zs.length < count || out.length < count){
+            throw new Error("Arrays too small for batch! " + count);
+        }
+        double[][] registers = REGISTER_POOL.get().registers(registerCount, count);
+        registers[0] = xs;
+        registers[1] = ys;
+        registers[2] = zs;
+        try {
+            for(int i = 0; i < ops.length; i++){
+                this.run(i, registers, count);
+            }
+            System.arraycopy(registers[output], 0, out, 0, count);
+        } finally {
+            //don't keep the caller's arrays alive
+            registers[0] = null;
+            registers[1] = null;
+            registers[2] = null;
+        }
+    }
+
+    /**
+     * Evaluates the program over a grid.
+     * The sample at (x,y,z) is taken at (originX + x * step, originY + y * step, originZ + z * step) and stored at index x + dimX * (y + dimY * z).
+     * @param out The output array
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param step The distance between neighboring samples
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     */
+    public void evaluateGrid(double[] out, double originX, double originY, double originZ, double step, int dimX, int dimY, int dimZ){
+        NoiseUtils.checkGrid(out.length, dimX, dimY, dimZ);
+        int count = dimX * dimY * dimZ;
+        RegisterPool pool = REGISTER_POOL.get();
+        pool.gridX = RegisterPool.fit(pool.gridX, count);
+        pool.gridY = RegisterPool.fit(pool.gridY, count);
+        pool.gridZ = RegisterPool.fit(pool.gridZ, count);
+        double[] xs = pool.gridX;
+        double[] ys = pool.gridY;
+        double[] zs = pool.gridZ;
+        int i = 0;
+        for(int z = 0; z < dimZ; z++){
+            for(int y = 0; y < dimY; y++){
+                for(int x = 0; x < dimX; x++){
+                    xs[i] = originX + x * step;
+                    ys[i] = originY + y * step;
+                    zs[i] = originZ + z * step;
+                    i++;
+                }
+            }
+        }
+        this.evaluate(xs, ys, zs, out, count);
+    }
+
+    /**
+     * Evaluates the program at a single position
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The value
+     */
+    public double evaluate(double x, double y, double z){
+        RegisterPool pool = REGISTER_POOL.get();
+        pool.sampleX[0] = x;
+        pool.sampleY[0] = y;
+        pool.sampleZ[0] = z;
+        this.evaluate(pool.sampleX, pool.sampleY, pool.sampleZ, pool.sampleOut, 1);
+        return pool.sampleOut[0];
+    }
+
+    /**
+     * Gets the number of instructions in the program
+     * @return The number of instructions
+     */
+    public int getInstructionCount(){
+        return ops.length;
+    }
+
+    /**
+     * Gets the number of registers the program uses, including the three inputs
+     * @return The number of registers
+     */
+    public int getRegisterCount(){
+        return registerCount;
+    }
+
+    /**
+     * Runs a single instruction over the batch
+     * @param instruction The instruction
+     * @param registers The registers
+     * @param count The number of samples
+     */
+    private void run(int instruction, double[][] registers, int count){
+        double[] out = registers[dst[instruction]];
+        double[] a = srcA[instruction] == NoiseGraph.NONE ? null : registers[srcA[instruction]];
+        double[] b = srcB[instruction] == NoiseGraph.NONE ? null : registers[srcB[instruction]];
+        double[] c = srcC[instruction] == NoiseGraph.NONE ? null : registers[srcC[instruction]];
+        switch(ops[instruction]){
+            case NoiseGraph.OP_CONSTANT: {
+                double value = constants[instruction];
+                for(int i = 0; i < count; i++){
+                    out[i] = value;
+                }
+            } break;
+            case NoiseGraph.OP_ADD: {
+                for(int i = 0; i < count; i++){
+                    out[i] = a[i] + b[i];
+                }
+            } break;
+            case NoiseGraph.OP_SUB: {
+                for(int i = 0; i < count; i++){
+                    out[i] = a[i] - b[i];
+                }
+            } break;
+            case NoiseGraph.OP_MUL: {
+                for(int i = 0; i < count; i++){
+                    out[i] = a[i] * b[i];
+                }
+            } break;
+            case NoiseGraph.OP_DIV: {
+                for(int i = 0; i < count; i++){
+                    out[i] = a[i] / b[i];
+                }
+            } break;
+            case NoiseGraph.OP_MIN: {
+                for(int i = 0; i < count; i++){
+                    out[i] = Math.min(a[i], b[i]);
+                }
+            } break;
+            case NoiseGraph.OP_MAX: {
+                for(int i = 0; i < count; i++){
+                    out[i] = Math.max(a[i], b[i]);
+                }
+            } break;
+            case NoiseGraph.OP_ABS: {
+                for(int i = 0; i < count; i++){
+                    out[i] = Math.abs(a[i]);
+                }
+            } break;
+            case NoiseGraph.OP_CLAMP: {
+                for(int i = 0; i < count; i++){
+                    out[i] = MathUtils.clamp(a[i], b[i], c[i]);
+                }
+            } break;
+            case NoiseGraph.OP_LERP: {
+                for(int i = 0; i < count; i++){
+                    out[i] = MathUtils.lerp(a[i], b[i], c[i]);
+                }
+            } break;
+            case NoiseGraph.OP_NOISE: {
+                NoiseUtils.sampleBatch(types[instruction], constants[instruction], a, b, c, out, count);
+            } break;
+            default: {
+                throw new Error("Unsupported operation! " + ops[instruction]);
+            }
+        }
+    }
+
+    /**
+     * The registers and input buffers of a single thread
+     */
+    private static class RegisterPool {
+
+        /**
+         * The registers, the first three are set to the inputs of the batch being evaluated
+         */
+        private double[][] registers = new double[FIRST_REGISTER][];
+
+        /**
+         * The x coordinates of a grid
+         */
+        private double[] gridX = new double[0];
+
+        /**
+         * The y coordinates of a grid
+         */
+        private double[] gridY = new double[0];
+
+        /**
+         * The z coordinates of a grid
+         */
+        private double[] gridZ = new double[0];
+
+        /**
+         * The x coordinate of a single sample
+         */
+        private final double[] sampleX = new double[1];
+
+        /**
+         * The y coordinate of a single sample
+         */
+        private final double[] sampleY = new double[1];
+
+        /**
+         * The z coordinate of a single sample
+         */
+        private final double[] sampleZ = new double[1];
+
+        /**
+         * The output of a single sample
+         */
+        private final double[] sampleOut = new double[1];
+
+        /**
+         * Gets the registers, growing them if they are too few or too short
+         * @param registerCount The number of registers, including the inputs
+         * @param count The number of samples
+         * @return The registers
+         */
+        private double[][] registers(int registerCount, int count){
+            if(registers.length < registerCount){
+                registers = Arrays.copyOf(registers, registerCount);
+            }
+            for(int i = FIRST_REGISTER; i < registerCount; i++){
+                registers[i] = RegisterPool.fit(registers[i], count);
+            }
+            return registers;
+        }
+
+        /**
+         * Gets an array at least a given length
+         * @param array The current array, or null
+         * @param length The length
+         * @return The current array if it is long enough, a new one otherwise
+         */
+        private static double[] fit(double[] array, int length){
+            if(array == null || array.length < length){
+                return new double[length];
+            }
+            return array;
+        }
+
+    }
+
+}
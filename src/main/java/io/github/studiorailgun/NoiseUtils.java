@@ -5,6 +5,131 @@ package io.github.studiorailgun;
  */
 public class NoiseUtils {
 
+    /**
+     * The types of cellular noise that can be evaluated in bulk
+     */
+    public static enum CellNoiseType {
+        /**
+         * {@link NoiseUtils#voronoi(double, double, double)}
+         */
+        VORONOI,
+        /**
+         * {@link NoiseUtils#voronoiRelaxed(double, double, double, double)}, the parameter is the relaxation factor
+         */
+        VORONOI_RELAXED,
+        /**
+         * {@link NoiseUtils#smoothVoronoi(double, double, double, double)}, the parameter is the falloff
+         */
+        SMOOTH_VORONOI,
+        /**
+         * {@link NoiseUtils#smoothVoronoiFast(double, double, double, double)}, the parameter is the falloff.
+         * The double precision bulk functions skip the same cells as the scalar function, so their values are identical to it.
+         */
+        SMOOTH_VORONOI_FAST,
+        /**
+         * {@link NoiseUtils#diamond(double, double, double)}
+         */
+        DIAMOND,
+        /**
+         * {@link NoiseUtils#diamondSharp(double, double, double)}
+         */
+        DIAMOND_SHARP,
+    }
+
+    /**
+     * Receives points enumerated by {@link NoiseUtils#relaxedPoints(double, double, double, double, double, RelaxedPointConsumer)}
+     */
+    public static interface RelaxedPointConsumer {
+        /**
+         * Accepts a point
+         * @param x The x coordinate of the point
+         * @param y The y coordinate of the point
+         */
+        public void accept(double x, double y);
+    }
+
+    /**
+     * Fetches the feature points of a sample's neighborhood for {@link NoiseUtils#smoothVoronoiFast(double, double, double, double, NeighborPoints, double[])}
+     */
+    private static interface NeighborPoints {
+        /**
+         * Gets the feature point of a neighboring cell
+         * @param i The index of the cell in the center-outwards 3x3x3 kernel
+         * @param out Filled with the point, relative to the sample's cell (ie with the kernel offset applied)
+         */
+        public void get(int i, double[] out);
+    }
+
+    /**
+     * Index of the closest distance in the output of {@link NoiseUtils#voronoiSample(double, double, double, double[])}
+     */
+    public static final int SAMPLE_F1 = 0;
+
+    /**
+     * Index of the second closest distance in the output of {@link NoiseUtils#voronoiSample(double, double, double, double[])}
+     */
+    public static final int SAMPLE_F2 = 1;
+
+    /**
+     * Index of the third closest distance in the output of {@link NoiseUtils#voronoiSample(double, double, double, double[])}
+     */
+    public static final int SAMPLE_F3 = 2;
+
+    /**
+     * Index of the closest cell's x coordinate in the output of {@link NoiseUtils#voronoiSample(double, double, double, double[])}
+     */
+    public static final int SAMPLE_CELL_X = 3;
+
+    /**
+     * Index of the closest cell's y coordinate in the output of {@link NoiseUtils#voronoiSample(double, double, double, double[])}
+     */
+    public static final int SAMPLE_CELL_Y = 4;
+
+    /**
+     * Index of the closest cell's z coordinate in the output of {@link NoiseUtils#voronoiSample(double, double, double, double[])}
+     */
+    public static final int SAMPLE_CELL_Z = 5;
+
+    /**
+     * Index of the noise value in the output of the gradient functions
+     */
+    public static final int GRADIENT_VALUE = 0;
+
+    /**
+     * Index of the x component of the gradient in the output of the gradient functions
+     */
+    public static final int GRADIENT_X = 1;
+
+    /**
+     * Index of the y component of the gradient in the output of the gradient functions
+     */
+    public static final int GRADIENT_Y = 2;
+
+    /**
+     * Index of the z component of the gradient in the output of the gradient functions
+     */
+    public static final int GRADIENT_Z = 3;
+
+    /**
+     * Approximate smooth voronoi skips points whose falloff-scaled distance is this much farther than the closest point's (a relative weight of e^-20, roughly 2e-9)
+     */
+    private static final float SMOOTH_FAST_CUTOFF = 20.0f;
+
+    /**
+     * The maximum number of cells per sample a slab of cached feature points may hold before the grid falls back to per-sample evaluation
+     */
+    private static final int GRID_MAX_CELLS_PER_SAMPLE = 9;
+
+    /**
+     * The vector kernel of the single precision batch functions, null if the vector module isn't present
+     */
+    private static final FloatCellKernel FLOAT_CELL_KERNEL = FloatCellKernel.load();
+
+    /**
+     * Per-thread buffer that {@link NoiseUtils#sample(CellNoiseType, double, double, double, double, FeaturePointCache)} reads cached points into
+     */
+    private static final ThreadLocal<double[]> CACHE_POINT_BUFFER = ThreadLocal.withInitial(() -> new double[3]);
+
     /**
      * x offsets for a 3x3x3 kernel
      */
@@ -51,7 +176,61 @@ public class NoiseUtils {
     };
 
     /**
-     * Calculates voronoi noise within a cube
+     * x offsets for a 3x3x3 kernel, ordered from the center outwards (center, faces, edges, corners)
+     */
+    private static final int[] KERNEL_3_3_3_NEAREST_X = new int[]{
+        0,
+        1, -1, 0, 0, 0, 0,
+        1, 1, -1, -1, 1, 1, -1, -1, 0, 0, 0, 0,
+        1, 1, 1, 1, -1, -1, -1, -1,
+    };
+
+    /**
+     * y offsets for a 3x3x3 kernel, ordered from the center outwards (center, faces, edges, corners)
+     */
+    private static final int[] KERNEL_3_3_3_NEAREST_Y = new int[]{
+        0,
+        0, 0, 1, -1, 0, 0,
+        1, -1, 1, -1, 0, 0, 0, 0, 1, 1, -1, -1,
+        1, 1, -1, -1, 1, 1, -1, -1,
+    };
+
+    /**
+     * z offsets for a 3x3x3 kernel, ordered from the center outwards (center, faces, edges, corners)
+     */
+    private static final int[] KERNEL_3_3_3_NEAREST_Z = new int[]{
+        0,
+        0, 0, 0, 0, 1, -1,
+        0, 0, 0, 0, 1, -1, 1, -1, 1, -1, 1, -1,
+        1, -1, 1, -1, 1, -1, 1, -1,
+    };
+
+    /**
+     * Index in the 3x3x3 kernel of each cell of the 3x3x3 kernel ordered from the center outwards
+     */
+    private static final int[] KERNEL_3_3_3_NEAREST_INDEX = NoiseUtils.nearestKernelIndices();
+
+    /**
+     * x offsets for a 3x3 kernel, ordered from the center outwards (center, edges, corners)
+     */
+    private static final int[] KERNEL_3_3_NEAREST_X = new int[]{
+        0,
+        1, -1, 0, 0,
+        1, 1, -1, -1,
+    };
+
+    /**
+     * y offsets for a 3x3 kernel, ordered from the center outwards (center, edges, corners)
+     */
+    private static final int[] KERNEL_3_3_NEAREST_Y = new int[]{
+        0,
+        0, 0, 1, -1,
+        1, -1, 1, -1,
+    };
+
+    /**
+     * Calculates voronoi noise within a cube.
+     * Cells are visited from the center outwards, skipping any cell that cannot hold a point closer than the closest found so far.
      * @param x The x coordinate
      * @param y The y coordinate
      * @param z The z coordinate
@@ -68,30 +247,40 @@ public class NoiseUtils {
         double y_r = y - y_i;
         double z_r = z - z_i;
 
-        //calculate min dist
-        double minDist = 10.0;
-        for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+        //calculate min squared dist
+        double minDistSq = 100.0;
+        for(int i = 0; i < KERNEL_3_3_3_NEAREST_X.length; i++){
+            int k_x = KERNEL_3_3_3_NEAREST_X[i];
+            int k_y = KERNEL_3_3_3_NEAREST_Y[i];
+            int k_z = KERNEL_3_3_3_NEAREST_Z[i];
+
+            //skip cells whose closest possible point is farther than the current min
+            if(NoiseUtils.cellBoundSq(k_x, x_r) + NoiseUtils.cellBoundSq(k_y, y_r) + NoiseUtils.cellBoundSq(k_z, z_r) >= minDistSq){
+                continue;
+            }
+
             //the point of this cell
-            double p_x = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 0);
-            double p_y = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 1);
-            double p_z = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 2);
+            double p_x = RandUtils.rand(x_i + k_x, y_i + k_y, z_i + k_z, 0);
+            double p_y = RandUtils.rand(x_i + k_x, y_i + k_y, z_i + k_z, 1);
+            double p_z = RandUtils.rand(x_i + k_x, y_i + k_y, z_i + k_z, 2);
 
             //dist calc + comparison
-            double dist = Math.sqrt(
-                (p_x + KERNEL_3_3_3_X[i] - x_r) * (p_x + KERNEL_3_3_3_X[i] - x_r) +
-                (p_y + KERNEL_3_3_3_Y[i] - y_r) * (p_y + KERNEL_3_3_3_Y[i] - y_r) +
-                (p_z + KERNEL_3_3_3_Z[i] - z_r) * (p_z + KERNEL_3_3_3_Z[i] - z_r)
-            );
-            if(dist < minDist){
-                minDist = dist;
+            double distSq =
+                (p_x + k_x - x_r) * (p_x + k_x - x_r) +
+                (p_y + k_y - y_r) * (p_y + k_y - y_r) +
+                (p_z + k_z - z_r) * (p_z + k_z - z_r)
+            ;
+            if(distSq < minDistSq){
+                minDistSq = distSq;
             }
         }
 
-        return minDist;
+        return Math.sqrt(minDistSq);
     }
 
     /**
-     * Calculates voronoi noise on a 2d plane
+     * Calculates voronoi noise on a 2d plane.
+     * This samples the 3d noise at z=0; {@link NoiseUtils#voronoi2d(double, double)} is a cheaper true 2d noise.
      * @param x The x coordinate
      * @param y The y coordinate
      * @return The voronoi value
@@ -100,6 +289,74 @@ public class NoiseUtils {
         return voronoi(x, y, 0);
     }
 
+    /**
+     * Calculates voronoi noise on a 2d plane with a 3x3 kernel.
+     * Cells are visited from the center outwards, skipping any cell that cannot hold a point closer than the closest found so far.
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @return The voronoi value
+     */
+    public static double voronoi2d(double x, double y){
+        //integer of the point coordinates
+        double x_i = Math.floor(x);
+        double y_i = Math.floor(y);
+
+        //remainders of the point coordinates
+        double x_r = x - x_i;
+        double y_r = y - y_i;
+
+        //calculate min squared dist
+        double minDistSq = 100.0;
+        for(int i = 0; i < KERNEL_3_3_NEAREST_X.length; i++){
+            int k_x = KERNEL_3_3_NEAREST_X[i];
+            int k_y = KERNEL_3_3_NEAREST_Y[i];
+
+            //skip cells whose closest possible point is farther than the current min
+            if(NoiseUtils.cellBoundSq(k_x, x_r) + NoiseUtils.cellBoundSq(k_y, y_r) >= minDistSq){
+                continue;
+            }
+
+            //the point of this cell
+            double p_x = RandUtils.rand(x_i + k_x, y_i + k_y, 0);
+            double p_y = RandUtils.rand(x_i + k_x, y_i + k_y, 1);
+
+            //dist calc + comparison
+            double distSq = (p_x + k_x - x_r) * (p_x + k_x - x_r) + (p_y + k_y - y_r) * (p_y + k_y - y_r);
+            if(distSq < minDistSq){
+                minDistSq = distSq;
+            }
+        }
+
+        return Math.sqrt(minDistSq);
+    }
+
+    /**
+     * Maps each cell of the center-outwards 3x3x3 kernel to its index in the 3x3x3 kernel
+     * @return The indices
+     */
+    private static int[] nearestKernelIndices(){
+        int[] rVal = new int[KERNEL_3_3_3_NEAREST_X.length];
+        for(int i = 0; i < rVal.length; i++){
+            rVal[i] = (1 - KERNEL_3_3_3_NEAREST_Z[i]) * 9 + (1 - KERNEL_3_3_3_NEAREST_Y[i]) * 3 + (1 - KERNEL_3_3_3_NEAREST_X[i]);
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the squared distance along one axis from a point to the closest edge of a neighboring cell
+     * @param offset The offset of the neighboring cell along the axis (-1, 0 or 1)
+     * @param remainder The position of the point within its own cell along the axis
+     * @return The squared distance
+     */
+    private static double cellBoundSq(int offset, double remainder){
+        if(offset > 0){
+            return (1.0 - remainder) * (1.0 - remainder);
+        } else if(offset < 0){
+            return remainder * remainder;
+        }
+        return 0;
+    }
+
     /**
      * Generates relaxed points
      * @param x The x position
@@ -135,7 +392,76 @@ public class NoiseUtils {
     }
 
     /**
-     * Calculates voronoi noise within a cube
+     * Enumerates the relaxed points within a rectangle.
+     * These are the points that {@link NoiseUtils#relaxedPointGen(double, double, double, double)} returns 1 around, one per unit cell.
+     * @param minX The minimum x coordinate of the rectangle (inclusive)
+     * @param minY The minimum y coordinate of the rectangle (inclusive)
+     * @param maxX The maximum x coordinate of the rectangle (exclusive)
+     * @param maxY The maximum y coordinate of the rectangle (exclusive)
+     * @param relaxationFactor A parameter to control how uniform the points are. Essentially, the higher this is, the more uniform the points will be. Ranges (0,1)
+     * @param consumer Receives each point
+     */
+    public static void relaxedPoints(double minX, double minY, double maxX, double maxY, double relaxationFactor, RelaxedPointConsumer consumer){
+        double cellMinX = Math.floor(minX);
+        double cellMinY = Math.floor(minY);
+        for(double x_i = cellMinX; x_i < maxX; x_i++){
+            for(double y_i = cellMinY; y_i < maxY; y_i++){
+                //calculate the current cell's point
+                double cell_x = RandUtils.rand(x_i,y_i,0);
+                double cell_y = RandUtils.rand(x_i,y_i,1);
+
+                //relax the point
+                double x_relaxed = x_i + cell_x * (1.0 - relaxationFactor) + (relaxationFactor / 2.0);
+                double y_relaxed = y_i + cell_y * (1.0 - relaxationFactor) + (relaxationFactor / 2.0);
+
+                if(x_relaxed >= minX && x_relaxed < maxX && y_relaxed >= minY && y_relaxed < maxY){
+                    consumer.accept(x_relaxed, y_relaxed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Enumerates the relaxed points within a rectangle into an array of interleaved x,y coordinates.
+     * These are the points that {@link NoiseUtils#relaxedPointGen(double, double, double, double)} returns 1 around, one per unit cell.
+     * If the array is too small, the points that don't fit are counted but not stored.
+     * @param minX The minimum x coordinate of the rectangle (inclusive)
+     * @param minY The minimum y coordinate of the rectangle (inclusive)
+     * @param maxX The maximum x coordinate of the rectangle (exclusive)
+     * @param maxY The maximum y coordinate of the rectangle (exclusive)
+     * @param relaxationFactor A parameter to control how uniform the points are. Essentially, the higher this is, the more uniform the points will be. Ranges (0,1)
+     * @param out The array to store the points in
+     * @return The number of points within the rectangle
+     */
+    public static int relaxedPoints(double minX, double minY, double maxX, double maxY, double relaxationFactor, double[] out){
+        double cellMinX = Math.floor(minX);
+        double cellMinY = Math.floor(minY);
+        int count = 0;
+        for(double x_i = cellMinX; x_i < maxX; x_i++){
+            for(double y_i = cellMinY; y_i < maxY; y_i++){
+                //calculate the current cell's point
+                double cell_x = RandUtils.rand(x_i,y_i,0);
+                double cell_y = RandUtils.rand(x_i,y_i,1);
+
+                //relax the point
+                double x_relaxed = x_i + cell_x * (1.0 - relaxationFactor) + (relaxationFactor / 2.0);
+                double y_relaxed = y_i + cell_y * (1.0 - relaxationFactor) + (relaxationFactor / 2.0);
+
+                if(x_relaxed >= minX && x_relaxed < maxX && y_relaxed >= minY && y_relaxed < maxY){
+                    if(count * 2 + 1 < out.length){
+                        out[count * 2] = x_relaxed;
+                        out[count * 2 + 1] = y_relaxed;
+                    }
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Calculates voronoi noise within a cube.
+     * Cells are visited from the center outwards and, for relaxation factors within [0,1], any cell that cannot hold a point closer than the closest found so far is skipped.
      * @param x The x coordinate
      * @param y The y coordinate
      * @param z The z coordinate
@@ -153,13 +479,25 @@ public class NoiseUtils {
         double y_r = y - y_i;
         double z_r = z - z_i;
 
-        //calculate min dist
-        double minDist = 10.0;
-        for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+        //relaxed points only stay within their cell for factors in [0,1]
+        boolean prune = relaxationFactor >= 0 && relaxationFactor <= 1;
+
+        //calculate min squared dist
+        double minDistSq = 100.0;
+        for(int i = 0; i < KERNEL_3_3_3_NEAREST_X.length; i++){
+            int k_x = KERNEL_3_3_3_NEAREST_X[i];
+            int k_y = KERNEL_3_3_3_NEAREST_Y[i];
+            int k_z = KERNEL_3_3_3_NEAREST_Z[i];
+
+            //skip cells whose closest possible point is farther than the current min
+            if(prune && NoiseUtils.cellBoundSq(k_x, x_r) + NoiseUtils.cellBoundSq(k_y, y_r) + NoiseUtils.cellBoundSq(k_z, z_r) >= minDistSq){
+                continue;
+            }
+
             //the point of this cell
-            double p_x = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 0);
-            double p_y = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 1);
-            double p_z = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 2);
+            double p_x = RandUtils.rand(x_i + k_x, y_i + k_y, z_i + k_z, 0);
+            double p_y = RandUtils.rand(x_i + k_x, y_i + k_y, z_i + k_z, 1);
+            double p_z = RandUtils.rand(x_i + k_x, y_i + k_y, z_i + k_z, 2);
 
             //relax the point
             double x_relaxed = p_x * (1.0 - relaxationFactor) + (relaxationFactor / 2.0);
@@ -167,21 +505,22 @@ public class NoiseUtils {
             double z_relaxed = p_z * (1.0 - relaxationFactor) + (relaxationFactor / 2.0);
 
             //dist calc + comparison
-            double dist = Math.sqrt(
-                (x_relaxed + KERNEL_3_3_3_X[i] - x_r) * (x_relaxed + KERNEL_3_3_3_X[i] - x_r) +
-                (y_relaxed + KERNEL_3_3_3_Y[i] - y_r) * (y_relaxed + KERNEL_3_3_3_Y[i] - y_r) +
-                (z_relaxed + KERNEL_3_3_3_Z[i] - z_r) * (z_relaxed + KERNEL_3_3_3_Z[i] - z_r)
-            );
-            if(dist < minDist){
-                minDist = dist;
+            double distSq =
+                (x_relaxed + k_x - x_r) * (x_relaxed + k_x - x_r) +
+                (y_relaxed + k_y - y_r) * (y_relaxed + k_y - y_r) +
+                (z_relaxed + k_z - z_r) * (z_relaxed + k_z - z_r)
+            ;
+            if(distSq < minDistSq){
+                minDistSq = distSq;
             }
         }
 
-        return minDist;
+        return Math.sqrt(minDistSq);
     }
 
     /**
-     * Calculates voronoi noise on a 2d plane
+     * Calculates voronoi noise on a 2d plane.
+     * This samples the 3d noise at z=0; {@link NoiseUtils#voronoiRelaxed2d(double, double, double)} is a cheaper true 2d noise.
      * @param x The x coordinate
      * @param y The y coordinate
      * @param relaxationFactor The relaxation factor
@@ -191,6 +530,56 @@ public class NoiseUtils {
         return NoiseUtils.voronoiRelaxed(x, y, 0, relaxationFactor);
     }
 
+    /**
+     * Calculates relaxed voronoi noise on a 2d plane with a 3x3 kernel.
+     * The feature points are the same points generated by {@link NoiseUtils#relaxedPointGen(double, double, double, double)}.
+     * Cells are visited from the center outwards and, for relaxation factors within [0,1], any cell that cannot hold a point closer than the closest found so far is skipped.
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param relaxationFactor The relaxation factor
+     * @return The voronoi value
+     */
+    public static double voronoiRelaxed2d(double x, double y, double relaxationFactor){
+        //integer of the point coordinates
+        double x_i = Math.floor(x);
+        double y_i = Math.floor(y);
+
+        //remainders of the point coordinates
+        double x_r = x - x_i;
+        double y_r = y - y_i;
+
+        //relaxed points only stay within their cell for factors in [0,1]
+        boolean prune = relaxationFactor >= 0 && relaxationFactor <= 1;
+
+        //calculate min squared dist
+        double minDistSq = 100.0;
+        for(int i = 0; i < KERNEL_3_3_NEAREST_X.length; i++){
+            int k_x = KERNEL_3_3_NEAREST_X[i];
+            int k_y = KERNEL_3_3_NEAREST_Y[i];
+
+            //skip cells whose closest possible point is farther than the current min
+            if(prune && NoiseUtils.cellBoundSq(k_x, x_r) + NoiseUtils.cellBoundSq(k_y, y_r) >= minDistSq){
+                continue;
+            }
+
+            //the point of this cell
+            double p_x = RandUtils.rand(x_i + k_x, y_i + k_y, 0);
+            double p_y = RandUtils.rand(x_i + k_x, y_i + k_y, 1);
+
+            //relax the point
+            double x_relaxed = p_x * (1.0 - relaxationFactor) + (relaxationFactor / 2.0);
+            double y_relaxed = p_y * (1.0 - relaxationFactor) + (relaxationFactor / 2.0);
+
+            //dist calc + comparison
+            double distSq = (x_relaxed + k_x - x_r) * (x_relaxed + k_x - x_r) + (y_relaxed + k_y - y_r) * (y_relaxed + k_y - y_r);
+            if(distSq < minDistSq){
+                minDistSq = distSq;
+            }
+        }
+
+        return Math.sqrt(minDistSq);
+    }
+
 
     /**
      * Calculates a smooth voronoi noise value
@@ -232,13 +621,18 @@ public class NoiseUtils {
     }
 
     /**
-     * Samples a diamond-like noise pattern based on voronoi noise
-     * @param x The x coordinate
-     * @param y The y coordinate
-     * @param z The z coordinate
-     * @return The noise value
+     * Calculates an approximate smooth voronoi noise value using {@link MathUtils#fastExp(double)} and {@link MathUtils#fastLog(double)}.
+     * The exponentials are summed relative to the closest point, and, for positive falloffs, points whose term would be below e^-SMOOTH_FAST_CUTOFF of the closest point's are skipped.
+     * Cells are visited from the center outwards so that whole cells can be skipped without computing their points.
+     * The bulk, grid and cached functions run the same kernel, so their values are identical to this function's.
+     * The maximum absolute error against {@link NoiseUtils#smoothVoronoi(double, double, double, double)} is 6e-8 / falloff.
+     * @param x The x value
+     * @param y The y value
+     * @param z The z value
+     * @param falloff The falloff (recommended values in range (4,256] )
+     * @return The smooth voronoi noise value
      */
-    public static double diamond(double x, double y, double z){
+    public static double smoothVoronoiFast(double x, double y, double z, double falloff){
         //integer of the point coordinates
         double x_i = Math.floor(x);
         double y_i = Math.floor(y);
@@ -249,48 +643,74 @@ public class NoiseUtils {
         double y_r = y - y_i;
         double z_r = z - z_i;
 
-        //calculate min dist
+        return NoiseUtils.smoothVoronoiFast(falloff, x_r, y_r, z_r, (i, out) -> {
+            int k_x = KERNEL_3_3_3_NEAREST_X[i];
+            int k_y = KERNEL_3_3_3_NEAREST_Y[i];
+            int k_z = KERNEL_3_3_3_NEAREST_Z[i];
+            out[0] = RandUtils.rand(x_i + k_x, y_i + k_y, z_i + k_z, 0) + k_x;
+            out[1] = RandUtils.rand(x_i + k_x, y_i + k_y, z_i + k_z, 1) + k_y;
+            out[2] = RandUtils.rand(x_i + k_x, y_i + k_y, z_i + k_z, 2) + k_z;
+        }, new double[3]);
+    }
+
+    /**
+     * The kernel of {@link NoiseUtils#smoothVoronoiFast(double, double, double, double)}, shared by every function that computes it.
+     * The exponentials are summed relative to the closest point, and, for positive falloffs, points whose term would be below e^-SMOOTH_FAST_CUTOFF of the closest point's are skipped.
+     * Cells are visited from the center outwards so that whole cells can be skipped without fetching their points.
+     * @param falloff The falloff
+     * @param x_r The x remainder of the sample within its cell
+     * @param y_r The y remainder of the sample within its cell
+     * @param z_r The z remainder of the sample within its cell
+     * @param points Fetches the feature points of the cells that aren't skipped
+     * @param point The buffer to fetch points into
+     * @return The noise value
+     */
+    private static double smoothVoronoiFast(double falloff, double x_r, double y_r, double z_r, NeighborPoints points, double[] point){
+        //terms only shrink with distance for positive falloffs
+        boolean prune = falloff > 0;
+
+        //sum of the exponentials relative to the closest point
         double minDist = 10.0;
-        double minDist2 = 10.0;
-        double minDist3 = 10.0;
-        for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+        double res = 0.0;
+        for(int i = 0; i < KERNEL_3_3_3_NEAREST_X.length; i++){
+            //skip cells that cannot meaningfully change the sum
+            if(prune){
+                double boundSq = NoiseUtils.cellBoundSq(KERNEL_3_3_3_NEAREST_X[i], x_r) + NoiseUtils.cellBoundSq(KERNEL_3_3_3_NEAREST_Y[i], y_r) + NoiseUtils.cellBoundSq(KERNEL_3_3_3_NEAREST_Z[i], z_r);
+                if(falloff * (Math.sqrt(boundSq) - minDist) >= SMOOTH_FAST_CUTOFF){
+                    continue;
+                }
+            }
+
             //the point of this cell
-            double p_x = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 0);
-            double p_y = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 1);
-            double p_z = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 2);
+            points.get(i, point);
 
-            //dist calc + comparison
+            //dist calc + accumulation
             double dist = Math.sqrt(
-                (p_x + KERNEL_3_3_3_X[i] - x_r) * (p_x + KERNEL_3_3_3_X[i] - x_r) +
-                (p_y + KERNEL_3_3_3_Y[i] - y_r) * (p_y + KERNEL_3_3_3_Y[i] - y_r) +
-                (p_z + KERNEL_3_3_3_Z[i] - z_r) * (p_z + KERNEL_3_3_3_Z[i] - z_r)
+                (point[0] - x_r) * (point[0] - x_r) +
+                (point[1] - y_r) * (point[1] - y_r) +
+                (point[2] - z_r) * (point[2] - z_r)
             );
             if(dist < minDist){
-                minDist3 = minDist2;
-                minDist2 = minDist;
+                res = res * MathUtils.fastExp(-falloff * (minDist - dist)) + 1.0;
                 minDist = dist;
-            } else if(dist < minDist2){
-                minDist3 = minDist2;
-                minDist2 = dist;
-            } else if(dist < minDist3){
-                minDist3 = dist;
+            } else if(!prune || falloff * (dist - minDist) < SMOOTH_FAST_CUTOFF){
+                res = res + MathUtils.fastExp(-falloff * (dist - minDist));
             }
         }
 
-        double triPointDiff = Math.max(Math.max(Math.abs(minDist - minDist3),Math.abs(minDist2 - minDist3)),Math.abs(minDist - minDist2));
-        minDist = minDist * (triPointDiff);
-
-        return minDist;
+        return minDist - (1.0/falloff)*MathUtils.fastLog(res);
     }
 
     /**
-     * Samples a variant of the diamond noise that should have sharper minimums
+     * Calculates voronoi noise within a cube along with its analytic gradient.
+     * The value is identical to {@link NoiseUtils#voronoi(double, double, double)}; the gradient is the unit vector pointing away from the closest feature point.
+     * The results are stored at the GRADIENT_* indices of the output array.
      * @param x The x coordinate
      * @param y The y coordinate
      * @param z The z coordinate
-     * @return The noise value
+     * @param out The array to store the value and gradient in (must hold at least 4 values)
      */
-    public static double diamondSharp(double x, double y, double z){
+    public static void voronoiGradient(double x, double y, double z, double[] out){
         //integer of the point coordinates
         double x_i = Math.floor(x);
         double y_i = Math.floor(y);
@@ -301,25 +721,193 @@ public class NoiseUtils {
         double y_r = y - y_i;
         double z_r = z - z_i;
 
-        //calculate min dist
-        double minDist = 10.0;
-        double minDist2 = 10.0;
-        double minDist3 = 10.0;
-        for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+        //calculate min squared dist and the offset to the closest point
+        double minDistSq = 100.0;
+        double minD_x = 0;
+        double minD_y = 0;
+        double minD_z = 0;
+        for(int i = 0; i < KERNEL_3_3_3_NEAREST_X.length; i++){
+            int k_x = KERNEL_3_3_3_NEAREST_X[i];
+            int k_y = KERNEL_3_3_3_NEAREST_Y[i];
+            int k_z = KERNEL_3_3_3_NEAREST_Z[i];
+
+            //skip cells whose closest possible point is farther than the current min
+            if(NoiseUtils.cellBoundSq(k_x, x_r) + NoiseUtils.cellBoundSq(k_y, y_r) + NoiseUtils.cellBoundSq(k_z, z_r) >= minDistSq){
+                continue;
+            }
+
             //the point of this cell
-            double p_x = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 0);
-            double p_y = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 1);
-            double p_z = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 2);
+            double p_x = RandUtils.rand(x_i + k_x, y_i + k_y, z_i + k_z, 0);
+            double p_y = RandUtils.rand(x_i + k_x, y_i + k_y, z_i + k_z, 1);
+            double p_z = RandUtils.rand(x_i + k_x, y_i + k_y, z_i + k_z, 2);
 
             //dist calc + comparison
-            double dist = Math.sqrt(
-                (p_x + KERNEL_3_3_3_X[i] - x_r) * (p_x + KERNEL_3_3_3_X[i] - x_r) +
-                (p_y + KERNEL_3_3_3_Y[i] - y_r) * (p_y + KERNEL_3_3_3_Y[i] - y_r) +
-                (p_z + KERNEL_3_3_3_Z[i] - z_r) * (p_z + KERNEL_3_3_3_Z[i] - z_r)
-            );
-            if(dist < minDist){
-                minDist3 = minDist2;
-                minDist2 = minDist;
+            double d_x = p_x + k_x - x_r;
+            double d_y = p_y + k_y - y_r;
+            double d_z = p_z + k_z - z_r;
+            double distSq = d_x * d_x + d_y * d_y + d_z * d_z;
+            if(distSq < minDistSq){
+                minDistSq = distSq;
+                minD_x = d_x;
+                minD_y = d_y;
+                minD_z = d_z;
+            }
+        }
+
+        double minDist = Math.sqrt(minDistSq);
+        out[GRADIENT_VALUE] = minDist;
+        if(minDist > 0){
+            out[GRADIENT_X] = -minD_x / minDist;
+            out[GRADIENT_Y] = -minD_y / minDist;
+            out[GRADIENT_Z] = -minD_z / minDist;
+        } else {
+            out[GRADIENT_X] = 0;
+            out[GRADIENT_Y] = 0;
+            out[GRADIENT_Z] = 0;
+        }
+    }
+
+    /**
+     * Calculates a smooth voronoi noise value along with its analytic gradient.
+     * The value is identical to {@link NoiseUtils#smoothVoronoi(double, double, double, double)}; the gradient is the exponentially weighted average of the unit vectors pointing away from each feature point.
+     * The results are stored at the GRADIENT_* indices of the output array.
+     * @param x The x value
+     * @param y The y value
+     * @param z The z value
+     * @param falloff The falloff (recommended values in range (4,256] )
+     * @param out The array to store the value and gradient in (must hold at least 4 values)
+     */
+    public static void smoothVoronoiGradient(double x, double y, double z, double falloff, double[] out){
+        //integer of the point coordinates
+        double x_i = Math.floor(x);
+        double y_i = Math.floor(y);
+        double z_i = Math.floor(z);
+
+        //remainders of the point coordinates
+        double x_r = x - x_i;
+        double y_r = y - y_i;
+        double z_r = z - z_i;
+
+        //sum of the weights and of the weighted distance derivatives
+        double res = 0.0;
+        double grad_x = 0.0;
+        double grad_y = 0.0;
+        double grad_z = 0.0;
+        for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+            //the point of this cell
+            double p_x = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 0);
+            double p_y = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 1);
+            double p_z = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 2);
+
+            //dist calc + accumulation
+            double d_x = p_x + KERNEL_3_3_3_X[i] - x_r;
+            double d_y = p_y + KERNEL_3_3_3_Y[i] - y_r;
+            double d_z = p_z + KERNEL_3_3_3_Z[i] - z_r;
+            double dist = Math.sqrt(d_x * d_x + d_y * d_y + d_z * d_z);
+            double weight = Math.exp(-falloff * dist);
+            res = res + weight;
+            if(dist > 0){
+                grad_x = grad_x - weight * d_x / dist;
+                grad_y = grad_y - weight * d_y / dist;
+                grad_z = grad_z - weight * d_z / dist;
+            }
+        }
+
+        out[GRADIENT_VALUE] = -(1.0/falloff)*Math.log(res);
+        out[GRADIENT_X] = grad_x / res;
+        out[GRADIENT_Y] = grad_y / res;
+        out[GRADIENT_Z] = grad_z / res;
+    }
+
+    /**
+     * Samples a diamond-like noise pattern based on voronoi noise
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The noise value
+     */
+    public static double diamond(double x, double y, double z){
+        //integer of the point coordinates
+        double x_i = Math.floor(x);
+        double y_i = Math.floor(y);
+        double z_i = Math.floor(z);
+
+        //remainders of the point coordinates
+        double x_r = x - x_i;
+        double y_r = y - y_i;
+        double z_r = z - z_i;
+
+        //calculate min dist
+        double minDist = 10.0;
+        double minDist2 = 10.0;
+        double minDist3 = 10.0;
+        for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+            //the point of this cell
+            double p_x = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 0);
+            double p_y = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 1);
+            double p_z = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 2);
+
+            //dist calc + comparison
+            double dist = Math.sqrt(
+                (p_x + KERNEL_3_3_3_X[i] - x_r) * (p_x + KERNEL_3_3_3_X[i] - x_r) +
+                (p_y + KERNEL_3_3_3_Y[i] - y_r) * (p_y + KERNEL_3_3_3_Y[i] - y_r) +
+                (p_z + KERNEL_3_3_3_Z[i] - z_r) * (p_z + KERNEL_3_3_3_Z[i] - z_r)
+            );
+            if(dist < minDist){
+                minDist3 = minDist2;
+                minDist2 = minDist;
+                minDist = dist;
+            } else if(dist < minDist2){
+                minDist3 = minDist2;
+                minDist2 = dist;
+            } else if(dist < minDist3){
+                minDist3 = dist;
+            }
+        }
+
+        double triPointDiff = Math.max(Math.max(Math.abs(minDist - minDist3),Math.abs(minDist2 - minDist3)),Math.abs(minDist - minDist2));
+        minDist = minDist * (triPointDiff);
+
+        return minDist;
+    }
+
+    /**
+     * Samples a variant of the diamond noise that should have sharper minimums
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The noise value
+     */
+    public static double diamondSharp(double x, double y, double z){
+        //integer of the point coordinates
+        double x_i = Math.floor(x);
+        double y_i = Math.floor(y);
+        double z_i = Math.floor(z);
+
+        //remainders of the point coordinates
+        double x_r = x - x_i;
+        double y_r = y - y_i;
+        double z_r = z - z_i;
+
+        //calculate min dist
+        double minDist = 10.0;
+        double minDist2 = 10.0;
+        double minDist3 = 10.0;
+        for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+            //the point of this cell
+            double p_x = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 0);
+            double p_y = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 1);
+            double p_z = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 2);
+
+            //dist calc + comparison
+            double dist = Math.sqrt(
+                (p_x + KERNEL_3_3_3_X[i] - x_r) * (p_x + KERNEL_3_3_3_X[i] - x_r) +
+                (p_y + KERNEL_3_3_3_Y[i] - y_r) * (p_y + KERNEL_3_3_3_Y[i] - y_r) +
+                (p_z + KERNEL_3_3_3_Z[i] - z_r) * (p_z + KERNEL_3_3_3_Z[i] - z_r)
+            );
+            if(dist < minDist){
+                minDist3 = minDist2;
+                minDist2 = minDist;
                 minDist = dist;
             } else if(dist < minDist2){
                 minDist3 = minDist2;
@@ -335,5 +923,1193 @@ public class NoiseUtils {
 
         return minDist;
     }
-    
+
+    /**
+     * Walks the voronoi kernel once, finding the three closest feature points and the cell of the closest one.
+     * The distances are identical to those used by {@link NoiseUtils#voronoi(double, double, double)}, {@link NoiseUtils#diamond(double, double, double)} and {@link NoiseUtils#diamondSharp(double, double, double)}.
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param out The sample to store the result in
+     * @return The sample
+     */
+    public static VoronoiSample voronoiSample(double x, double y, double z, VoronoiSample out){
+        NoiseUtils.voronoiSample(x, y, z, out, null);
+        return out;
+    }
+
+    /**
+     * Walks the voronoi kernel once, finding the three closest feature points and the cell of the closest one.
+     * The values are stored at the SAMPLE_* indices of the output array.
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param out The array to store the result in (must hold at least 6 values)
+     */
+    public static void voronoiSample(double x, double y, double z, double[] out){
+        NoiseUtils.voronoiSample(x, y, z, null, out);
+    }
+
+    /**
+     * Walks the voronoi kernel once, finding the three closest feature points and the cell of the closest one
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param sampleOut The sample to store the result in, or null if storing in the array
+     * @param arrayOut The array to store the result in, or null if storing in the sample
+     */
+    private static void voronoiSample(double x, double y, double z, VoronoiSample sampleOut, double[] arrayOut){
+        //integer of the point coordinates
+        double x_i = Math.floor(x);
+        double y_i = Math.floor(y);
+        double z_i = Math.floor(z);
+
+        //remainders of the point coordinates
+        double x_r = x - x_i;
+        double y_r = y - y_i;
+        double z_r = z - z_i;
+
+        //calculate min dist
+        double minDist = 10.0;
+        double minDist2 = 10.0;
+        double minDist3 = 10.0;
+        int minIndex = 0;
+        for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+            //the point of this cell
+            double p_x = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 0);
+            double p_y = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 1);
+            double p_z = RandUtils.rand(x_i + KERNEL_3_3_3_X[i], y_i + KERNEL_3_3_3_Y[i], z_i + KERNEL_3_3_3_Z[i], 2);
+
+            //dist calc + comparison
+            double dist = Math.sqrt(
+                (p_x + KERNEL_3_3_3_X[i] - x_r) * (p_x + KERNEL_3_3_3_X[i] - x_r) +
+                (p_y + KERNEL_3_3_3_Y[i] - y_r) * (p_y + KERNEL_3_3_3_Y[i] - y_r) +
+                (p_z + KERNEL_3_3_3_Z[i] - z_r) * (p_z + KERNEL_3_3_3_Z[i] - z_r)
+            );
+            if(dist < minDist){
+                minDist3 = minDist2;
+                minDist2 = minDist;
+                minDist = dist;
+                minIndex = i;
+            } else if(dist < minDist2){
+                minDist3 = minDist2;
+                minDist2 = dist;
+            } else if(dist < minDist3){
+                minDist3 = dist;
+            }
+        }
+
+        long cellX = (long)x_i + KERNEL_3_3_3_X[minIndex];
+        long cellY = (long)y_i + KERNEL_3_3_3_Y[minIndex];
+        long cellZ = (long)z_i + KERNEL_3_3_3_Z[minIndex];
+        if(sampleOut != null){
+            sampleOut.set(minDist, minDist2, minDist3, cellX, cellY, cellZ);
+        } else {
+            arrayOut[SAMPLE_F1] = minDist;
+            arrayOut[SAMPLE_F2] = minDist2;
+            arrayOut[SAMPLE_F3] = minDist3;
+            arrayOut[SAMPLE_CELL_X] = cellX;
+            arrayOut[SAMPLE_CELL_Y] = cellY;
+            arrayOut[SAMPLE_CELL_Z] = cellZ;
+        }
+    }
+
+    /**
+     * Samples a cellular noise at a single point
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The noise value
+     */
+    public static double sample(CellNoiseType type, double param, double x, double y, double z){
+        switch(type){
+            case VORONOI: {
+                return NoiseUtils.voronoi(x, y, z);
+            }
+            case VORONOI_RELAXED: {
+                return NoiseUtils.voronoiRelaxed(x, y, z, param);
+            }
+            case SMOOTH_VORONOI: {
+                return NoiseUtils.smoothVoronoi(x, y, z, param);
+            }
+            case SMOOTH_VORONOI_FAST: {
+                return NoiseUtils.smoothVoronoiFast(x, y, z, param);
+            }
+            case DIAMOND: {
+                return NoiseUtils.diamond(x, y, z);
+            }
+            case DIAMOND_SHARP: {
+                return NoiseUtils.diamondSharp(x, y, z);
+            }
+            default: {
+                throw new Error("Unsupported noise type! " + type);
+            }
+        }
+    }
+
+    /**
+     * Fills a grid with cellular noise.
+     * The sample at (x,y,z) is taken at (originX + x * step, originY + y * step, originZ + z * step) and stored at index x + dimX * (y + dimY * z).
+     * Each cell's feature point is computed once per slab of cells and shared between every sample that neighbors it.
+     * The values are identical to calling the scalar function for each sample.
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param out The output array
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param step The distance between neighboring samples
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     */
+    public static void fillGrid(CellNoiseType type, double param, double[] out, double originX, double originY, double originZ, double step, int dimX, int dimY, int dimZ){
+        NoiseUtils.checkGrid(out.length, dimX, dimY, dimZ);
+        NoiseUtils.fillGrid(type, param, out, null, originX, originY, originZ, step, step, step, dimX, dimY, 0, dimX, 0, dimY, 0, dimZ);
+    }
+
+    /**
+     * Fills a grid with cellular noise.
+     * The sample at (x,y,z) is taken at (originX + x * step, originY + y * step, originZ + z * step) and stored at index x + dimX * (y + dimY * z).
+     * Each cell's feature point is computed once per slab of cells and shared between every sample that neighbors it.
+     * The values are identical to calling the scalar function for each sample and casting to float.
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param out The output array
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param step The distance between neighboring samples
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     */
+    public static void fillGrid(CellNoiseType type, double param, float[] out, double originX, double originY, double originZ, double step, int dimX, int dimY, int dimZ){
+        NoiseUtils.checkGrid(out.length, dimX, dimY, dimZ);
+        NoiseUtils.fillGrid(type, param, null, out, originX, originY, originZ, step, step, step, dimX, dimY, 0, dimX, 0, dimY, 0, dimZ);
+    }
+
+    /**
+     * Validates the dimensions of a grid against its output array
+     * @param length The length of the output array
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     */
+    static void checkGrid(int length, int dimX, int dimY, int dimZ){
+        if(dimX < 0 || dimY < 0 || dimZ < 0){
+            throw new Error("Grid dimensions must be non-negative! " + dimX + "," + dimY + "," + dimZ);
+        }
+        if((long)dimX * dimY * dimZ > length){
+            throw new Error("Output array too small for grid! " + length + " " + dimX + "," + dimY + "," + dimZ);
+        }
+    }
+
+    /**
+     * Fills a sub-box of a grid with cellular noise.
+     * Samples are always positioned relative to the grid origin so that filling a grid in several sub-boxes produces the same values as filling it at once.
+     * @param type The type of noise
+     * @param param The parameter of the noise
+     * @param outD The double output array, or null if writing to the float array
+     * @param outF The float output array, or null if writing to the double array
+     * @param originX The x coordinate of the first sample of the grid
+     * @param originY The y coordinate of the first sample of the grid
+     * @param originZ The z coordinate of the first sample of the grid
+     * @param stepX The distance between neighboring samples along the x axis
+     * @param stepY The distance between neighboring samples along the y axis
+     * @param stepZ The distance between neighboring samples along the z axis
+     * @param dimX The number of samples along the x axis of the whole grid
+     * @param dimY The number of samples along the y axis of the whole grid
+     * @param startX The first x index to fill (inclusive)
+     * @param endX The last x index to fill (exclusive)
+     * @param startY The first y index to fill (inclusive)
+     * @param endY The last y index to fill (exclusive)
+     * @param startZ The first z index to fill (inclusive)
+     * @param endZ The last z index to fill (exclusive)
+     */
+    static void fillGrid(
+        CellNoiseType type, double param, double[] outD, float[] outF,
+        double originX, double originY, double originZ,
+        double stepX, double stepY, double stepZ,
+        int dimX, int dimY,
+        int startX, int endX, int startY, int endY, int startZ, int endZ
+    ){
+        NoiseUtils.fillGrid(type, param, outD, outF, originX, originY, originZ, stepX, stepY, stepZ, dimX, dimY, startX, endX, startY, endY, startZ, endZ, 1.0);
+    }
+
+    /**
+     * Fills a sub-box of a grid with cellular noise sampled at scaled positions.
+     * The sample at (x,y,z) is taken at ((originX + x * stepX) * scale, (originY + y * stepY) * scale, (originZ + z * stepZ) * scale),
+     * which rounds the same way as scaling each position before calling the scalar function (scaling the origin and step instead doesn't, unless the scale is a power of two).
+     * @param type The type of noise
+     * @param param The parameter of the noise
+     * @param outD The double output array, or null if writing to the float array
+     * @param outF The float output array, or null if writing to the double array
+     * @param originX The x coordinate of the first sample of the grid, before scaling
+     * @param originY The y coordinate of the first sample of the grid, before scaling
+     * @param originZ The z coordinate of the first sample of the grid, before scaling
+     * @param stepX The distance between neighboring samples along the x axis, before scaling
+     * @param stepY The distance between neighboring samples along the y axis, before scaling
+     * @param stepZ The distance between neighboring samples along the z axis, before scaling
+     * @param dimX The number of samples along the x axis of the whole grid
+     * @param dimY The number of samples along the y axis of the whole grid
+     * @param startX The first x index to fill (inclusive)
+     * @param endX The last x index to fill (exclusive)
+     * @param startY The first y index to fill (inclusive)
+     * @param endY The last y index to fill (exclusive)
+     * @param startZ The first z index to fill (inclusive)
+     * @param endZ The last z index to fill (exclusive)
+     * @param scale The factor every position is multiplied by
+     */
+    static void fillGrid(
+        CellNoiseType type, double param, double[] outD, float[] outF,
+        double originX, double originY, double originZ,
+        double stepX, double stepY, double stepZ,
+        int dimX, int dimY,
+        int startX, int endX, int startY, int endY, int startZ, int endZ,
+        double scale
+    ){
+        if(startX >= endX || startY >= endY || startZ >= endZ){
+            return;
+        }
+
+        //range of cells that can neighbor a sample in the x-y plane
+        double firstX = (originX + startX * stepX) * scale;
+        double lastX = (originX + (endX - 1) * stepX) * scale;
+        double firstY = (originY + startY * stepY) * scale;
+        double lastY = (originY + (endY - 1) * stepY) * scale;
+        long cellMinX = (long)Math.floor(Math.min(firstX, lastX)) - 1;
+        long cellMinY = (long)Math.floor(Math.min(firstY, lastY)) - 1;
+        long cellCountX = (long)Math.floor(Math.max(firstX, lastX)) + 2 - cellMinX;
+        long cellCountY = (long)Math.floor(Math.max(firstY, lastY)) + 2 - cellMinY;
+        long slabCells = cellCountX * cellCountY;
+
+        //samples are too sparse to share cells, evaluate them individually
+        if(slabCells > (long)(endX - startX) * (endY - startY) * GRID_MAX_CELLS_PER_SAMPLE){
+            for(int z = startZ; z < endZ; z++){
+                double p_z = (originZ + z * stepZ) * scale;
+                for(int y = startY; y < endY; y++){
+                    double p_y = (originY + y * stepY) * scale;
+                    int index = dimX * (y + dimY * z);
+                    for(int x = startX; x < endX; x++){
+                        double val = NoiseUtils.sample(type, param, (originX + x * stepX) * scale, p_y, p_z);
+                        if(outD != null){
+                            outD[index + x] = val;
+                        } else {
+                            outF[index + x] = (float)val;
+                        }
+                    }
+                }
+            }
+            return;
+        }
+
+        //ring of three slabs of feature points, one per z layer of cells
+        int slabStride = (int)cellCountX;
+        double[][] slabs = new double[3][(int)slabCells * 3];
+        long[] slabZ = new long[]{Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE};
+
+        //offsets of the kernel cells relative to the current cell within a slab
+        int[] kernelOffsets = new int[KERNEL_3_3_3_X.length];
+        for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+            kernelOffsets[i] = (KERNEL_3_3_3_Y[i] * slabStride + KERNEL_3_3_3_X[i]) * 3;
+        }
+
+        for(int z = startZ; z < endZ; z++){
+            double p_z = (originZ + z * stepZ) * scale;
+            double z_i = Math.floor(p_z);
+            double z_r = p_z - z_i;
+            long cellZ = (long)z_i;
+
+            //make sure the slabs neighboring this layer are populated
+            for(long layer = cellZ - 1; layer <= cellZ + 1; layer++){
+                int slot = (int)Math.floorMod(layer, 3L);
+                if(slabZ[slot] != layer){
+                    NoiseUtils.fillSlab(slabs[slot], type, param, cellMinX, cellMinY, (int)cellCountX, (int)cellCountY, layer);
+                    slabZ[slot] = layer;
+                }
+            }
+            double[] slabAbove = slabs[(int)Math.floorMod(cellZ + 1, 3L)];
+            double[] slabCenter = slabs[(int)Math.floorMod(cellZ, 3L)];
+            double[] slabBelow = slabs[(int)Math.floorMod(cellZ - 1, 3L)];
+
+            for(int y = startY; y < endY; y++){
+                double p_y = (originY + y * stepY) * scale;
+                double y_i = Math.floor(p_y);
+                double y_r = p_y - y_i;
+                int rowBase = (int)((long)y_i - cellMinY) * slabStride;
+
+                int index = dimX * (y + dimY * z);
+                for(int x = startX; x < endX; x++){
+                    double p_x = (originX + x * stepX) * scale;
+                    double x_i = Math.floor(p_x);
+                    double x_r = p_x - x_i;
+                    int cellIndex = (rowBase + (int)((long)x_i - cellMinX)) * 3;
+
+                    double val = NoiseUtils.evalGridSample(type, param, x_r, y_r, z_r, cellIndex, kernelOffsets, slabAbove, slabCenter, slabBelow);
+                    if(outD != null){
+                        outD[index + x] = val;
+                    } else {
+                        outF[index + x] = (float)val;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of lattice points needed to interpolate an axis of a grid
+     * @param dim The number of samples along the axis
+     * @param factor The number of samples between lattice points
+     * @return The number of lattice points
+     */
+    static int latticeDim(int dim, int factor){
+        if(dim == 0){
+            return 0;
+        }
+        return (dim - 1 + factor - 1) / factor + 1;
+    }
+
+    /**
+     * Fills a grid by trilinearly interpolating a lattice that has a point every factor samples along each axis.
+     * Axes with a factor of 1 (or a single lattice point) are not interpolated, so a factor of 1 on one axis gives bilinear interpolation.
+     * @param lattice The lattice values, stored at index x + latticeX * (y + latticeY * z)
+     * @param latticeX The number of lattice points along the x axis
+     * @param latticeY The number of lattice points along the y axis
+     * @param latticeZ The number of lattice points along the z axis
+     * @param factorX The number of samples between lattice points along the x axis
+     * @param factorY The number of samples between lattice points along the y axis
+     * @param factorZ The number of samples between lattice points along the z axis
+     * @param outD The double output array, or null if writing to the float array
+     * @param outF The float output array, or null if writing to the double array
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     */
+    static void upsampleGrid(
+        double[] lattice, int latticeX, int latticeY, int latticeZ,
+        int factorX, int factorY, int factorZ,
+        double[] outD, float[] outF,
+        int dimX, int dimY, int dimZ
+    ){
+        //lattice cell and interpolation weight of each sample along each axis
+        int[] cellX = new int[dimX];
+        int[] cellY = new int[dimY];
+        int[] cellZ = new int[dimZ];
+        double[] weightX = new double[dimX];
+        double[] weightY = new double[dimY];
+        double[] weightZ = new double[dimZ];
+        NoiseUtils.interpolationTable(cellX, weightX, latticeX, factorX);
+        NoiseUtils.interpolationTable(cellY, weightY, latticeY, factorY);
+        NoiseUtils.interpolationTable(cellZ, weightZ, latticeZ, factorZ);
+
+        //offsets to the next lattice point along each axis (0 on degenerate axes)
+        int nextX = latticeX > 1 ? 1 : 0;
+        int nextY = latticeY > 1 ? latticeX : 0;
+        int nextZ = latticeZ > 1 ? latticeX * latticeY : 0;
+        int i = 0;
+        for(int z = 0; z < dimZ; z++){
+            double tz = weightZ[z];
+            int baseZ = cellZ[z] * latticeX * latticeY;
+            for(int y = 0; y < dimY; y++){
+                double ty = weightY[y];
+                int baseYZ = baseZ + cellY[y] * latticeX;
+                for(int x = 0; x < dimX; x++){
+                    double tx = weightX[x];
+                    int p = baseYZ + cellX[x];
+                    double c00 = MathUtils.lerp(lattice[p], lattice[p + nextX], tx);
+                    double c10 = MathUtils.lerp(lattice[p + nextY], lattice[p + nextY + nextX], tx);
+                    double c01 = MathUtils.lerp(lattice[p + nextZ], lattice[p + nextZ + nextX], tx);
+                    double c11 = MathUtils.lerp(lattice[p + nextZ + nextY], lattice[p + nextZ + nextY + nextX], tx);
+                    double c0 = MathUtils.lerp(c00, c10, ty);
+                    double c1 = MathUtils.lerp(c01, c11, ty);
+                    double val = MathUtils.lerp(c0, c1, tz);
+                    if(outD != null){
+                        outD[i] = val;
+                    } else {
+                        outF[i] = (float)val;
+                    }
+                    i++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the lattice cell and interpolation weight of each sample along an axis
+     * @param cell The array to store the lattice cell of each sample in
+     * @param weight The array to store the weight of the next lattice point for each sample in
+     * @param latticeDim The number of lattice points along the axis
+     * @param factor The number of samples between lattice points
+     */
+    private static void interpolationTable(int[] cell, double[] weight, int latticeDim, int factor){
+        int lastCell = Math.max(latticeDim - 2, 0);
+        for(int i = 0; i < cell.length; i++){
+            cell[i] = Math.min(i / factor, lastCell);
+            weight[i] = (i - cell[i] * factor) / (double)factor;
+        }
+    }
+
+    /**
+     * Computes the feature points of one z layer of cells
+     * @param slab The slab to store the points in (interleaved x,y,z)
+     * @param type The type of noise
+     * @param param The parameter of the noise
+     * @param cellMinX The x coordinate of the first cell in the slab
+     * @param cellMinY The y coordinate of the first cell in the slab
+     * @param cellCountX The number of cells along the x axis
+     * @param cellCountY The number of cells along the y axis
+     * @param cellZ The z coordinate of the layer
+     */
+    private static void fillSlab(double[] slab, CellNoiseType type, double param, long cellMinX, long cellMinY, int cellCountX, int cellCountY, long cellZ){
+        double c_z = cellZ;
+        int index = 0;
+        for(int y = 0; y < cellCountY; y++){
+            double c_y = cellMinY + y;
+            for(int x = 0; x < cellCountX; x++){
+                double c_x = cellMinX + x;
+                double p_x = RandUtils.rand(c_x, c_y, c_z, 0);
+                double p_y = RandUtils.rand(c_x, c_y, c_z, 1);
+                double p_z = RandUtils.rand(c_x, c_y, c_z, 2);
+                if(type == CellNoiseType.VORONOI_RELAXED){
+                    p_x = p_x * (1.0 - param) + (param / 2.0);
+                    p_y = p_y * (1.0 - param) + (param / 2.0);
+                    p_z = p_z * (1.0 - param) + (param / 2.0);
+                }
+                slab[index] = p_x;
+                slab[index + 1] = p_y;
+                slab[index + 2] = p_z;
+                index = index + 3;
+            }
+        }
+    }
+
+    /**
+     * Evaluates a single grid sample from cached feature points
+     * @param type The type of noise
+     * @param param The parameter of the noise
+     * @param x_r The x remainder of the sample within its cell
+     * @param y_r The y remainder of the sample within its cell
+     * @param z_r The z remainder of the sample within its cell
+     * @param cellIndex The index of the sample's cell within a slab
+     * @param kernelOffsets The offsets of the kernel cells within a slab
+     * @param slabAbove The slab of cells above the sample's cell
+     * @param slabCenter The slab containing the sample's cell
+     * @param slabBelow The slab of cells below the sample's cell
+     * @return The noise value
+     */
+    private static double evalGridSample(
+        CellNoiseType type, double param,
+        double x_r, double y_r, double z_r,
+        int cellIndex, int[] kernelOffsets,
+        double[] slabAbove, double[] slabCenter, double[] slabBelow
+    ){
+        if(type == CellNoiseType.SMOOTH_VORONOI_FAST){
+            return NoiseUtils.evalGridSampleSmoothFast(param, x_r, y_r, z_r, cellIndex, kernelOffsets, slabAbove, slabCenter, slabBelow);
+        }
+        double minDist = 10.0;
+        double minDist2 = 10.0;
+        double minDist3 = 10.0;
+        double res = 0.0;
+        for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+            double[] slab = KERNEL_3_3_3_Z[i] > 0 ? slabAbove : (KERNEL_3_3_3_Z[i] < 0 ? slabBelow : slabCenter);
+            int pointIndex = cellIndex + kernelOffsets[i];
+            double p_x = slab[pointIndex];
+            double p_y = slab[pointIndex + 1];
+            double p_z = slab[pointIndex + 2];
+
+            //dist calc + comparison
+            double dist = Math.sqrt(
+                (p_x + KERNEL_3_3_3_X[i] - x_r) * (p_x + KERNEL_3_3_3_X[i] - x_r) +
+                (p_y + KERNEL_3_3_3_Y[i] - y_r) * (p_y + KERNEL_3_3_3_Y[i] - y_r) +
+                (p_z + KERNEL_3_3_3_Z[i] - z_r) * (p_z + KERNEL_3_3_3_Z[i] - z_r)
+            );
+            if(type == CellNoiseType.SMOOTH_VORONOI){
+                res = res + Math.exp(-param * dist);
+            } else if(dist < minDist){
+                minDist3 = minDist2;
+                minDist2 = minDist;
+                minDist = dist;
+            } else if(dist < minDist2){
+                minDist3 = minDist2;
+                minDist2 = dist;
+            } else if(dist < minDist3){
+                minDist3 = dist;
+            }
+        }
+
+        return NoiseUtils.combine(type, param, minDist, minDist2, minDist3, res);
+    }
+
+    /**
+     * Evaluates a single grid sample of {@link NoiseUtils#smoothVoronoiFast(double, double, double, double)} from cached feature points.
+     * It runs the same kernel as the scalar function, so the values are identical.
+     * @param falloff The falloff
+     * @param x_r The x remainder of the sample within its cell
+     * @param y_r The y remainder of the sample within its cell
+     * @param z_r The z remainder of the sample within its cell
+     * @param cellIndex The index of the sample's cell within a slab
+     * @param kernelOffsets The offsets of the kernel cells within a slab
+     * @param slabAbove The slab of cells above the sample's cell
+     * @param slabCenter The slab containing the sample's cell
+     * @param slabBelow The slab of cells below the sample's cell
+     * @return The noise value
+     */
+    private static double evalGridSampleSmoothFast(
+        double falloff,
+        double x_r, double y_r, double z_r,
+        int cellIndex, int[] kernelOffsets,
+        double[] slabAbove, double[] slabCenter, double[] slabBelow
+    ){
+        return NoiseUtils.smoothVoronoiFast(falloff, x_r, y_r, z_r, (i, out) -> {
+            int k_z = KERNEL_3_3_3_NEAREST_Z[i];
+            double[] slab = k_z > 0 ? slabAbove : (k_z < 0 ? slabBelow : slabCenter);
+            int pointIndex = cellIndex + kernelOffsets[KERNEL_3_3_3_NEAREST_INDEX[i]];
+            out[0] = slab[pointIndex] + KERNEL_3_3_3_NEAREST_X[i];
+            out[1] = slab[pointIndex + 1] + KERNEL_3_3_3_NEAREST_Y[i];
+            out[2] = slab[pointIndex + 2] + k_z;
+        }, new double[3]);
+    }
+
+    /**
+     * Calculates {@link NoiseUtils#smoothVoronoiFast(double, double, double, double)} from the feature points of a sample's neighborhood.
+     * It runs the same kernel as the scalar function, so the values are identical.
+     * @param falloff The falloff
+     * @param x_r The x remainder of the sample within its cell
+     * @param y_r The y remainder of the sample within its cell
+     * @param z_r The z remainder of the sample within its cell
+     * @param pointX The x coordinates of the feature points with the kernel offsets applied, in 3x3x3 kernel order
+     * @param pointY The y coordinates of the feature points with the kernel offsets applied, in 3x3x3 kernel order
+     * @param pointZ The z coordinates of the feature points with the kernel offsets applied, in 3x3x3 kernel order
+     * @return The noise value
+     */
+    private static double smoothVoronoiFast(double falloff, double x_r, double y_r, double z_r, double[] pointX, double[] pointY, double[] pointZ){
+        return NoiseUtils.smoothVoronoiFast(falloff, x_r, y_r, z_r, (i, out) -> {
+            int pointIndex = KERNEL_3_3_3_NEAREST_INDEX[i];
+            out[0] = pointX[pointIndex];
+            out[1] = pointY[pointIndex];
+            out[2] = pointZ[pointIndex];
+        }, new double[3]);
+    }
+
+    /**
+     * Combines the accumulated distances of a kernel walk into the final noise value
+     * @param type The type of noise
+     * @param param The parameter of the noise
+     * @param minDist The closest distance
+     * @param minDist2 The second closest distance
+     * @param minDist3 The third closest distance
+     * @param res The sum of the exponentials of the distances (smooth voronoi only)
+     * @return The noise value
+     */
+    private static double combine(CellNoiseType type, double param, double minDist, double minDist2, double minDist3, double res){
+        switch(type){
+            case VORONOI:
+            case VORONOI_RELAXED: {
+                return minDist;
+            }
+            case SMOOTH_VORONOI: {
+                return -(1.0/param)*Math.log(res);
+            }
+            case DIAMOND: {
+                double triPointDiff = Math.max(Math.max(Math.abs(minDist - minDist3),Math.abs(minDist2 - minDist3)),Math.abs(minDist - minDist2));
+                return minDist * (triPointDiff);
+            }
+            case DIAMOND_SHARP: {
+                double triPointDiff = Math.max(Math.max(Math.abs(minDist - minDist3),Math.abs(minDist2 - minDist3)),Math.abs(minDist - minDist2));
+                double twoPointDiff = Math.abs(minDist - minDist2);
+                return minDist * (triPointDiff - twoPointDiff);
+            }
+            default: {
+                throw new Error("Unsupported noise type! " + type);
+            }
+        }
+    }
+
+    /**
+     * Samples a cellular noise at a batch of arbitrary positions.
+     * Consecutive samples that fall in the same cell share its neighborhood of feature points, and points of recently visited cells are kept in a small table,
+     * so spatially coherent batches (ie warped grids) compute roughly one set of points per cell.
+     * The values are identical to calling the scalar function for each sample.
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param xs The x coordinates of the samples
+     * @param ys The y coordinates of the samples
+     * @param zs The z coordinates of the samples
+     * @param out The output array
+     * @param count The number of samples
+     */
+    public static void sampleBatch(CellNoiseType type, double param, double[] xs, double[] ys, double[] zs, double[] out, int count){
+        //feature points of the current neighborhood with the kernel offsets applied
+        double[] pointX = new double[KERNEL_3_3_3_X.length];
+        double[] pointY = new double[KERNEL_3_3_3_X.length];
+        double[] pointZ = new double[KERNEL_3_3_3_X.length];
+        double[] point = new double[3];
+        CellPointTable table = new CellPointTable();
+        double lastX = Double.NaN;
+        double lastY = Double.NaN;
+        double lastZ = Double.NaN;
+
+        for(int s = 0; s < count; s++){
+            //integer of the point coordinates
+            double x_i = Math.floor(xs[s]);
+            double y_i = Math.floor(ys[s]);
+            double z_i = Math.floor(zs[s]);
+
+            //remainders of the point coordinates
+            double x_r = xs[s] - x_i;
+            double y_r = ys[s] - y_i;
+            double z_r = zs[s] - z_i;
+
+            if(x_i != lastX || y_i != lastY || z_i != lastZ){
+                for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+                    table.getPoint((long)x_i + KERNEL_3_3_3_X[i], (long)y_i + KERNEL_3_3_3_Y[i], (long)z_i + KERNEL_3_3_3_Z[i], point);
+                    double p_x = point[0];
+                    double p_y = point[1];
+                    double p_z = point[2];
+                    if(type == CellNoiseType.VORONOI_RELAXED){
+                        p_x = p_x * (1.0 - param) + (param / 2.0);
+                        p_y = p_y * (1.0 - param) + (param / 2.0);
+                        p_z = p_z * (1.0 - param) + (param / 2.0);
+                    }
+                    pointX[i] = p_x + KERNEL_3_3_3_X[i];
+                    pointY[i] = p_y + KERNEL_3_3_3_Y[i];
+                    pointZ[i] = p_z + KERNEL_3_3_3_Z[i];
+                }
+                lastX = x_i;
+                lastY = y_i;
+                lastZ = z_i;
+            }
+
+            if(type == CellNoiseType.SMOOTH_VORONOI_FAST){
+                out[s] = NoiseUtils.smoothVoronoiFast(param, x_r, y_r, z_r, pointX, pointY, pointZ);
+                continue;
+            }
+
+            double minDist = 10.0;
+            double minDist2 = 10.0;
+            double minDist3 = 10.0;
+            double res = 0.0;
+            for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+                //dist calc + comparison
+                double dist = Math.sqrt(
+                    (pointX[i] - x_r) * (pointX[i] - x_r) +
+                    (pointY[i] - y_r) * (pointY[i] - y_r) +
+                    (pointZ[i] - z_r) * (pointZ[i] - z_r)
+                );
+                if(type == CellNoiseType.SMOOTH_VORONOI){
+                    res = res + Math.exp(-param * dist);
+                } else if(dist < minDist){
+                    minDist3 = minDist2;
+                    minDist2 = minDist;
+                    minDist = dist;
+                } else if(dist < minDist2){
+                    minDist3 = minDist2;
+                    minDist2 = dist;
+                } else if(dist < minDist3){
+                    minDist3 = dist;
+                }
+            }
+            out[s] = NoiseUtils.combine(type, param, minDist, minDist2, minDist3, res);
+        }
+    }
+
+    /**
+     * Samples a cellular noise at a batch of arbitrary positions using single precision kernel math.
+     * Positions are split into cell and remainder in double precision, so large world coordinates keep their accuracy.
+     * When the jdk.incubator.vector module is present (--add-modules jdk.incubator.vector), the jar's vector kernel evaluates the 27-cell distance pass
+     * for blocks of samples at once with explicit vector instructions, one sample per lane.
+     * Otherwise each sample's distances are computed in a flat loop that the JIT can vectorize, followed by a per-type reduction.
+     * The values differ from the scalar functions by float rounding (roughly 1e-6).
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param xs The x coordinates of the samples
+     * @param ys The y coordinates of the samples
+     * @param zs The z coordinates of the samples
+     * @param out The output array
+     * @param count The number of samples
+     */
+    public static void sampleBatchFloat(CellNoiseType type, double param, double[] xs, double[] ys, double[] zs, float[] out, int count){
+        NoiseUtils.sampleBatchFloat(type, param, xs, ys, zs, out, count, FLOAT_CELL_KERNEL);
+    }
+
+    /**
+     * Samples a cellular noise at a batch of arbitrary positions using single precision kernel math, with a given vector kernel
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param xs The x coordinates of the samples
+     * @param ys The y coordinates of the samples
+     * @param zs The z coordinates of the samples
+     * @param out The output array
+     * @param count The number of samples
+     * @param kernel The vector kernel, or null to use the scalar loops
+     */
+    static void sampleBatchFloat(CellNoiseType type, double param, double[] xs, double[] ys, double[] zs, float[] out, int count, FloatCellKernel kernel){
+        if(kernel != null){
+            NoiseUtils.sampleBatchFloatBlocks(kernel, type, param, xs, ys, zs, out, count);
+        } else {
+            NoiseUtils.sampleBatchFloatScalar(type, param, xs, ys, zs, out, count);
+        }
+    }
+
+    /**
+     * Samples a cellular noise at a batch of positions one sample at a time
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param xs The x coordinates of the samples
+     * @param ys The y coordinates of the samples
+     * @param zs The z coordinates of the samples
+     * @param out The output array
+     * @param count The number of samples
+     */
+    private static void sampleBatchFloatScalar(CellNoiseType type, double param, double[] xs, double[] ys, double[] zs, float[] out, int count){
+        //feature points of the current neighborhood with the kernel offsets applied
+        float[] pointX = new float[KERNEL_3_3_3_X.length];
+        float[] pointY = new float[KERNEL_3_3_3_X.length];
+        float[] pointZ = new float[KERNEL_3_3_3_X.length];
+        float[] distSq = new float[KERNEL_3_3_3_X.length];
+        double[] point = new double[3];
+        CellPointTable table = new CellPointTable();
+        double lastX = Double.NaN;
+        double lastY = Double.NaN;
+        double lastZ = Double.NaN;
+        float falloff = (float)param;
+
+        for(int s = 0; s < count; s++){
+            //integer of the point coordinates
+            double x_i = Math.floor(xs[s]);
+            double y_i = Math.floor(ys[s]);
+            double z_i = Math.floor(zs[s]);
+
+            //remainders of the point coordinates
+            float x_r = (float)(xs[s] - x_i);
+            float y_r = (float)(ys[s] - y_i);
+            float z_r = (float)(zs[s] - z_i);
+
+            if(x_i != lastX || y_i != lastY || z_i != lastZ){
+                for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+                    table.getPoint((long)x_i + KERNEL_3_3_3_X[i], (long)y_i + KERNEL_3_3_3_Y[i], (long)z_i + KERNEL_3_3_3_Z[i], point);
+                    double p_x = point[0];
+                    double p_y = point[1];
+                    double p_z = point[2];
+                    if(type == CellNoiseType.VORONOI_RELAXED){
+                        p_x = p_x * (1.0 - param) + (param / 2.0);
+                        p_y = p_y * (1.0 - param) + (param / 2.0);
+                        p_z = p_z * (1.0 - param) + (param / 2.0);
+                    }
+                    pointX[i] = (float)(p_x + KERNEL_3_3_3_X[i]);
+                    pointY[i] = (float)(p_y + KERNEL_3_3_3_Y[i]);
+                    pointZ[i] = (float)(p_z + KERNEL_3_3_3_Z[i]);
+                }
+                lastX = x_i;
+                lastY = y_i;
+                lastZ = z_i;
+            }
+
+            //branchless distance pass
+            for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+                float d_x = pointX[i] - x_r;
+                float d_y = pointY[i] - y_r;
+                float d_z = pointZ[i] - z_r;
+                distSq[i] = d_x * d_x + d_y * d_y + d_z * d_z;
+            }
+
+            switch(type){
+                case VORONOI:
+                case VORONOI_RELAXED: {
+                    float minDistSq = distSq[0];
+                    for(int i = 1; i < KERNEL_3_3_3_X.length; i++){
+                        minDistSq = Math.min(minDistSq, distSq[i]);
+                    }
+                    out[s] = (float)Math.sqrt(minDistSq);
+                } break;
+                case SMOOTH_VORONOI: {
+                    float minDistSq = distSq[0];
+                    for(int i = 1; i < KERNEL_3_3_3_X.length; i++){
+                        minDistSq = Math.min(minDistSq, distSq[i]);
+                    }
+                    //sum relative to the closest point so the terms can't all underflow to zero at high falloffs
+                    float minDist = (float)Math.sqrt(minDistSq);
+                    float res = 0;
+                    for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+                        res = res + (float)Math.exp(-falloff * ((float)Math.sqrt(distSq[i]) - minDist));
+                    }
+                    out[s] = minDist - (1.0f/falloff)*(float)Math.log(res);
+                } break;
+                case SMOOTH_VORONOI_FAST: {
+                    float minDistSq = distSq[0];
+                    for(int i = 1; i < KERNEL_3_3_3_X.length; i++){
+                        minDistSq = Math.min(minDistSq, distSq[i]);
+                    }
+                    //sum relative to the closest point, skipping points too far from it to matter
+                    float minDist = (float)Math.sqrt(minDistSq);
+                    float res = 0;
+                    for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+                        float delta = falloff * ((float)Math.sqrt(distSq[i]) - minDist);
+                        if(delta < SMOOTH_FAST_CUTOFF){
+                            res = res + (float)MathUtils.fastExp(-delta);
+                        }
+                    }
+                    out[s] = minDist - (1.0f/falloff)*(float)MathUtils.fastLog(res);
+                } break;
+                default: {
+                    float minDistSq = 100.0f;
+                    float minDistSq2 = 100.0f;
+                    float minDistSq3 = 100.0f;
+                    for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+                        float dist = distSq[i];
+                        if(dist < minDistSq){
+                            minDistSq3 = minDistSq2;
+                            minDistSq2 = minDistSq;
+                            minDistSq = dist;
+                        } else if(dist < minDistSq2){
+                            minDistSq3 = minDistSq2;
+                            minDistSq2 = dist;
+                        } else if(dist < minDistSq3){
+                            minDistSq3 = dist;
+                        }
+                    }
+                    out[s] = (float)NoiseUtils.combine(type, param, (float)Math.sqrt(minDistSq), (float)Math.sqrt(minDistSq2), (float)Math.sqrt(minDistSq3), 0);
+                } break;
+            }
+        }
+    }
+
+    /**
+     * Samples a cellular noise at a batch of positions in blocks of {@link FloatCellKernel#BLOCK} samples evaluated by a vector kernel.
+     * The feature points of each sample's neighborhood are laid out cell major, so one vector holds the same cell for every sample of the block.
+     * SMOOTH_VORONOI_FAST skips the same distant points as the scalar function but sums the rest with the exact exponential.
+     * @param kernel The kernel
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param xs The x coordinates of the samples
+     * @param ys The y coordinates of the samples
+     * @param zs The z coordinates of the samples
+     * @param out The output array
+     * @param count The number of samples
+     */
+    private static void sampleBatchFloatBlocks(FloatCellKernel kernel, CellNoiseType type, double param, double[] xs, double[] ys, double[] zs, float[] out, int count){
+        int block = FloatCellKernel.BLOCK;
+        int cells = KERNEL_3_3_3_X.length;
+        //feature points of each sample's neighborhood with the kernel offsets applied, the point of cell i for lane is at [i * block + lane]
+        float[] pointX = new float[cells * block];
+        float[] pointY = new float[cells * block];
+        float[] pointZ = new float[cells * block];
+        float[] sampleX = new float[block];
+        float[] sampleY = new float[block];
+        float[] sampleZ = new float[block];
+        float[] min1 = new float[block];
+        float[] min2 = new float[block];
+        float[] min3 = new float[block];
+        float[] values = new float[block];
+        double[] point = new double[3];
+        CellPointTable table = new CellPointTable();
+        double lastX = Double.NaN;
+        double lastY = Double.NaN;
+        double lastZ = Double.NaN;
+        float falloff = (float)param;
+
+        for(int start = 0; start < count; start = start + block){
+            int lanes = Math.min(block, count - start);
+            for(int lane = 0; lane < block; lane++){
+                if(lane >= lanes){
+                    //pad the last block with a sample at the origin of a cell with every point at the origin
+                    sampleX[lane] = 0;
+                    sampleY[lane] = 0;
+                    sampleZ[lane] = 0;
+                    for(int i = 0; i < cells; i++){
+                        pointX[i * block + lane] = 0;
+                        pointY[i * block + lane] = 0;
+                        pointZ[i * block + lane] = 0;
+                    }
+                    continue;
+                }
+                int s = start + lane;
+
+                //integer of the point coordinates
+                double x_i = Math.floor(xs[s]);
+                double y_i = Math.floor(ys[s]);
+                double z_i = Math.floor(zs[s]);
+
+                //remainders of the point coordinates
+                sampleX[lane] = (float)(xs[s] - x_i);
+                sampleY[lane] = (float)(ys[s] - y_i);
+                sampleZ[lane] = (float)(zs[s] - z_i);
+
+                if(x_i == lastX && y_i == lastY && z_i == lastZ){
+                    //same cell as the previous sample, which is in the previous lane (wrapping to the end of the previous block)
+                    int previous = (lane + block - 1) % block;
+                    for(int i = 0; i < cells; i++){
+                        pointX[i * block + lane] = pointX[i * block + previous];
+                        pointY[i * block + lane] = pointY[i * block + previous];
+                        pointZ[i * block + lane] = pointZ[i * block + previous];
+                    }
+                } else {
+                    for(int i = 0; i < cells; i++){
+                        table.getPoint((long)x_i + KERNEL_3_3_3_X[i], (long)y_i + KERNEL_3_3_3_Y[i], (long)z_i + KERNEL_3_3_3_Z[i], point);
+                        double p_x = point[0];
+                        double p_y = point[1];
+                        double p_z = point[2];
+                        if(type == CellNoiseType.VORONOI_RELAXED){
+                            p_x = p_x * (1.0 - param) + (param / 2.0);
+                            p_y = p_y * (1.0 - param) + (param / 2.0);
+                            p_z = p_z * (1.0 - param) + (param / 2.0);
+                        }
+                        pointX[i * block + lane] = (float)(p_x + KERNEL_3_3_3_X[i]);
+                        pointY[i * block + lane] = (float)(p_y + KERNEL_3_3_3_Y[i]);
+                        pointZ[i * block + lane] = (float)(p_z + KERNEL_3_3_3_Z[i]);
+                    }
+                    lastX = x_i;
+                    lastY = y_i;
+                    lastZ = z_i;
+                }
+            }
+
+            switch(type){
+                case VORONOI:
+                case VORONOI_RELAXED: {
+                    kernel.nearest(pointX, pointY, pointZ, sampleX, sampleY, sampleZ, cells, min1, min2, min3);
+                    for(int lane = 0; lane < lanes; lane++){
+                        out[start + lane] = (float)Math.sqrt(min1[lane]);
+                    }
+                } break;
+                case SMOOTH_VORONOI: {
+                    kernel.smooth(falloff, Float.POSITIVE_INFINITY, pointX, pointY, pointZ, sampleX, sampleY, sampleZ, cells, values);
+                    System.arraycopy(values, 0, out, start, lanes);
+                } break;
+                case SMOOTH_VORONOI_FAST: {
+                    kernel.smooth(falloff, SMOOTH_FAST_CUTOFF, pointX, pointY, pointZ, sampleX, sampleY, sampleZ, cells, values);
+                    System.arraycopy(values, 0, out, start, lanes);
+                } break;
+                default: {
+                    kernel.nearest(pointX, pointY, pointZ, sampleX, sampleY, sampleZ, cells, min1, min2, min3);
+                    for(int lane = 0; lane < lanes; lane++){
+                        out[start + lane] = (float)NoiseUtils.combine(type, param, (float)Math.sqrt(min1[lane]), (float)Math.sqrt(min2[lane]), (float)Math.sqrt(min3[lane]), 0);
+                    }
+                } break;
+            }
+        }
+    }
+
+    /**
+     * Samples a cellular noise at a single point, looking feature points up in a cache.
+     * The points come from the cache's random backend, so the values are identical to {@link NoiseUtils#sample(CellNoiseType, double, double, double, double)} while that backend is set.
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param cache The cache of feature points
+     * @return The noise value
+     */
+    public static double sample(CellNoiseType type, double param, double x, double y, double z, FeaturePointCache cache){
+        //integer of the point coordinates
+        double x_i = Math.floor(x);
+        double y_i = Math.floor(y);
+        double z_i = Math.floor(z);
+
+        //remainders of the point coordinates
+        double x_r = x - x_i;
+        double y_r = y - y_i;
+        double z_r = z - z_i;
+
+        long cellX = (long)x_i;
+        long cellY = (long)y_i;
+        long cellZ = (long)z_i;
+
+        double[] point = CACHE_POINT_BUFFER.get();
+        if(type == CellNoiseType.SMOOTH_VORONOI_FAST){
+            return NoiseUtils.smoothVoronoiFast(param, x_r, y_r, z_r, cellX, cellY, cellZ, cache, point);
+        }
+        double minDist = 10.0;
+        double minDist2 = 10.0;
+        double minDist3 = 10.0;
+        double res = 0.0;
+        for(int i = 0; i < KERNEL_3_3_3_X.length; i++){
+            //the point of this cell
+            cache.getPoint(cellX + KERNEL_3_3_3_X[i], cellY + KERNEL_3_3_3_Y[i], cellZ + KERNEL_3_3_3_Z[i], point, 0);
+            double p_x = point[0];
+            double p_y = point[1];
+            double p_z = point[2];
+
+            //relax the point
+            if(type == CellNoiseType.VORONOI_RELAXED){
+                p_x = p_x * (1.0 - param) + (param / 2.0);
+                p_y = p_y * (1.0 - param) + (param / 2.0);
+                p_z = p_z * (1.0 - param) + (param / 2.0);
+            }
+
+            //dist calc + comparison
+            double dist = Math.sqrt(
+                (p_x + KERNEL_3_3_3_X[i] - x_r) * (p_x + KERNEL_3_3_3_X[i] - x_r) +
+                (p_y + KERNEL_3_3_3_Y[i] - y_r) * (p_y + KERNEL_3_3_3_Y[i] - y_r) +
+                (p_z + KERNEL_3_3_3_Z[i] - z_r) * (p_z + KERNEL_3_3_3_Z[i] - z_r)
+            );
+            if(type == CellNoiseType.SMOOTH_VORONOI){
+                res = res + Math.exp(-param * dist);
+            } else if(dist < minDist){
+                minDist3 = minDist2;
+                minDist2 = minDist;
+                minDist = dist;
+            } else if(dist < minDist2){
+                minDist3 = minDist2;
+                minDist2 = dist;
+            } else if(dist < minDist3){
+                minDist3 = dist;
+            }
+        }
+
+        return NoiseUtils.combine(type, param, minDist, minDist2, minDist3, res);
+    }
+
+    /**
+     * Calculates {@link NoiseUtils#smoothVoronoiFast(double, double, double, double)}, looking feature points up in a cache.
+     * It runs the same kernel as the scalar function, so the values are identical, and skipped cells are never looked up.
+     * @param falloff The falloff
+     * @param x_r The x remainder of the sample within its cell
+     * @param y_r The y remainder of the sample within its cell
+     * @param z_r The z remainder of the sample within its cell
+     * @param cellX The x coordinate of the sample's cell
+     * @param cellY The y coordinate of the sample's cell
+     * @param cellZ The z coordinate of the sample's cell
+     * @param cache The cache of feature points
+     * @param point The buffer to read points into
+     * @return The noise value
+     */
+    private static double smoothVoronoiFast(double falloff, double x_r, double y_r, double z_r, long cellX, long cellY, long cellZ, FeaturePointCache cache, double[] point){
+        return NoiseUtils.smoothVoronoiFast(falloff, x_r, y_r, z_r, (i, out) -> {
+            int k_x = KERNEL_3_3_3_NEAREST_X[i];
+            int k_y = KERNEL_3_3_3_NEAREST_Y[i];
+            int k_z = KERNEL_3_3_3_NEAREST_Z[i];
+            cache.getPoint(cellX + k_x, cellY + k_y, cellZ + k_z, out, 0);
+            out[0] = out[0] + k_x;
+            out[1] = out[1] + k_y;
+            out[2] = out[2] + k_z;
+        }, point);
+    }
+
+    /**
+     * Calculates voronoi noise within a cube, looking feature points up in a cache
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param cache The cache of feature points
+     * @return The voronoi value
+     */
+    public static double voronoi(double x, double y, double z, FeaturePointCache cache){
+        return NoiseUtils.sample(CellNoiseType.VORONOI, 0, x, y, z, cache);
+    }
+
+    /**
+     * Calculates relaxed voronoi noise within a cube, looking feature points up in a cache
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param relaxationFactor The relaxation factor
+     * @param cache The cache of feature points
+     * @return The voronoi value
+     */
+    public static double voronoiRelaxed(double x, double y, double z, double relaxationFactor, FeaturePointCache cache){
+        return NoiseUtils.sample(CellNoiseType.VORONOI_RELAXED, relaxationFactor, x, y, z, cache);
+    }
+
+    /**
+     * Calculates a smooth voronoi noise value, looking feature points up in a cache
+     * @param x The x value
+     * @param y The y value
+     * @param z The z value
+     * @param falloff The falloff (recommended values in range (4,256] )
+     * @param cache The cache of feature points
+     * @return The smooth voronoi noise value
+     */
+    public static double smoothVoronoi(double x, double y, double z, double falloff, FeaturePointCache cache){
+        return NoiseUtils.sample(CellNoiseType.SMOOTH_VORONOI, falloff, x, y, z, cache);
+    }
+
+    /**
+     * Samples a diamond-like noise pattern based on voronoi noise, looking feature points up in a cache
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param cache The cache of feature points
+     * @return The noise value
+     */
+    public static double diamond(double x, double y, double z, FeaturePointCache cache){
+        return NoiseUtils.sample(CellNoiseType.DIAMOND, 0, x, y, z, cache);
+    }
+
+    /**
+     * Samples a variant of the diamond noise that should have sharper minimums, looking feature points up in a cache
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param cache The cache of feature points
+     * @return The noise value
+     */
+    public static double diamondSharp(double x, double y, double z, FeaturePointCache cache){
+        return NoiseUtils.sample(CellNoiseType.DIAMOND_SHARP, 0, x, y, z, cache);
+    }
+
+    /**
+     * A small, single-threaded, direct-mapped table of recently computed feature points
+     */
+    private static class CellPointTable {
+
+        /**
+         * The number of entries in the table (power of two)
+         */
+        private static final int SIZE = 1024;
+
+        /**
+         * The x coordinates of the cells in each entry
+         */
+        private final long[] keyX = new long[SIZE];
+
+        /**
+         * The y coordinates of the cells in each entry
+         */
+        private final long[] keyY = new long[SIZE];
+
+        /**
+         * The z coordinates of the cells in each entry
+         */
+        private final long[] keyZ = new long[SIZE];
+
+        /**
+         * Whether each entry holds a point
+         */
+        private final boolean[] filled = new boolean[SIZE];
+
+        /**
+         * The feature points of each entry (interleaved x,y,z)
+         */
+        private final double[] points = new double[SIZE * 3];
+
+        /**
+         * Gets the feature point of a cell, computing it if it is not in the table
+         * @param x The x coordinate of the cell
+         * @param y The y coordinate of the cell
+         * @param z The z coordinate of the cell
+         * @param out The array to store the point in
+         */
+        private void getPoint(long x, long y, long z, double[] out){
+            int slot = (int)HashUtils.mix64(x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL + z) & (SIZE - 1);
+            if(!this.filled[slot] || this.keyX[slot] != x || this.keyY[slot] != y || this.keyZ[slot] != z){
+                this.points[slot * 3] = RandUtils.rand(x, y, z, 0);
+                this.points[slot * 3 + 1] = RandUtils.rand(x, y, z, 1);
+                this.points[slot * 3 + 2] = RandUtils.rand(x, y, z, 2);
+                this.keyX[slot] = x;
+                this.keyY[slot] = y;
+                this.keyZ[slot] = z;
+                this.filled[slot] = true;
+            }
+            out[0] = this.points[slot * 3];
+            out[1] = this.points[slot * 3 + 1];
+            out[2] = this.points[slot * 3 + 2];
+        }
+
+    }
+
 }
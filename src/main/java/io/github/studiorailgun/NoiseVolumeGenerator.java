@@ -0,0 +1,453 @@
+package io.github.studiorailgun;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import io.github.studiorailgun.NoiseUtils.CellNoiseType;
+
+/**
+ * Generates large volumes of cellular noise in parallel.
+ * The volume is split into cubic tiles which are filled on a fork-join pool with {@link NoiseUtils#fillGrid(CellNoiseType, double, double[], double, double, double, double, int, int, int)}.
+ * Every sample is positioned relative to the volume origin, so the output is identical regardless of the tile size or parallelism.
+ * Smooth fields can instead be sampled on a coarser lattice and trilinearly interpolated up to full resolution.
+ */
+public class NoiseVolumeGenerator {
+
+    /**
+     * The default edge length of a tile in samples
+     */
+    public static final int DEFAULT_TILE_SIZE = 32;
+
+    /**
+     * The pool to generate tiles on
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The edge length of a tile in samples
+     */
+    private final int tileSize;
+
+    /**
+     * Creates a volume generator that runs on the common pool
+     */
+    public NoiseVolumeGenerator(){
+        this(ForkJoinPool.commonPool(), DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Creates a volume generator
+     * @param pool The pool to generate tiles on
+     * @param tileSize The edge length of a tile in samples
+     */
+    public NoiseVolumeGenerator(ForkJoinPool pool, int tileSize){
+        if(tileSize < 1){
+            throw new Error("Tile size must be positive! " + tileSize);
+        }
+        this.pool = pool;
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Fills a volume with cellular noise.
+     * The sample at (x,y,z) is taken at (originX + x * step, originY + y * step, originZ + z * step) and stored at index x + dimX * (y + dimY * z).
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param out The output array
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param step The distance between neighboring samples
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     */
+    public void generate(CellNoiseType type, double param, double[] out, double originX, double originY, double originZ, double step, int dimX, int dimY, int dimZ){
+        NoiseUtils.checkGrid(out.length, dimX, dimY, dimZ);
+        this.run(type, param, out, null, originX, originY, originZ, step, step, step, dimX, dimY, dimZ);
+    }
+
+    /**
+     * Fills a volume with cellular noise.
+     * The sample at (x,y,z) is taken at (originX + x * step, originY + y * step, originZ + z * step) and stored at index x + dimX * (y + dimY * z).
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param out The output array
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param step The distance between neighboring samples
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     */
+    public void generate(CellNoiseType type, double param, float[] out, double originX, double originY, double originZ, double step, int dimX, int dimY, int dimZ){
+        NoiseUtils.checkGrid(out.length, dimX, dimY, dimZ);
+        this.run(type, param, null, out, originX, originY, originZ, step, step, step, dimX, dimY, dimZ);
+    }
+
+    /**
+     * Fills a volume with cellular noise by sampling it every factor samples along each axis and trilinearly interpolating in between.
+     * A factor of 1 on an axis samples it at full resolution (ie bilinear interpolation of 2d slices).
+     * The lattice is generated in parallel; the value at lattice points matches {@link #generate(CellNoiseType, double, double[], double, double, double, double, int, int, int)}.
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param out The output array
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param step The distance between neighboring samples
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     * @param factorX The number of samples between lattice points along the x axis
+     * @param factorY The number of samples between lattice points along the y axis
+     * @param factorZ The number of samples between lattice points along the z axis
+     */
+    public void generateResampled(
+        CellNoiseType type, double param, double[] out,
+        double originX, double originY, double originZ, double step,
+        int dimX, int dimY, int dimZ,
+        int factorX, int factorY, int factorZ
+    ){
+        NoiseUtils.checkGrid(out.length, dimX, dimY, dimZ);
+        this.resample(type, param, out, null, originX, originY, originZ, step, dimX, dimY, dimZ, factorX, factorY, factorZ);
+    }
+
+    /**
+     * Fills a volume with cellular noise by sampling it every factor samples along each axis and trilinearly interpolating in between.
+     * A factor of 1 on an axis samples it at full resolution (ie bilinear interpolation of 2d slices).
+     * The lattice is generated in parallel; the value at lattice points matches {@link #generate(CellNoiseType, double, float[], double, double, double, double, int, int, int)}.
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param out The output array
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param step The distance between neighboring samples
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     * @param factorX The number of samples between lattice points along the x axis
+     * @param factorY The number of samples between lattice points along the y axis
+     * @param factorZ The number of samples between lattice points along the z axis
+     */
+    public void generateResampled(
+        CellNoiseType type, double param, float[] out,
+        double originX, double originY, double originZ, double step,
+        int dimX, int dimY, int dimZ,
+        int factorX, int factorY, int factorZ
+    ){
+        NoiseUtils.checkGrid(out.length, dimX, dimY, dimZ);
+        this.resample(type, param, null, out, originX, originY, originZ, step, dimX, dimY, dimZ, factorX, factorY, factorZ);
+    }
+
+    /**
+     * Measures the largest difference between a resampled volume and the same volume sampled at full resolution.
+     * This generates the volume both ways, so it is meant for picking sub-sampling factors offline or in debug builds rather than for every volume.
+     * @param type The type of noise
+     * @param param The parameter of the noise (relaxation factor or falloff), ignored by types that don't take one
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param step The distance between neighboring samples
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     * @param factorX The number of samples between lattice points along the x axis
+     * @param factorY The number of samples between lattice points along the y axis
+     * @param factorZ The number of samples between lattice points along the z axis
+     * @return The maximum absolute error of the resampled volume
+     */
+    public double measureResampleError(
+        CellNoiseType type, double param,
+        double originX, double originY, double originZ, double step,
+        int dimX, int dimY, int dimZ,
+        int factorX, int factorY, int factorZ
+    ){
+        NoiseUtils.checkGrid(Integer.MAX_VALUE, dimX, dimY, dimZ);
+        int count = dimX * dimY * dimZ;
+        double[] full = new double[count];
+        double[] resampled = new double[count];
+        this.generate(type, param, full, originX, originY, originZ, step, dimX, dimY, dimZ);
+        this.generateResampled(type, param, resampled, originX, originY, originZ, step, dimX, dimY, dimZ, factorX, factorY, factorZ);
+        double rVal = 0;
+        for(int i = 0; i < count; i++){
+            rVal = Math.max(rVal, Math.abs(full[i] - resampled[i]));
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the pool tiles are generated on
+     * @return The pool
+     */
+    public ForkJoinPool getPool(){
+        return pool;
+    }
+
+    /**
+     * Gets the edge length of a tile in samples
+     * @return The tile size
+     */
+    public int getTileSize(){
+        return tileSize;
+    }
+
+    /**
+     * Generates the lattice of a resampled volume and interpolates it into the output
+     * @param type The type of noise
+     * @param param The parameter of the noise
+     * @param outD The double output array, or null if writing to the float array
+     * @param outF The float output array, or null if writing to the double array
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param step The distance between neighboring samples
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     * @param factorX The number of samples between lattice points along the x axis
+     * @param factorY The number of samples between lattice points along the y axis
+     * @param factorZ The number of samples between lattice points along the z axis
+     */
+    private void resample(
+        CellNoiseType type, double param, double[] outD, float[] outF,
+        double originX, double originY, double originZ, double step,
+        int dimX, int dimY, int dimZ,
+        int factorX, int factorY, int factorZ
+    ){
+        if(factorX < 1 || factorY < 1 || factorZ < 1){
+            throw new Error("Sub-sampling factors must be positive! " + factorX + "," + factorY + "," + factorZ);
+        }
+        if(dimX == 0 || dimY == 0 || dimZ == 0){
+            return;
+        }
+        if(factorX == 1 && factorY == 1 && factorZ == 1){
+            this.run(type, param, outD, outF, originX, originY, originZ, step, step, step, dimX, dimY, dimZ);
+            return;
+        }
+        int latticeX = NoiseUtils.latticeDim(dimX, factorX);
+        int latticeY = NoiseUtils.latticeDim(dimY, factorY);
+        int latticeZ = NoiseUtils.latticeDim(dimZ, factorZ);
+        double[] lattice = new double[latticeX * latticeY * latticeZ];
+        this.run(
+            type, param, lattice, null,
+            originX, originY, originZ,
+            step * factorX, step * factorY, step * factorZ,
+            latticeX, latticeY, latticeZ
+        );
+        NoiseUtils.upsampleGrid(lattice, latticeX, latticeY, latticeZ, factorX, factorY, factorZ, outD, outF, dimX, dimY, dimZ);
+    }
+
+    /**
+     * Splits the volume into tiles and fills them on the pool
+     * @param type The type of noise
+     * @param param The parameter of the noise
+     * @param outD The double output array, or null if writing to the float array
+     * @param outF The float output array, or null if writing to the double array
+     * @param originX The x coordinate of the first sample
+     * @param originY The y coordinate of the first sample
+     * @param originZ The z coordinate of the first sample
+     * @param stepX The distance between neighboring samples along the x axis
+     * @param stepY The distance between neighboring samples along the y axis
+     * @param stepZ The distance between neighboring samples along the z axis
+     * @param dimX The number of samples along the x axis
+     * @param dimY The number of samples along the y axis
+     * @param dimZ The number of samples along the z axis
+     */
+    private void run(
+        CellNoiseType type, double param, double[] outD, float[] outF,
+        double originX, double originY, double originZ,
+        double stepX, double stepY, double stepZ,
+        int dimX, int dimY, int dimZ
+    ){
+        if(dimX == 0 || dimY == 0 || dimZ == 0){
+            return;
+        }
+        int tilesX = (dimX + tileSize - 1) / tileSize;
+        int tilesY = (dimY + tileSize - 1) / tileSize;
+        int tilesZ = (dimZ + tileSize - 1) / tileSize;
+        TileTask task = new TileTask(
+            type, param, outD, outF,
+            originX, originY, originZ,
+            stepX, stepY, stepZ,
+            dimX, dimY, dimZ,
+            tilesX, tilesY,
+            0, tilesX * tilesY * tilesZ
+        );
+        pool.invoke(task);
+    }
+
+    /**
+     * Fills a contiguous range of tiles, splitting it in half until a single tile remains
+     */
+    private class TileTask extends RecursiveAction {
+
+        /**
+         * Serialization version (tasks are never serialized, RecursiveAction is Serializable)
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The type of noise
+         */
+        private final CellNoiseType type;
+
+        /**
+         * The parameter of the noise
+         */
+        private final double param;
+
+        /**
+         * The double output array, or null if writing to the float array
+         */
+        private final double[] outD;
+
+        /**
+         * The float output array, or null if writing to the double array
+         */
+        private final float[] outF;
+
+        /**
+         * The x coordinate of the first sample
+         */
+        private final double originX;
+
+        /**
+         * The y coordinate of the first sample
+         */
+        private final double originY;
+
+        /**
+         * The z coordinate of the first sample
+         */
+        private final double originZ;
+
+        /**
+         * The distance between neighboring samples along the x axis
+         */
+        private final double stepX;
+
+        /**
+         * The distance between neighboring samples along the y axis
+         */
+        private final double stepY;
+
+        /**
+         * The distance between neighboring samples along the z axis
+         */
+        private final double stepZ;
+
+        /**
+         * The number of samples along the x axis
+         */
+        private final int dimX;
+
+        /**
+         * The number of samples along the y axis
+         */
+        private final int dimY;
+
+        /**
+         * The number of samples along the z axis
+         */
+        private final int dimZ;
+
+        /**
+         * The number of tiles along the x axis
+         */
+        private final int tilesX;
+
+        /**
+         * The number of tiles along the y axis
+         */
+        private final int tilesY;
+
+        /**
+         * The first tile to fill (inclusive)
+         */
+        private final int start;
+
+        /**
+         * The last tile to fill (exclusive)
+         */
+        private final int end;
+
+        /**
+         * Creates a tile task
+         * @param type The type of noise
+         * @param param The parameter of the noise
+         * @param outD The double output array
+         * @param outF The float output array
+         * @param originX The x coordinate of the first sample
+         * @param originY The y coordinate of the first sample
+         * @param originZ The z coordinate of the first sample
+         * @param stepX The distance between neighboring samples along the x axis
+         * @param stepY The distance between neighboring samples along the y axis
+         * @param stepZ The distance between neighboring samples along the z axis
+         * @param dimX The number of samples along the x axis
+         * @param dimY The number of samples along the y axis
+         * @param dimZ The number of samples along the z axis
+         * @param tilesX The number of tiles along the x axis
+         * @param tilesY The number of tiles along the y axis
+         * @param start The first tile to fill (inclusive)
+         * @param end The last tile to fill (exclusive)
+         */
+        private TileTask(
+            CellNoiseType type, double param, double[] outD, float[] outF,
+            double originX, double originY, double originZ,
+            double stepX, double stepY, double stepZ,
+            int dimX, int dimY, int dimZ,
+            int tilesX, int tilesY,
+            int start, int end
+        ){
+            this.type = type;
+            this.param = param;
+            this.outD = outD;
+            this.outF = outF;
+            this.originX = originX;
+            this.originY = originY;
+            this.originZ = originZ;
+            this.stepX = stepX;
+            this.stepY = stepY;
+            this.stepZ = stepZ;
+            this.dimX = dimX;
+            this.dimY = dimY;
+            this.dimZ = dimZ;
+            this.tilesX = tilesX;
+            this.tilesY = tilesY;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute(){
+            if(end - start > 1){
+                int mid = (start + end) >>> 1;
+                invokeAll(
+                    new TileTask(type, param, outD, outF, originX, originY, originZ, stepX, stepY, stepZ, dimX, dimY, dimZ, tilesX, tilesY, start, mid),
+                    new TileTask(type, param, outD, outF, originX, originY, originZ, stepX, stepY, stepZ, dimX, dimY, dimZ, tilesX, tilesY, mid, end)
+                );
+                return;
+            }
+            int tileX = start % tilesX;
+            int tileY = (start / tilesX) % tilesY;
+            int tileZ = start / (tilesX * tilesY);
+            int startX = tileX * tileSize;
+            int startY = tileY * tileSize;
+            int startZ = tileZ * tileSize;
+            NoiseUtils.fillGrid(
+                type, param, outD, outF,
+                originX, originY, originZ,
+                stepX, stepY, stepZ,
+                dimX, dimY,
+                startX, Math.min(startX + tileSize, dimX),
+                startY, Math.min(startY + tileSize, dimY),
+                startZ, Math.min(startZ + tileSize, dimZ)
+            );
+        }
+
+    }
+
+}
@@ -5,6 +5,20 @@ package io.github.studiorailgun;
  */
 public class RandUtils {
 
+    /**
+     * The backends that can be used to generate random numbers from coordinates
+     */
+    public static enum RandBackend {
+        /**
+         * Hashes the coordinates through the fractional part of a large sine wave
+         */
+        SINE,
+        /**
+         * Hashes the bits of the coordinates with an integer mixing function
+         */
+        INTEGER_HASH,
+    }
+
     /**
      * The magnitude of the random oscillator
      */
@@ -23,12 +37,54 @@ public class RandUtils {
     private static final double RAND_VEC_Z_VAL = 117.724545;
     private static final double RAND_VEC_W_VAL = 141.724545;
 
+    /**
+     * Seeds for each of the coordinates hashed by the integer backend
+     */
+    private static final long HASH_SEED_X = 0x9E3779B97F4A7C15L;
+    private static final long HASH_SEED_Y = 0xC2B2AE3D27D4EB4FL;
+    private static final long HASH_SEED_Z = 0x165667B19E3779F9L;
+    private static final long HASH_SEED_W = 0x27D4EB2F165667C5L;
+
+    /**
+     * Scales the top 53 bits of a hash into the range [0,1)
+     */
+    private static final double HASH_TO_UNIT = 0x1.0p-53;
+
+    /**
+     * true if the coordinate functions should use the integer hash backend.
+     * Volatile so that a change made on one thread is seen by every other thread's next call.
+     */
+    private static volatile boolean useIntegerHash = false;
+
+    /**
+     * Sets the backend used by the coordinate functions.
+     * This changes every value derived from them (ie noise), so it should be set once before generation starts.
+     * The change is visible to every thread as soon as this returns, and work started afterwards (ie submitted to a pool) only sees the new backend.
+     * Work that is already running on other threads is not synchronized with the change, each call reads the backend once, so it can mix values of both backends.
+     * Code that must not depend on this global setting can pass a backend explicitly, ie {@link #rand(RandBackend, double, double, double, double)}.
+     * @param backend The backend
+     */
+    public static void setBackend(RandBackend backend){
+        RandUtils.useIntegerHash = backend == RandBackend.INTEGER_HASH;
+    }
+
+    /**
+     * Gets the backend used by the coordinate functions
+     * @return The backend
+     */
+    public static RandBackend getBackend(){
+        return RandUtils.useIntegerHash ? RandBackend.INTEGER_HASH : RandBackend.SINE;
+    }
+
     /**
      * Calculates a random number. Range [0,1]
      * @param in The input
      * @return The output
      */
     public static double rand(double in){
+        if(useIntegerHash){
+            return RandUtils.hashRand(in);
+        }
         return MathUtils.fract(Math.sin(in) * RANDOM_MAGNITUDE);
     }
 
@@ -39,6 +95,9 @@ public class RandUtils {
      * @return The output
      */
     public static double rand(double x, double y){
+        if(useIntegerHash){
+            return RandUtils.hashRand(x, y);
+        }
         return MathUtils.fract(Math.sin(MathUtils.dot(x,y,RAND_VEC_X_VAL,RAND_VEC_Y_VAL)) * RANDOM_MAGNITUDE);
     }
 
@@ -50,6 +109,9 @@ public class RandUtils {
      * @return The output
      */
     public static double rand(double x, double y, double z){
+        if(useIntegerHash){
+            return RandUtils.hashRand(x, y, z);
+        }
         return MathUtils.fract(Math.sin(MathUtils.dot(x,y,z,RAND_VEC_X_VAL,RAND_VEC_Y_VAL,RAND_VEC_Z_VAL)) * RANDOM_MAGNITUDE);
     }
 
@@ -62,11 +124,31 @@ public class RandUtils {
      * @return The output
      */
     public static double rand(double x, double y, double z, double w){
+        if(useIntegerHash){
+            return RandUtils.hashRand(x, y, z, w);
+        }
+        return MathUtils.fract(Math.sin(MathUtils.dot(x,y,z,w,RAND_VEC_X_VAL,RAND_VEC_Y_VAL,RAND_VEC_Z_VAL,RAND_VEC_W_VAL)) * RANDOM_MAGNITUDE);
+    }
+
+    /**
+     * Calculates a random number with the given backend, regardless of the backend set with {@link #setBackend(RandBackend)}. Range [0,1]
+     * @param backend The backend
+     * @param x The x input
+     * @param y The y input
+     * @param z The z input
+     * @param w The w input
+     * @return The output, identical to {@link #rand(double, double, double, double)} while that backend is set
+     */
+    public static double rand(RandBackend backend, double x, double y, double z, double w){
+        if(backend == RandBackend.INTEGER_HASH){
+            return RandUtils.hashRand(x, y, z, w);
+        }
         return MathUtils.fract(Math.sin(MathUtils.dot(x,y,z,w,RAND_VEC_X_VAL,RAND_VEC_Y_VAL,RAND_VEC_Z_VAL,RAND_VEC_W_VAL)) * RANDOM_MAGNITUDE);
     }
 
     /**
      * Calculates a random integer. Range [min,max]
+     * The value is scaled from a double, so it is slightly biased; see {@link #counterRandInt(long, long, int, int)} for an unbiased integer.
      * @param min The minimum integer value
      * @param max The maximum integer value
      * @param seed The seed
@@ -79,5 +161,272 @@ public class RandUtils {
         double percentage = RandUtils.rand(seed);
         return (int)(percentage * (max - min)) + min;
     }
+
+    /**
+     * Calculates a random number by hashing the bits of the input. Range [0,1)
+     * @param in The input
+     * @return The output
+     */
+    public static double hashRand(double in){
+        return (HashUtils.mix64(RandUtils.bits(in) ^ HASH_SEED_X) >>> 11) * HASH_TO_UNIT;
+    }
+
+    /**
+     * Calculates a random number by hashing the bits of the inputs. Range [0,1)
+     * @param x The x input
+     * @param y The y input
+     * @return The output
+     */
+    public static double hashRand(double x, double y){
+        long h = HashUtils.mix64(RandUtils.bits(y) ^ HASH_SEED_Y);
+        h = HashUtils.mix64(RandUtils.bits(x) ^ HASH_SEED_X ^ h);
+        return (h >>> 11) * HASH_TO_UNIT;
+    }
+
+    /**
+     * Calculates a random number by hashing the bits of the inputs. Range [0,1)
+     * @param x The x input
+     * @param y The y input
+     * @param z The z input
+     * @return The output
+     */
+    public static double hashRand(double x, double y, double z){
+        long h = HashUtils.mix64(RandUtils.bits(z) ^ HASH_SEED_Z);
+        h = HashUtils.mix64(RandUtils.bits(y) ^ HASH_SEED_Y ^ h);
+        h = HashUtils.mix64(RandUtils.bits(x) ^ HASH_SEED_X ^ h);
+        return (h >>> 11) * HASH_TO_UNIT;
+    }
+
+    /**
+     * Calculates a random number by hashing the bits of the inputs. Range [0,1)
+     * @param x The x input
+     * @param y The y input
+     * @param z The z input
+     * @param w The w input
+     * @return The output
+     */
+    public static double hashRand(double x, double y, double z, double w){
+        long h = HashUtils.mix64(RandUtils.bits(w) ^ HASH_SEED_W);
+        h = HashUtils.mix64(RandUtils.bits(z) ^ HASH_SEED_Z ^ h);
+        h = HashUtils.mix64(RandUtils.bits(y) ^ HASH_SEED_Y ^ h);
+        h = HashUtils.mix64(RandUtils.bits(x) ^ HASH_SEED_X ^ h);
+        return (h >>> 11) * HASH_TO_UNIT;
+    }
+
+    /**
+     * Calculates random numbers for a batch of inputs, identical to calling {@link #rand(double)} for each. Range [0,1]
+     * @param xs The inputs
+     * @param out The output array
+     * @param count The number of values
+     */
+    public static void rand(double[] xs, double[] out, int count){
+        if(useIntegerHash){
+            for(int i = 0; i < count; i++){
+                out[i] = RandUtils.hashRand(xs[i]);
+            }
+        } else {
+            for(int i = 0; i < count; i++){
+                out[i] = MathUtils.fract(Math.sin(xs[i]) * RANDOM_MAGNITUDE);
+            }
+        }
+    }
+
+    /**
+     * Calculates random numbers for a batch of inputs, identical to calling {@link #rand(double, double)} for each. Range [0,1]
+     * @param xs The x inputs
+     * @param ys The y inputs
+     * @param out The output array
+     * @param count The number of values
+     */
+    public static void rand(double[] xs, double[] ys, double[] out, int count){
+        if(useIntegerHash){
+            for(int i = 0; i < count; i++){
+                out[i] = RandUtils.hashRand(xs[i], ys[i]);
+            }
+        } else {
+            for(int i = 0; i < count; i++){
+                out[i] = MathUtils.fract(Math.sin(MathUtils.dot(xs[i],ys[i],RAND_VEC_X_VAL,RAND_VEC_Y_VAL)) * RANDOM_MAGNITUDE);
+            }
+        }
+    }
+
+    /**
+     * Calculates random numbers for a batch of inputs, identical to calling {@link #rand(double, double, double)} for each. Range [0,1]
+     * @param xs The x inputs
+     * @param ys The y inputs
+     * @param zs The z inputs
+     * @param out The output array
+     * @param count The number of values
+     */
+    public static void rand(double[] xs, double[] ys, double[] zs, double[] out, int count){
+        if(useIntegerHash){
+            for(int i = 0; i < count; i++){
+                out[i] = RandUtils.hashRand(xs[i], ys[i], zs[i]);
+            }
+        } else {
+            for(int i = 0; i < count; i++){
+                out[i] = MathUtils.fract(Math.sin(MathUtils.dot(xs[i],ys[i],zs[i],RAND_VEC_X_VAL,RAND_VEC_Y_VAL,RAND_VEC_Z_VAL)) * RANDOM_MAGNITUDE);
+            }
+        }
+    }
+
+    /**
+     * Calculates random numbers for a batch of inputs sharing a w input, identical to calling {@link #rand(double, double, double, double)} for each. Range [0,1]
+     * @param xs The x inputs
+     * @param ys The y inputs
+     * @param zs The z inputs
+     * @param w The w input
+     * @param out The output array
+     * @param count The number of values
+     */
+    public static void rand(double[] xs, double[] ys, double[] zs, double w, double[] out, int count){
+        if(useIntegerHash){
+            for(int i = 0; i < count; i++){
+                out[i] = RandUtils.hashRand(xs[i], ys[i], zs[i], w);
+            }
+        } else {
+            for(int i = 0; i < count; i++){
+                out[i] = MathUtils.fract(Math.sin(MathUtils.dot(xs[i],ys[i],zs[i],w,RAND_VEC_X_VAL,RAND_VEC_Y_VAL,RAND_VEC_Z_VAL,RAND_VEC_W_VAL)) * RANDOM_MAGNITUDE);
+            }
+        }
+    }
+
+    /**
+     * Calculates the random number at a position in a counter based stream.
+     * Unlike the coordinate functions this always hashes integers, so it doesn't depend on the backend. Range [0,1)
+     * @param seed The seed of the stream
+     * @param counter The position in the stream
+     * @return The output
+     */
+    public static double counterRand(long seed, long counter){
+        return (RandUtils.counterHash(RandUtils.seedHash(seed), counter) >>> 11) * HASH_TO_UNIT;
+    }
+
+    /**
+     * Fills a buffer with consecutive random numbers of a counter based stream, identical to calling {@link #counterRand(long, long)} for each counter. Range [0,1)
+     * @param seed The seed of the stream
+     * @param start The position in the stream of the first value
+     * @param out The output array
+     * @param offset The index in the output array to store the first value at
+     * @param count The number of values
+     */
+    public static void counterRand(long seed, long start, double[] out, int offset, int count){
+        long seedHash = RandUtils.seedHash(seed);
+        for(int i = 0; i < count; i++){
+            out[offset + i] = (RandUtils.counterHash(seedHash, start + i) >>> 11) * HASH_TO_UNIT;
+        }
+    }
+
+    /**
+     * Calculates an unbiased random integer at a position in a counter based stream. Range [min,max]
+     * @param seed The seed of the stream
+     * @param counter The position in the stream
+     * @param min The minimum integer value
+     * @param max The maximum integer value
+     * @return The output
+     */
+    public static int counterRandInt(long seed, long counter, int min, int max){
+        if(min > max){
+            throw new Error("The minimum is larger than the maximum! " + min + " " + max);
+        }
+        long range = (long)max - min + 1;
+        return RandUtils.bounded(RandUtils.counterHash(RandUtils.seedHash(seed), counter), range) + min;
+    }
+
+    /**
+     * Fills a buffer with consecutive unbiased random integers of a counter based stream,
+     * identical to calling {@link #counterRandInt(long, long, int, int)} for each counter. Range [min,max]
+     * @param seed The seed of the stream
+     * @param start The position in the stream of the first value
+     * @param min The minimum integer value
+     * @param max The maximum integer value
+     * @param out The output array
+     * @param offset The index in the output array to store the first value at
+     * @param count The number of values
+     */
+    public static void counterRandInt(long seed, long start, int min, int max, int[] out, int offset, int count){
+        if(min > max){
+            throw new Error("The minimum is larger than the maximum! " + min + " " + max);
+        }
+        long range = (long)max - min + 1;
+        long seedHash = RandUtils.seedHash(seed);
+        for(int i = 0; i < count; i++){
+            out[offset + i] = RandUtils.bounded(RandUtils.counterHash(seedHash, start + i), range) + min;
+        }
+    }
+
+    /**
+     * Calculates unbiased random integers for a batch of coordinates.
+     * The coordinates are hashed as in {@link #hashRand(double, double, double)} regardless of the backend, since the sine backend doesn't have enough bits for an unbiased range. Range [min,max]
+     * @param xs The x inputs
+     * @param ys The y inputs
+     * @param zs The z inputs
+     * @param min The minimum integer value
+     * @param max The maximum integer value
+     * @param out The output array
+     * @param count The number of values
+     */
+    public static void randInt(double[] xs, double[] ys, double[] zs, int min, int max, int[] out, int count){
+        if(min > max){
+            throw new Error("The minimum is larger than the maximum! " + min + " " + max);
+        }
+        long range = (long)max - min + 1;
+        for(int i = 0; i < count; i++){
+            long h = HashUtils.mix64(RandUtils.bits(zs[i]) ^ HASH_SEED_Z);
+            h = HashUtils.mix64(RandUtils.bits(ys[i]) ^ HASH_SEED_Y ^ h);
+            h = HashUtils.mix64(RandUtils.bits(xs[i]) ^ HASH_SEED_X ^ h);
+            out[i] = RandUtils.bounded(h, range) + min;
+        }
+    }
+
+    /**
+     * Maps a hash to an integer in [0,range) without bias (Lemire's multiply and reject), rehashing on the rare rejections
+     * @param hash The hash
+     * @param range The size of the range, in [1,2^32]
+     * @return The integer
+     */
+    private static int bounded(long hash, long range){
+        long h = hash;
+        //product of the top 32 bits and the range, the high half is the result and the low half decides rejection
+        long product = (h >>> 32) * range;
+        long low = product & 0xFFFFFFFFL;
+        if(low < range){
+            long threshold = ((1L << 32) - range) % range;
+            while(low < threshold){
+                h = HashUtils.mix64(h + HASH_SEED_X);
+                product = (h >>> 32) * range;
+                low = product & 0xFFFFFFFFL;
+            }
+        }
+        return (int)(product >>> 32);
+    }
+
+    /**
+     * Hashes the seed of a counter based stream
+     * @param seed The seed
+     * @return The hash of the seed
+     */
+    private static long seedHash(long seed){
+        return HashUtils.mix64(seed ^ HASH_SEED_W);
+    }
+
+    /**
+     * Hashes a position in a counter based stream
+     * @param seedHash The hash of the seed of the stream
+     * @param counter The position
+     * @return The hash
+     */
+    private static long counterHash(long seedHash, long counter){
+        return HashUtils.mix64(seedHash + counter * HASH_SEED_X);
+    }
+
+    /**
+     * Gets the bits of a double, treating -0.0 and 0.0 as the same value
+     * @param in The double
+     * @return The bits
+     */
+    private static long bits(double in){
+        return Double.doubleToRawLongBits(in + 0.0);
+    }
     
 }
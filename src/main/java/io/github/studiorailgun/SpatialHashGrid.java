@@ -0,0 +1,812 @@
+package io.github.studiorailgun;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import org.joml.AABBd;
+import org.joml.Vector3d;
+
+/**
+ * A uniform grid broadphase for points and axis aligned boxes, keyed by integer ids.
+ * Space is divided into cubic cells; each object is listed in every cell its bounds overlap, and the occupied cells are stored in a
+ * {@link LongHashMap} under keys packed with {@link VecHashUtils#pack(int, int, int)}, so only occupied cells take memory.
+ * Queries gather the objects of the cells the query overlaps and only test those with the {@link GeomUtils} distance functions.
+ * Cell coordinates must fit in the packed range of [{@link VecHashUtils#PACK_MIN}, {@link VecHashUtils#PACK_MAX}].
+ * Works best when the cell size is around the size of the typical object and query. Not thread-safe.
+ */
+public class SpatialHashGrid {
+
+    /**
+     * The initial number of ids each cell has room for
+     */
+    private static final int INITIAL_CELL_CAPACITY = 4;
+
+    /**
+     * The initial number of ids the grid has room for
+     */
+    private static final int INITIAL_OBJECT_CAPACITY = 64;
+
+    /**
+     * The objects in a single cell
+     */
+    private static class Cell {
+
+        /**
+         * The ids of the objects, in no particular order
+         */
+        int[] ids = new int[INITIAL_CELL_CAPACITY];
+
+        /**
+         * The number of objects
+         */
+        int count = 0;
+
+        /**
+         * Adds an object
+         * @param id The id of the object
+         */
+        void add(int id){
+            if(count == ids.length){
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count] = id;
+            count++;
+        }
+
+        /**
+         * Removes an object
+         * @param id The id of the object
+         */
+        void remove(int id){
+            for(int i = 0; i < count; i++){
+                if(ids[i] == id){
+                    count--;
+                    ids[i] = ids[count];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The length of a side of a cell
+     */
+    private final double cellSize;
+
+    /**
+     * The inverse of the cell size
+     */
+    private final double inverseCellSize;
+
+    /**
+     * The occupied cells
+     */
+    private final LongHashMap<Cell> cells = new LongHashMap<Cell>();
+
+    /**
+     * The bounds of each object (minX, minY, minZ, maxX, maxY, maxZ)
+     */
+    private double[] bounds = new double[INITIAL_OBJECT_CAPACITY * 6];
+
+    /**
+     * The range of cells each object is listed in (minX, minY, minZ, maxX, maxY, maxZ)
+     */
+    private int[] cellRanges = new int[INITIAL_OBJECT_CAPACITY * 6];
+
+    /**
+     * true for each id that is in the grid
+     */
+    private boolean[] present = new boolean[INITIAL_OBJECT_CAPACITY];
+
+    /**
+     * The last query that gathered each object, so objects listed in several cells are gathered once
+     */
+    private int[] stamps = new int[INITIAL_OBJECT_CAPACITY];
+
+    /**
+     * The current query
+     */
+    private int stamp = 0;
+
+    /**
+     * The number of objects in the grid
+     */
+    private int size = 0;
+
+    /**
+     * The objects gathered by the current query
+     */
+    private int[] candidates = new int[INITIAL_OBJECT_CAPACITY];
+
+    /**
+     * The number of objects gathered by the current query
+     */
+    private int candidateCount = 0;
+
+    /**
+     * Ids of the k-nearest query heap
+     */
+    private int[] heapIds = new int[0];
+
+    /**
+     * Squared distances of the k-nearest query heap
+     */
+    private double[] heapDistances = new double[0];
+
+    /**
+     * Scratch box for the tube test
+     */
+    private final AABBd scratchBox = new AABBd();
+
+    /**
+     * Creates a grid
+     * @param cellSize The length of a side of a cell
+     */
+    public SpatialHashGrid(double cellSize){
+        if(!(cellSize > 0) || Double.isInfinite(cellSize)){
+            throw new Error("Cell size must be positive and finite! " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1.0 / cellSize;
+    }
+
+    /**
+     * Inserts a point
+     * @param id The id of the object, must be non-negative and not already in the grid
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     */
+    public void insert(int id, double x, double y, double z){
+        this.insert(id, x, y, z, x, y, z);
+    }
+
+    /**
+     * Inserts a box
+     * @param id The id of the object, must be non-negative and not already in the grid
+     * @param box The box
+     */
+    public void insert(int id, AABBd box){
+        this.insert(id, box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+    }
+
+    /**
+     * Inserts a box
+     * @param id The id of the object, must be non-negative and not already in the grid
+     * @param minX The x minimum of the box
+     * @param minY The y minimum of the box
+     * @param minZ The z minimum of the box
+     * @param maxX The x maximum of the box
+     * @param maxY The y maximum of the box
+     * @param maxZ The z maximum of the box
+     */
+    public void insert(int id, double minX, double minY, double minZ, double maxX, double maxY, double maxZ){
+        if(id < 0){
+            throw new Error("Id must be non-negative! " + id);
+        }
+        if(minX > maxX || minY > maxY || minZ > maxZ){
+            throw new Error("Box min must not exceed max! " + minX + "," + minY + "," + minZ + " " + maxX + "," + maxY + "," + maxZ);
+        }
+        this.ensureCapacity(id + 1);
+        if(present[id]){
+            throw new Error("Id is already in the grid! " + id);
+        }
+        int cellMinX = this.cell(minX);
+        int cellMinY = this.cell(minY);
+        int cellMinZ = this.cell(minZ);
+        int cellMaxX = this.cell(maxX);
+        int cellMaxY = this.cell(maxY);
+        int cellMaxZ = this.cell(maxZ);
+        //throws if the cells are outside the packed range, before anything is modified
+        VecHashUtils.pack(cellMinX, cellMinY, cellMinZ);
+        VecHashUtils.pack(cellMaxX, cellMaxY, cellMaxZ);
+        this.setBounds(id, minX, minY, minZ, maxX, maxY, maxZ);
+        int offset = id * 6;
+        cellRanges[offset] = cellMinX;
+        cellRanges[offset + 1] = cellMinY;
+        cellRanges[offset + 2] = cellMinZ;
+        cellRanges[offset + 3] = cellMaxX;
+        cellRanges[offset + 4] = cellMaxY;
+        cellRanges[offset + 5] = cellMaxZ;
+        this.link(id);
+        present[id] = true;
+        size++;
+    }
+
+    /**
+     * Moves a point
+     * @param id The id of the object
+     * @param x The new x coordinate
+     * @param y The new y coordinate
+     * @param z The new z coordinate
+     */
+    public void update(int id, double x, double y, double z){
+        this.update(id, x, y, z, x, y, z);
+    }
+
+    /**
+     * Moves or resizes a box
+     * @param id The id of the object
+     * @param box The new box
+     */
+    public void update(int id, AABBd box){
+        this.update(id, box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+    }
+
+    /**
+     * Moves or resizes a box. The cell lists are only touched if the object moves into a different range of cells.
+     * @param id The id of the object
+     * @param minX The new x minimum of the box
+     * @param minY The new y minimum of the box
+     * @param minZ The new z minimum of the box
+     * @param maxX The new x maximum of the box
+     * @param maxY The new y maximum of the box
+     * @param maxZ The new z maximum of the box
+     */
+    public void update(int id, double minX, double minY, double minZ, double maxX, double maxY, double maxZ){
+        if(!this.contains(id)){
+            throw new Error("Id is not in the grid! " + id);
+        }
+        if(minX > maxX || minY > maxY || minZ > maxZ){
+            throw new Error("Box min must not exceed max! " + minX + "," + minY + "," + minZ + " " + maxX + "," + maxY + "," + maxZ);
+        }
+        int cellMinX = this.cell(minX);
+        int cellMinY = this.cell(minY);
+        int cellMinZ = this.cell(minZ);
+        int cellMaxX = this.cell(maxX);
+        int cellMaxY = this.cell(maxY);
+        int cellMaxZ = this.cell(maxZ);
+        //throws if the cells are outside the packed range, before anything is modified
+        VecHashUtils.pack(cellMinX, cellMinY, cellMinZ);
+        VecHashUtils.pack(cellMaxX, cellMaxY, cellMaxZ);
+        this.setBounds(id, minX, minY, minZ, maxX, maxY, maxZ);
+        int offset = id * 6;
+        if(
+            cellRanges[offset] == cellMinX && cellRanges[offset + 1] == cellMinY && cellRanges[offset + 2] == cellMinZ &&
+            cellRanges[offset + 3] == cellMaxX && cellRanges[offset + 4] == cellMaxY && cellRanges[offset + 5] == cellMaxZ
+        ){
+            return;
+        }
+        this.unlink(id);
+        cellRanges[offset] = cellMinX;
+        cellRanges[offset + 1] = cellMinY;
+        cellRanges[offset + 2] = cellMinZ;
+        cellRanges[offset + 3] = cellMaxX;
+        cellRanges[offset + 4] = cellMaxY;
+        cellRanges[offset + 5] = cellMaxZ;
+        this.link(id);
+    }
+
+    /**
+     * Removes an object
+     * @param id The id of the object
+     * @return true if the object was in the grid, false otherwise
+     */
+    public boolean remove(int id){
+        if(!this.contains(id)){
+            return false;
+        }
+        this.unlink(id);
+        present[id] = false;
+        size--;
+        return true;
+    }
+
+    /**
+     * Checks if an object is in the grid
+     * @param id The id of the object
+     * @return true if it is in the grid, false otherwise
+     */
+    public boolean contains(int id){
+        return id >= 0 && id < present.length && present[id];
+    }
+
+    /**
+     * Gets the bounds of an object
+     * @param id The id of the object
+     * @param out The box to store the bounds in
+     * @return The box
+     */
+    public AABBd getBounds(int id, AABBd out){
+        if(!this.contains(id)){
+            throw new Error("Id is not in the grid! " + id);
+        }
+        int offset = id * 6;
+        out.minX = bounds[offset];
+        out.minY = bounds[offset + 1];
+        out.minZ = bounds[offset + 2];
+        out.maxX = bounds[offset + 3];
+        out.maxY = bounds[offset + 4];
+        out.maxZ = bounds[offset + 5];
+        return out;
+    }
+
+    /**
+     * Gets the number of objects in the grid
+     * @return The number of objects
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Gets the number of occupied cells
+     * @return The number of cells
+     */
+    public int getCellCount(){
+        return cells.size();
+    }
+
+    /**
+     * Gets the length of a side of a cell
+     * @return The cell size
+     */
+    public double getCellSize(){
+        return cellSize;
+    }
+
+    /**
+     * Removes all objects
+     */
+    public void clear(){
+        cells.clear();
+        Arrays.fill(present, false);
+        size = 0;
+    }
+
+    /**
+     * Finds every object whose bounds are within a distance of a point
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @param radius The distance
+     * @param consumer Receives the id of each object, in no particular order
+     */
+    public void queryRadius(double x, double y, double z, double radius, IntConsumer consumer){
+        this.gather(
+            this.cell(x - radius), this.cell(y - radius), this.cell(z - radius),
+            this.cell(x + radius), this.cell(y + radius), this.cell(z + radius)
+        );
+        double radiusSquared = radius * radius;
+        for(int i = 0; i < candidateCount; i++){
+            int id = candidates[i];
+            if(this.distanceSquared(id, x, y, z) <= radiusSquared){
+                consumer.accept(id);
+            }
+        }
+    }
+
+    /**
+     * Finds every object whose bounds overlap a box (touching counts as overlapping)
+     * @param box The box
+     * @param consumer Receives the id of each object, in no particular order
+     */
+    public void queryAABB(AABBd box, IntConsumer consumer){
+        this.queryAABB(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ, consumer);
+    }
+
+    /**
+     * Finds every object whose bounds overlap a box (touching counts as overlapping)
+     * @param minX The x minimum of the box
+     * @param minY The y minimum of the box
+     * @param minZ The z minimum of the box
+     * @param maxX The x maximum of the box
+     * @param maxY The y maximum of the box
+     * @param maxZ The z maximum of the box
+     * @param consumer Receives the id of each object, in no particular order
+     */
+    public void queryAABB(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, IntConsumer consumer){
+        this.gather(this.cell(minX), this.cell(minY), this.cell(minZ), this.cell(maxX), this.cell(maxY), this.cell(maxZ));
+        for(int i = 0; i < candidateCount; i++){
+            int id = candidates[i];
+            int offset = id * 6;
+            if(
+                bounds[offset] <= maxX && bounds[offset + 3] >= minX &&
+                bounds[offset + 1] <= maxY && bounds[offset + 4] >= minY &&
+                bounds[offset + 2] <= maxZ && bounds[offset + 5] >= minZ
+            ){
+                consumer.accept(id);
+            }
+        }
+    }
+
+    /**
+     * Finds every object whose bounds overlap a tube around a line segment
+     * @param tubeStart The start of the tube
+     * @param tubeEnd The end of the tube
+     * @param radius The radius of the tube
+     * @param consumer Receives the id of each object, in no particular order
+     */
+    public void queryTube(Vector3d tubeStart, Vector3d tubeEnd, double radius, IntConsumer consumer){
+        this.gather(
+            this.cell(Math.min(tubeStart.x, tubeEnd.x) - radius),
+            this.cell(Math.min(tubeStart.y, tubeEnd.y) - radius),
+            this.cell(Math.min(tubeStart.z, tubeEnd.z) - radius),
+            this.cell(Math.max(tubeStart.x, tubeEnd.x) + radius),
+            this.cell(Math.max(tubeStart.y, tubeEnd.y) + radius),
+            this.cell(Math.max(tubeStart.z, tubeEnd.z) + radius)
+        );
+        for(int i = 0; i < candidateCount; i++){
+            int id = candidates[i];
+            this.getBounds(id, scratchBox);
+            if(GeomUtils.intersectAABBTube(scratchBox, tubeStart, tubeEnd, radius)){
+                consumer.accept(id);
+            }
+        }
+    }
+
+    /**
+     * Finds the objects whose bounds are nearest to a point.
+     * Searches outward from the cell of the point one shell of cells at a time, stopping once no unsearched cell can hold anything nearer.
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @param k The maximum number of objects to find
+     * @param outIds The array to store the ids in, nearest first
+     * @param outDistances The array to store the squared distances in, or null
+     * @return The number of objects found (less than k if the grid holds fewer than k objects)
+     */
+    public int queryNearest(double x, double y, double z, int k, int[] outIds, double[] outDistances){
+        if(k < 0 || outIds.length < k || (outDistances != null && outDistances.length < k)){
+            throw new Error("Invalid k or output length! " + k);
+        }
+        if(k == 0 || size == 0){
+            return 0;
+        }
+        if(heapIds.length < k){
+            heapIds = new int[k];
+            heapDistances = new double[k];
+        }
+        int heapSize = 0;
+        int centerX = this.cell(x);
+        int centerY = this.cell(y);
+        int centerZ = this.cell(z);
+        this.nextStamp();
+        int seen = 0;
+        for(int ring = 0; ; ring++){
+            //a shell holds more cells than are occupied, so scanning the occupied cells once is cheaper and finishes the search
+            long shellCells = ring == 0 ? 1 : (long)(2 * ring + 1) * (2 * ring + 1) * (2 * ring + 1) - (long)(2 * ring - 1) * (2 * ring - 1) * (2 * ring - 1);
+            boolean scanAll = shellCells > cells.size();
+            candidateCount = 0;
+            if(scanAll){
+                this.gatherAll(Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+            } else {
+                this.gatherShell(centerX, centerY, centerZ, ring);
+            }
+            seen = seen + candidateCount;
+            for(int i = 0; i < candidateCount; i++){
+                int id = candidates[i];
+                double distance = this.distanceSquared(id, x, y, z);
+                if(heapSize < k){
+                    heapSize = SpatialHashGrid.heapPush(heapIds, heapDistances, heapSize, id, distance);
+                } else if(distance < heapDistances[0]){
+                    SpatialHashGrid.heapReplaceTop(heapIds, heapDistances, heapSize, id, distance);
+                }
+            }
+            if(scanAll || seen == size){
+                break;
+            }
+            if(heapSize == k){
+                //anything not yet seen lies outside the searched block of cells
+                double gap = Math.min(
+                    Math.min(x - centerX * cellSize, (centerX + 1) * cellSize - x),
+                    Math.min(
+                        Math.min(y - centerY * cellSize, (centerY + 1) * cellSize - y),
+                        Math.min(z - centerZ * cellSize, (centerZ + 1) * cellSize - z)
+                    )
+                ) + ring * cellSize;
+                if(heapDistances[0] <= gap * gap){
+                    break;
+                }
+            }
+        }
+        SpatialHashGrid.heapDrain(heapIds, heapDistances, heapSize, outIds, outDistances);
+        return heapSize;
+    }
+
+    /**
+     * Gets the cell coordinate of a world coordinate
+     * @param value The world coordinate
+     * @return The cell coordinate
+     */
+    private int cell(double value){
+        return (int)Math.floor(value * inverseCellSize);
+    }
+
+    /**
+     * Gets the squared distance from a point to the bounds of an object
+     * @param id The id of the object
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @return The squared distance
+     */
+    private double distanceSquared(int id, double x, double y, double z){
+        int offset = id * 6;
+        return GeomUtils.getMinSquaredDistanceAABB(
+            x, y, z,
+            bounds[offset], bounds[offset + 1], bounds[offset + 2],
+            bounds[offset + 3], bounds[offset + 4], bounds[offset + 5]
+        );
+    }
+
+    /**
+     * Stores the bounds of an object
+     * @param id The id of the object
+     * @param minX The x minimum of the box
+     * @param minY The y minimum of the box
+     * @param minZ The z minimum of the box
+     * @param maxX The x maximum of the box
+     * @param maxY The y maximum of the box
+     * @param maxZ The z maximum of the box
+     */
+    private void setBounds(int id, double minX, double minY, double minZ, double maxX, double maxY, double maxZ){
+        int offset = id * 6;
+        bounds[offset] = minX;
+        bounds[offset + 1] = minY;
+        bounds[offset + 2] = minZ;
+        bounds[offset + 3] = maxX;
+        bounds[offset + 4] = maxY;
+        bounds[offset + 5] = maxZ;
+    }
+
+    /**
+     * Lists an object in every cell of its cell range
+     * @param id The id of the object
+     */
+    private void link(int id){
+        int offset = id * 6;
+        for(int z = cellRanges[offset + 2]; z <= cellRanges[offset + 5]; z++){
+            for(int y = cellRanges[offset + 1]; y <= cellRanges[offset + 4]; y++){
+                for(int x = cellRanges[offset]; x <= cellRanges[offset + 3]; x++){
+                    cells.computeIfAbsent(VecHashUtils.pack(x, y, z), (long key) -> new Cell()).add(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes an object from every cell of its cell range, dropping cells that become empty
+     * @param id The id of the object
+     */
+    private void unlink(int id){
+        int offset = id * 6;
+        for(int z = cellRanges[offset + 2]; z <= cellRanges[offset + 5]; z++){
+            for(int y = cellRanges[offset + 1]; y <= cellRanges[offset + 4]; y++){
+                for(int x = cellRanges[offset]; x <= cellRanges[offset + 3]; x++){
+                    long key = VecHashUtils.pack(x, y, z);
+                    Cell cell = cells.get(key);
+                    cell.remove(id);
+                    if(cell.count == 0){
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gathers the objects listed in a range of cells into the candidates, each object once
+     * @param minX The x minimum of the cell range
+     * @param minY The y minimum of the cell range
+     * @param minZ The z minimum of the cell range
+     * @param maxX The x maximum of the cell range
+     * @param maxY The y maximum of the cell range
+     * @param maxZ The z maximum of the cell range
+     */
+    private void gather(int minX, int minY, int minZ, int maxX, int maxY, int maxZ){
+        this.nextStamp();
+        candidateCount = 0;
+        //no object lies outside the packed range
+        minX = Math.max(minX, VecHashUtils.PACK_MIN);
+        minY = Math.max(minY, VecHashUtils.PACK_MIN);
+        minZ = Math.max(minZ, VecHashUtils.PACK_MIN);
+        maxX = Math.min(maxX, VecHashUtils.PACK_MAX);
+        maxY = Math.min(maxY, VecHashUtils.PACK_MAX);
+        maxZ = Math.min(maxZ, VecHashUtils.PACK_MAX);
+        if(minX > maxX || minY > maxY || minZ > maxZ){
+            return;
+        }
+        double rangeCells = (double)(maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
+        if(rangeCells > cells.size()){
+            //the range holds more cells than are occupied, so filtering the occupied cells is cheaper
+            this.gatherAll(minX, minY, minZ, maxX, maxY, maxZ);
+            return;
+        }
+        for(int z = minZ; z <= maxZ; z++){
+            for(int y = minY; y <= maxY; y++){
+                for(int x = minX; x <= maxX; x++){
+                    this.gatherCell(cells.get(VecHashUtils.pack(x, y, z)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gathers the objects listed in the occupied cells within a range of cells, each object once
+     * @param minX The x minimum of the cell range
+     * @param minY The y minimum of the cell range
+     * @param minZ The z minimum of the cell range
+     * @param maxX The x maximum of the cell range
+     * @param maxY The y maximum of the cell range
+     * @param maxZ The z maximum of the cell range
+     */
+    private void gatherAll(int minX, int minY, int minZ, int maxX, int maxY, int maxZ){
+        cells.forEach((long key, Cell cell) -> {
+            int x = VecHashUtils.unpack(key, 0);
+            int y = VecHashUtils.unpack(key, 1);
+            int z = VecHashUtils.unpack(key, 2);
+            if(x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ){
+                this.gatherCell(cell);
+            }
+        });
+    }
+
+    /**
+     * Gathers the objects listed in the cells at a chebyshev distance from a center cell, each object once
+     * @param centerX The x coordinate of the center cell
+     * @param centerY The y coordinate of the center cell
+     * @param centerZ The z coordinate of the center cell
+     * @param ring The distance
+     */
+    private void gatherShell(int centerX, int centerY, int centerZ, int ring){
+        for(int z = centerZ - ring; z <= centerZ + ring; z++){
+            boolean zFace = z == centerZ - ring || z == centerZ + ring;
+            for(int y = centerY - ring; y <= centerY + ring; y++){
+                boolean yFace = y == centerY - ring || y == centerY + ring;
+                if(zFace || yFace){
+                    for(int x = centerX - ring; x <= centerX + ring; x++){
+                        this.gatherCell(this.getCell(x, y, z));
+                    }
+                } else {
+                    //only the two x faces of this row are on the shell
+                    this.gatherCell(this.getCell(centerX - ring, y, z));
+                    this.gatherCell(this.getCell(centerX + ring, y, z));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets an occupied cell
+     * @param x The x coordinate of the cell
+     * @param y The y coordinate of the cell
+     * @param z The z coordinate of the cell
+     * @return The cell, or null if it is unoccupied or outside the packed range
+     */
+    private Cell getCell(int x, int y, int z){
+        if(
+            x < VecHashUtils.PACK_MIN || x > VecHashUtils.PACK_MAX ||
+            y < VecHashUtils.PACK_MIN || y > VecHashUtils.PACK_MAX ||
+            z < VecHashUtils.PACK_MIN || z > VecHashUtils.PACK_MAX
+        ){
+            return null;
+        }
+        return cells.get(VecHashUtils.pack(x, y, z));
+    }
+
+    /**
+     * Gathers the objects of a cell that the current query has not gathered yet
+     * @param cell The cell, or null
+     */
+    private void gatherCell(Cell cell){
+        if(cell == null){
+            return;
+        }
+        for(int i = 0; i < cell.count; i++){
+            int id = cell.ids[i];
+            if(stamps[id] != stamp){
+                stamps[id] = stamp;
+                if(candidateCount == candidates.length){
+                    candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                }
+                candidates[candidateCount] = id;
+                candidateCount++;
+            }
+        }
+    }
+
+    /**
+     * Starts a new query
+     */
+    private void nextStamp(){
+        stamp++;
+        if(stamp == Integer.MAX_VALUE){
+            //reset rather than wrap, so an old stamp can never match
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    /**
+     * Grows the per-object arrays to hold an id
+     * @param capacity The number of ids to hold
+     */
+    private void ensureCapacity(int capacity){
+        if(capacity <= present.length){
+            return;
+        }
+        int length = Math.max(capacity, present.length * 2);
+        bounds = Arrays.copyOf(bounds, length * 6);
+        cellRanges = Arrays.copyOf(cellRanges, length * 6);
+        present = Arrays.copyOf(present, length);
+        stamps = Arrays.copyOf(stamps, length);
+    }
+
+    /**
+     * Pushes an entry onto a max-heap
+     * @param ids The ids of the heap
+     * @param distances The distances of the heap
+     * @param heapSize The size of the heap
+     * @param id The id to push
+     * @param distance The distance to push
+     * @return The new size of the heap
+     */
+    static int heapPush(int[] ids, double[] distances, int heapSize, int id, double distance){
+        int index = heapSize;
+        while(index > 0){
+            int parent = (index - 1) >>> 1;
+            if(distances[parent] >= distance){
+                break;
+            }
+            ids[index] = ids[parent];
+            distances[index] = distances[parent];
+            index = parent;
+        }
+        ids[index] = id;
+        distances[index] = distance;
+        return heapSize + 1;
+    }
+
+    /**
+     * Replaces the top (farthest) entry of a max-heap
+     * @param ids The ids of the heap
+     * @param distances The distances of the heap
+     * @param heapSize The size of the heap
+     * @param id The id to insert
+     * @param distance The distance to insert
+     */
+    static void heapReplaceTop(int[] ids, double[] distances, int heapSize, int id, double distance){
+        int index = 0;
+        while(true){
+            int child = index * 2 + 1;
+            if(child >= heapSize){
+                break;
+            }
+            if(child + 1 < heapSize && distances[child + 1] > distances[child]){
+                child++;
+            }
+            if(distances[child] <= distance){
+                break;
+            }
+            ids[index] = ids[child];
+            distances[index] = distances[child];
+            index = child;
+        }
+        if(heapSize > 0){
+            ids[index] = id;
+            distances[index] = distance;
+        }
+    }
+
+    /**
+     * Empties a max-heap into arrays, nearest first
+     * @param ids The ids of the heap
+     * @param distances The distances of the heap
+     * @param heapSize The size of the heap
+     * @param outIds The array to store the ids in
+     * @param outDistances The array to store the distances in, or null
+     */
+    static void heapDrain(int[] ids, double[] distances, int heapSize, int[] outIds, double[] outDistances){
+        //pop the heap from farthest to nearest
+        while(heapSize > 0){
+            heapSize--;
+            outIds[heapSize] = ids[0];
+            if(outDistances != null){
+                outDistances[heapSize] = distances[0];
+            }
+            SpatialHashGrid.heapReplaceTop(ids, distances, heapSize, ids[heapSize], distances[heapSize]);
+        }
+    }
+
+}
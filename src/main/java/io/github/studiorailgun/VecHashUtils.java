@@ -1,5 +1,9 @@
 package io.github.studiorailgun;
 
+import java.util.Arrays;
+
+import org.joml.Vector3i;
+
 /**
  * Utilities for hashing/unhashing vectors
  */
@@ -34,6 +38,49 @@ public class VecHashUtils {
      * Unhashes the z component
      */
     public static final int UNHASH_COMPONENT_Z = 2;
+
+    /**
+     * The number of bits per axis of a packed signed vector
+     */
+    public static final int PACK_BITS = 21;
+
+    /**
+     * The smallest value a component of a packed signed vector can have
+     */
+    public static final int PACK_MIN = -(1 << (PACK_BITS - 1));
+
+    /**
+     * The largest value a component of a packed signed vector can have
+     */
+    public static final int PACK_MAX = (1 << (PACK_BITS - 1)) - 1;
+
+    /**
+     * Mask of the bits of a single component of a packed signed vector
+     */
+    private static final long PACK_MASK = (1L << PACK_BITS) - 1;
+
+    /**
+     * The number of bits per axis of a 3d morton key
+     */
+    public static final int MORTON_BITS_3D = 21;
+
+    /**
+     * Mask of the bits of a single axis value that fit in a 3d morton key
+     */
+    private static final long MORTON_AXIS_MASK_3D = (1L << MORTON_BITS_3D) - 1;
+
+    /**
+     * Mask of the x bits of a 3d morton key (the y and z bits are this shifted by 1 and 2)
+     */
+    private static final long MORTON_MASK_3D_X = 0x1249249249249249L;
+    private static final long MORTON_MASK_3D_Y = MORTON_MASK_3D_X << 1;
+    private static final long MORTON_MASK_3D_Z = MORTON_MASK_3D_X << 2;
+
+    /**
+     * Mask of the x bits of a 2d morton key (the y bits are this shifted by 1)
+     */
+    private static final long MORTON_MASK_2D_X = 0x5555555555555555L;
+    private static final long MORTON_MASK_2D_Y = MORTON_MASK_2D_X << 1;
     
     /**
      * Hashes an integer vector. Must be within the range [0,65536]
@@ -93,4 +140,514 @@ public class VecHashUtils {
         }
     }
 
+    /**
+     * Unhashes every component of an ivec-hashed value
+     * @param hash The hash
+     * @param out The vector to store the components in
+     * @return The vector
+     */
+    public static Vector3i unhashIVec(long hash, Vector3i out){
+        return out.set(
+            (int)(hash & UNHASH_MASK),
+            (int)(hash >> SHIFT_Y & UNHASH_MASK),
+            (int)(hash >> SHIFT_Z & UNHASH_MASK)
+        );
+    }
+
+    /**
+     * Packs a signed integer vector into a long by biasing each component into 21 bits.
+     * Keys of vectors with the same y and z are consecutive along x, and keys sort by z, then y, then x.
+     * Must be within the range [-1048576,1048575]
+     * @param x The x component
+     * @param y The y component
+     * @param z The z component
+     * @return The packed value
+     */
+    public static long pack(int x, int y, int z){
+        int biasedX = x - PACK_MIN;
+        int biasedY = y - PACK_MIN;
+        int biasedZ = z - PACK_MIN;
+        //a single check covers every component, since any out of range component sets a bit above the lowest 21
+        if(((biasedX | biasedY | biasedZ) >>> PACK_BITS) != 0){
+            throw new Error("Values must be in range [" + PACK_MIN + ", " + PACK_MAX + "] " + x + "," + y + "," + z);
+        }
+        return (long)biasedX | ((long)biasedY << PACK_BITS) | ((long)biasedZ << (PACK_BITS * 2));
+    }
+
+    /**
+     * Unpacks a component of a packed signed vector
+     * @param packed The packed value
+     * @param component The component (x, y, or z) to pull from the value (x=0, y=1, z=2)
+     * @return The value
+     */
+    public static int unpack(long packed, int component){
+        switch(component){
+            case 0: {
+                return (int)(packed & PACK_MASK) + PACK_MIN;
+            }
+            case 1: {
+                return (int)(packed >>> PACK_BITS & PACK_MASK) + PACK_MIN;
+            }
+            case 2: {
+                return (int)(packed >>> (PACK_BITS * 2) & PACK_MASK) + PACK_MIN;
+            }
+            default: {
+                throw new Error("Provided undefined component! " + component);
+            }
+        }
+    }
+
+    /**
+     * Unpacks every component of a packed signed vector
+     * @param packed The packed value
+     * @param out The vector to store the components in
+     * @return The vector
+     */
+    public static Vector3i unpack(long packed, Vector3i out){
+        return out.set(
+            (int)(packed & PACK_MASK) + PACK_MIN,
+            (int)(packed >>> PACK_BITS & PACK_MASK) + PACK_MIN,
+            (int)(packed >>> (PACK_BITS * 2) & PACK_MASK) + PACK_MIN
+        );
+    }
+
+    /**
+     * Unpacks every component of a packed signed vector
+     * @param packed The packed value
+     * @param out The array to store the x, y, z components in
+     * @param offset The index in the array to store the x component at
+     */
+    public static void unpack(long packed, int[] out, int offset){
+        out[offset] = (int)(packed & PACK_MASK) + PACK_MIN;
+        out[offset + 1] = (int)(packed >>> PACK_BITS & PACK_MASK) + PACK_MIN;
+        out[offset + 2] = (int)(packed >>> (PACK_BITS * 2) & PACK_MASK) + PACK_MIN;
+    }
+
+    /**
+     * Packs a batch of signed integer vectors, identical to calling {@link #pack(int, int, int)} for each
+     * @param vectors The vectors, interleaved x, y, z
+     * @param out The output array
+     * @param count The number of vectors
+     */
+    public static void pack(int[] vectors, long[] out, int count){
+        //check the whole batch once up front so the packing loop has no branches
+        int bits = 0;
+        for(int i = 0; i < count * 3; i++){
+            bits = bits | (vectors[i] - PACK_MIN);
+        }
+        if((bits >>> PACK_BITS) != 0){
+            //find the offending vector to report it
+            for(int i = 0; i < count; i++){
+                VecHashUtils.pack(vectors[i * 3], vectors[i * 3 + 1], vectors[i * 3 + 2]);
+            }
+        }
+        for(int i = 0; i < count; i++){
+            out[i] = (long)(vectors[i * 3] - PACK_MIN) |
+                ((long)(vectors[i * 3 + 1] - PACK_MIN) << PACK_BITS) |
+                ((long)(vectors[i * 3 + 2] - PACK_MIN) << (PACK_BITS * 2));
+        }
+    }
+
+    /**
+     * Unpacks a batch of packed signed vectors, identical to calling {@link #unpack(long, int[], int)} for each
+     * @param packed The packed values
+     * @param out The array to store the vectors in, interleaved x, y, z
+     * @param count The number of vectors
+     */
+    public static void unpack(long[] packed, int[] out, int count){
+        for(int i = 0; i < count; i++){
+            long value = packed[i];
+            out[i * 3] = (int)(value & PACK_MASK) + PACK_MIN;
+            out[i * 3 + 1] = (int)(value >>> PACK_BITS & PACK_MASK) + PACK_MIN;
+            out[i * 3 + 2] = (int)(value >>> (PACK_BITS * 2) & PACK_MASK) + PACK_MIN;
+        }
+    }
+
+    /**
+     * Encodes an integer vector as a 3d morton (z-order) key by interleaving the bits of the components.
+     * Keys that are close numerically are close spatially, so iterating in key order visits neighbors together.
+     * Must be within the range [0,2097151] (21 bits)
+     * @param x The x component
+     * @param y The y component
+     * @param z The z component
+     * @return The morton key
+     */
+    public static long mortonEncode(int x, int y, int z){
+        if(x < 0 || x > MORTON_AXIS_MASK_3D || y < 0 || y > MORTON_AXIS_MASK_3D || z < 0 || z > MORTON_AXIS_MASK_3D){
+            throw new Error("Values must be in range [0, " + MORTON_AXIS_MASK_3D + "] " + x + "," + y + "," + z);
+        }
+        return VecHashUtils.spread3(x) | (VecHashUtils.spread3(y) << 1) | (VecHashUtils.spread3(z) << 2);
+    }
+
+    /**
+     * Decodes a component of a 3d morton key
+     * @param key The morton key
+     * @param component The component (x, y, or z) to pull from the key (x=0, y=1, z=2)
+     * @return The value
+     */
+    public static int mortonDecode(long key, int component){
+        switch(component){
+            case 0: {
+                return (int)VecHashUtils.compact3(key);
+            }
+            case 1: {
+                return (int)VecHashUtils.compact3(key >>> 1);
+            }
+            case 2: {
+                return (int)VecHashUtils.compact3(key >>> 2);
+            }
+            default: {
+                throw new Error("Provided undefined component! " + component);
+            }
+        }
+    }
+
+    /**
+     * Adds two 3d morton keys component-wise without decoding them. Each component wraps around within its 21 bits.
+     * @param key The morton key
+     * @param delta The morton key of the offset to add (negative offsets can be encoded from their lowest 21 bits, see {@link #mortonStep(long, int, int, int)})
+     * @return The morton key of the sum
+     */
+    public static long mortonAdd(long key, long delta){
+        //filling the other axes' bits with ones carries straight through them
+        long x = ((key | ~MORTON_MASK_3D_X) + (delta & MORTON_MASK_3D_X)) & MORTON_MASK_3D_X;
+        long y = ((key | ~MORTON_MASK_3D_Y) + (delta & MORTON_MASK_3D_Y)) & MORTON_MASK_3D_Y;
+        long z = ((key | ~MORTON_MASK_3D_Z) + (delta & MORTON_MASK_3D_Z)) & MORTON_MASK_3D_Z;
+        return x | y | z;
+    }
+
+    /**
+     * Offsets a 3d morton key by a (possibly negative) vector without decoding it. Each component wraps around within its 21 bits.
+     * @param key The morton key
+     * @param dx The offset along the x axis
+     * @param dy The offset along the y axis
+     * @param dz The offset along the z axis
+     * @return The morton key of the offset position
+     */
+    public static long mortonStep(long key, int dx, int dy, int dz){
+        long delta = VecHashUtils.spread3(dx & MORTON_AXIS_MASK_3D) | (VecHashUtils.spread3(dy & MORTON_AXIS_MASK_3D) << 1) | (VecHashUtils.spread3(dz & MORTON_AXIS_MASK_3D) << 2);
+        return VecHashUtils.mortonAdd(key, delta);
+    }
+
+    /**
+     * Gets the morton key of the next position along the x axis
+     * @param key The morton key
+     * @return The morton key of (x+1,y,z)
+     */
+    public static long mortonIncX(long key){
+        return (((key | ~MORTON_MASK_3D_X) + 1) & MORTON_MASK_3D_X) | (key & ~MORTON_MASK_3D_X);
+    }
+
+    /**
+     * Gets the morton key of the previous position along the x axis
+     * @param key The morton key
+     * @return The morton key of (x-1,y,z)
+     */
+    public static long mortonDecX(long key){
+        return (((key & MORTON_MASK_3D_X) - 1) & MORTON_MASK_3D_X) | (key & ~MORTON_MASK_3D_X);
+    }
+
+    /**
+     * Gets the morton key of the next position along the y axis
+     * @param key The morton key
+     * @return The morton key of (x,y+1,z)
+     */
+    public static long mortonIncY(long key){
+        return (((key | ~MORTON_MASK_3D_Y) + (1L << 1)) & MORTON_MASK_3D_Y) | (key & ~MORTON_MASK_3D_Y);
+    }
+
+    /**
+     * Gets the morton key of the previous position along the y axis
+     * @param key The morton key
+     * @return The morton key of (x,y-1,z)
+     */
+    public static long mortonDecY(long key){
+        return (((key & MORTON_MASK_3D_Y) - (1L << 1)) & MORTON_MASK_3D_Y) | (key & ~MORTON_MASK_3D_Y);
+    }
+
+    /**
+     * Gets the morton key of the next position along the z axis
+     * @param key The morton key
+     * @return The morton key of (x,y,z+1)
+     */
+    public static long mortonIncZ(long key){
+        return (((key | ~MORTON_MASK_3D_Z) + (1L << 2)) & MORTON_MASK_3D_Z) | (key & ~MORTON_MASK_3D_Z);
+    }
+
+    /**
+     * Gets the morton key of the previous position along the z axis
+     * @param key The morton key
+     * @return The morton key of (x,y,z-1)
+     */
+    public static long mortonDecZ(long key){
+        return (((key & MORTON_MASK_3D_Z) - (1L << 2)) & MORTON_MASK_3D_Z) | (key & ~MORTON_MASK_3D_Z);
+    }
+
+    /**
+     * Encodes a 2d integer vector as a morton (z-order) key by interleaving the bits of the components.
+     * All 32 bits of each component are stored, so negative values decode back to themselves.
+     * @param x The x component
+     * @param y The y component
+     * @return The morton key
+     */
+    public static long mortonEncode2d(int x, int y){
+        return VecHashUtils.spread2(x & 0xFFFFFFFFL) | (VecHashUtils.spread2(y & 0xFFFFFFFFL) << 1);
+    }
+
+    /**
+     * Decodes a component of a 2d morton key
+     * @param key The morton key
+     * @param component The component (x or y) to pull from the key (x=0, y=1)
+     * @return The value
+     */
+    public static int mortonDecode2d(long key, int component){
+        switch(component){
+            case 0: {
+                return (int)VecHashUtils.compact2(key);
+            }
+            case 1: {
+                return (int)VecHashUtils.compact2(key >>> 1);
+            }
+            default: {
+                throw new Error("Provided undefined component! " + component);
+            }
+        }
+    }
+
+    /**
+     * Adds two 2d morton keys component-wise without decoding them. Each component wraps around within its 32 bits.
+     * @param key The morton key
+     * @param delta The morton key of the offset to add
+     * @return The morton key of the sum
+     */
+    public static long mortonAdd2d(long key, long delta){
+        long x = ((key | ~MORTON_MASK_2D_X) + (delta & MORTON_MASK_2D_X)) & MORTON_MASK_2D_X;
+        long y = ((key | ~MORTON_MASK_2D_Y) + (delta & MORTON_MASK_2D_Y)) & MORTON_MASK_2D_Y;
+        return x | y;
+    }
+
+    /**
+     * Offsets a 2d morton key by a (possibly negative) vector without decoding it. Each component wraps around within its 32 bits.
+     * @param key The morton key
+     * @param dx The offset along the x axis
+     * @param dy The offset along the y axis
+     * @return The morton key of the offset position
+     */
+    public static long mortonStep2d(long key, int dx, int dy){
+        return VecHashUtils.mortonAdd2d(key, VecHashUtils.mortonEncode2d(dx, dy));
+    }
+
+    /**
+     * Encodes an integer vector as its index along a 3d hilbert curve (Skilling's algorithm).
+     * Consecutive indices are always face-adjacent positions, which keeps neighbors closer together in key order than morton keys.
+     * Must be within the range [0,2097151] (21 bits)
+     * @param x The x component
+     * @param y The y component
+     * @param z The z component
+     * @return The hilbert index
+     */
+    public static long hilbertEncode(int x, int y, int z){
+        if(x < 0 || x > MORTON_AXIS_MASK_3D || y < 0 || y > MORTON_AXIS_MASK_3D || z < 0 || z > MORTON_AXIS_MASK_3D){
+            throw new Error("Values must be in range [0, " + MORTON_AXIS_MASK_3D + "] " + x + "," + y + "," + z);
+        }
+        int x0 = x;
+        int x1 = y;
+        int x2 = z;
+        int t;
+
+        //undo the excess work of the inverse transform
+        for(int q = 1 << (MORTON_BITS_3D - 1); q > 1; q = q >>> 1){
+            int p = q - 1;
+            //x axis
+            if((x0 & q) != 0){
+                x0 = x0 ^ p;
+            }
+            //y axis
+            if((x1 & q) != 0){
+                x0 = x0 ^ p;
+            } else {
+                t = (x0 ^ x1) & p;
+                x0 = x0 ^ t;
+                x1 = x1 ^ t;
+            }
+            //z axis
+            if((x2 & q) != 0){
+                x0 = x0 ^ p;
+            } else {
+                t = (x0 ^ x2) & p;
+                x0 = x0 ^ t;
+                x2 = x2 ^ t;
+            }
+        }
+
+        //gray encode
+        x1 = x1 ^ x0;
+        x2 = x2 ^ x1;
+        t = 0;
+        for(int q = 1 << (MORTON_BITS_3D - 1); q > 1; q = q >>> 1){
+            if((x2 & q) != 0){
+                t = t ^ (q - 1);
+            }
+        }
+        x0 = x0 ^ t;
+        x1 = x1 ^ t;
+        x2 = x2 ^ t;
+
+        //interleave the transposed index, most significant bit from the first axis
+        return (VecHashUtils.spread3(x0) << 2) | (VecHashUtils.spread3(x1) << 1) | VecHashUtils.spread3(x2);
+    }
+
+    /**
+     * Decodes a 3d hilbert index into its integer vector
+     * @param index The hilbert index
+     * @param out The array to store the x, y, z components in
+     */
+    public static void hilbertDecode(long index, int[] out){
+        int x0 = (int)VecHashUtils.compact3(index >>> 2);
+        int x1 = (int)VecHashUtils.compact3(index >>> 1);
+        int x2 = (int)VecHashUtils.compact3(index);
+        int t;
+
+        //gray decode
+        t = x2 >>> 1;
+        x2 = x2 ^ x1;
+        x1 = x1 ^ x0;
+        x0 = x0 ^ t;
+
+        //undo the excess work
+        for(int q = 2; q != (1 << MORTON_BITS_3D); q = q << 1){
+            int p = q - 1;
+            //z axis
+            if((x2 & q) != 0){
+                x0 = x0 ^ p;
+            } else {
+                t = (x0 ^ x2) & p;
+                x0 = x0 ^ t;
+                x2 = x2 ^ t;
+            }
+            //y axis
+            if((x1 & q) != 0){
+                x0 = x0 ^ p;
+            } else {
+                t = (x0 ^ x1) & p;
+                x0 = x0 ^ t;
+                x1 = x1 ^ t;
+            }
+            //x axis
+            if((x0 & q) != 0){
+                x0 = x0 ^ p;
+            }
+        }
+        out[0] = x0;
+        out[1] = x1;
+        out[2] = x2;
+    }
+
+    /**
+     * Decodes a component of a 3d hilbert index. Decoding one component costs as much as decoding all of them, see {@link #hilbertDecode(long, int[])}.
+     * @param index The hilbert index
+     * @param component The component (x, y, or z) to pull from the index (x=0, y=1, z=2)
+     * @return The value
+     */
+    public static int hilbertDecode(long index, int component){
+        if(component < 0 || component > 2){
+            throw new Error("Provided undefined component! " + component);
+        }
+        int[] out = new int[3];
+        VecHashUtils.hilbertDecode(index, out);
+        return out[component];
+    }
+
+    /**
+     * Sorts keys created by {@link #hashIVec(int, int, int)} in place by the hilbert index of their positions, ie to order chunk jobs or region file reads
+     * @param keys The keys
+     */
+    public static void sortByHilbert(long[] keys){
+        VecHashUtils.sortByHilbert(keys, 0, keys.length);
+    }
+
+    /**
+     * Sorts a range of keys created by {@link #hashIVec(int, int, int)} in place by the hilbert index of their positions
+     * @param keys The keys
+     * @param fromIndex The first index to sort (inclusive)
+     * @param toIndex The last index to sort (exclusive)
+     */
+    public static void sortByHilbert(long[] keys, int fromIndex, int toIndex){
+        //the hilbert index is a bijection, so sorting the indices and decoding them gives the sorted keys without carrying the keys along
+        for(int i = fromIndex; i < toIndex; i++){
+            long key = keys[i];
+            keys[i] = VecHashUtils.hilbertEncode(
+                VecHashUtils.unhashIVec(key, UNHASH_COMPONENT_X),
+                VecHashUtils.unhashIVec(key, UNHASH_COMPONENT_Y),
+                VecHashUtils.unhashIVec(key, UNHASH_COMPONENT_Z)
+            );
+        }
+        Arrays.sort(keys, fromIndex, toIndex);
+        int[] pos = new int[3];
+        for(int i = fromIndex; i < toIndex; i++){
+            VecHashUtils.hilbertDecode(keys[i], pos);
+            keys[i] = VecHashUtils.hashIVec(pos[0], pos[1], pos[2]);
+        }
+    }
+
+    /**
+     * Spreads the lowest 21 bits of a value so there are two zero bits between each
+     * @param v The value
+     * @return The spread bits
+     */
+    private static long spread3(long v){
+        v = v & MORTON_AXIS_MASK_3D;
+        v = (v | (v << 32)) & 0x001F00000000FFFFL;
+        v = (v | (v << 16)) & 0x001F0000FF0000FFL;
+        v = (v | (v << 8)) & 0x100F00F00F00F00FL;
+        v = (v | (v << 4)) & 0x10C30C30C30C30C3L;
+        v = (v | (v << 2)) & 0x1249249249249249L;
+        return v;
+    }
+
+    /**
+     * Gathers every third bit of a value into the lowest 21 bits (the inverse of {@link #spread3(long)})
+     * @param v The spread bits
+     * @return The value
+     */
+    private static long compact3(long v){
+        v = v & 0x1249249249249249L;
+        v = (v | (v >>> 2)) & 0x10C30C30C30C30C3L;
+        v = (v | (v >>> 4)) & 0x100F00F00F00F00FL;
+        v = (v | (v >>> 8)) & 0x001F0000FF0000FFL;
+        v = (v | (v >>> 16)) & 0x001F00000000FFFFL;
+        v = (v | (v >>> 32)) & MORTON_AXIS_MASK_3D;
+        return v;
+    }
+
+    /**
+     * Spreads the lowest 32 bits of a value so there is a zero bit between each
+     * @param v The value
+     * @return The spread bits
+     */
+    private static long spread2(long v){
+        v = v & 0xFFFFFFFFL;
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+        return v;
+    }
+
+    /**
+     * Gathers every other bit of a value into the lowest 32 bits (the inverse of {@link #spread2(long)})
+     * @param v The spread bits
+     * @return The value
+     */
+    private static long compact2(long v){
+        v = v & 0x5555555555555555L;
+        v = (v | (v >>> 1)) & 0x3333333333333333L;
+        v = (v | (v >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v >>> 4)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v >>> 8)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v >>> 16)) & 0xFFFFFFFFL;
+        return v;
+    }
+
 }
@@ -0,0 +1,123 @@
+package io.github.studiorailgun;
+
+/**
+ * The result of a single walk of the voronoi kernel. Reusable between samples.
+ */
+public class VoronoiSample {
+
+    /**
+     * The distance to the closest feature point
+     */
+    private double f1;
+
+    /**
+     * The distance to the second closest feature point
+     */
+    private double f2;
+
+    /**
+     * The distance to the third closest feature point
+     */
+    private double f3;
+
+    /**
+     * The x coordinate of the cell containing the closest feature point
+     */
+    private long cellX;
+
+    /**
+     * The y coordinate of the cell containing the closest feature point
+     */
+    private long cellY;
+
+    /**
+     * The z coordinate of the cell containing the closest feature point
+     */
+    private long cellZ;
+
+    /**
+     * Sets the values of the sample
+     * @param f1 The distance to the closest feature point
+     * @param f2 The distance to the second closest feature point
+     * @param f3 The distance to the third closest feature point
+     * @param cellX The x coordinate of the closest cell
+     * @param cellY The y coordinate of the closest cell
+     * @param cellZ The z coordinate of the closest cell
+     */
+    void set(double f1, double f2, double f3, long cellX, long cellY, long cellZ){
+        this.f1 = f1;
+        this.f2 = f2;
+        this.f3 = f3;
+        this.cellX = cellX;
+        this.cellY = cellY;
+        this.cellZ = cellZ;
+    }
+
+    /**
+     * Gets the distance to the closest feature point (the value of {@link NoiseUtils#voronoi(double, double, double)})
+     * @return The distance
+     */
+    public double getF1(){
+        return f1;
+    }
+
+    /**
+     * Gets the distance to the second closest feature point
+     * @return The distance
+     */
+    public double getF2(){
+        return f2;
+    }
+
+    /**
+     * Gets the distance to the third closest feature point
+     * @return The distance
+     */
+    public double getF3(){
+        return f3;
+    }
+
+    /**
+     * Gets the x coordinate of the cell containing the closest feature point
+     * @return The x coordinate
+     */
+    public long getCellX(){
+        return cellX;
+    }
+
+    /**
+     * Gets the y coordinate of the cell containing the closest feature point
+     * @return The y coordinate
+     */
+    public long getCellY(){
+        return cellY;
+    }
+
+    /**
+     * Gets the z coordinate of the cell containing the closest feature point
+     * @return The z coordinate
+     */
+    public long getCellZ(){
+        return cellZ;
+    }
+
+    /**
+     * Gets the diamond noise value of this sample (the value of {@link NoiseUtils#diamond(double, double, double)})
+     * @return The noise value
+     */
+    public double getDiamond(){
+        double triPointDiff = Math.max(Math.max(Math.abs(f1 - f3),Math.abs(f2 - f3)),Math.abs(f1 - f2));
+        return f1 * (triPointDiff);
+    }
+
+    /**
+     * Gets the sharp diamond noise value of this sample (the value of {@link NoiseUtils#diamondSharp(double, double, double)})
+     * @return The noise value
+     */
+    public double getDiamondSharp(){
+        double triPointDiff = Math.max(Math.max(Math.abs(f1 - f3),Math.abs(f2 - f3)),Math.abs(f1 - f2));
+        double twoPointDiff = Math.abs(f1 - f2);
+        return f1 * (triPointDiff - twoPointDiff);
+    }
+
+}
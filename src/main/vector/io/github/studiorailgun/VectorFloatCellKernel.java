@@ -0,0 +1,72 @@
+package io.github.studiorailgun;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The distance pass of the single precision cellular noise using the jdk.incubator.vector API.
+ * Each vector holds the same cell for consecutive samples of a block, so every sample is evaluated in its own lane without gathers.
+ * This class is compiled from its own source root with the vector module and only loaded when the module is present.
+ */
+class VectorFloatCellKernel implements FloatCellKernel {
+
+    /**
+     * The species of the vectors, the widest one the hardware supports that evenly divides a block
+     */
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED.length() <= BLOCK ? FloatVector.SPECIES_PREFERRED : FloatVector.SPECIES_512;
+
+    @Override
+    public void nearest(float[] pointX, float[] pointY, float[] pointZ, float[] x_r, float[] y_r, float[] z_r, int cells, float[] min1, float[] min2, float[] min3){
+        for(int lane = 0; lane < BLOCK; lane = lane + SPECIES.length()){
+            FloatVector sampleX = FloatVector.fromArray(SPECIES, x_r, lane);
+            FloatVector sampleY = FloatVector.fromArray(SPECIES, y_r, lane);
+            FloatVector sampleZ = FloatVector.fromArray(SPECIES, z_r, lane);
+            FloatVector m1 = FloatVector.broadcast(SPECIES, FAR_DIST_SQ);
+            FloatVector m2 = m1;
+            FloatVector m3 = m1;
+            for(int i = 0; i < cells; i++){
+                int index = i * BLOCK + lane;
+                FloatVector d_x = FloatVector.fromArray(SPECIES, pointX, index).sub(sampleX);
+                FloatVector d_y = FloatVector.fromArray(SPECIES, pointY, index).sub(sampleY);
+                FloatVector d_z = FloatVector.fromArray(SPECIES, pointZ, index).sub(sampleZ);
+                FloatVector dist = d_x.mul(d_x).add(d_y.mul(d_y)).add(d_z.mul(d_z));
+                m3 = m3.min(m2.max(dist));
+                m2 = m2.min(m1.max(dist));
+                m1 = m1.min(dist);
+            }
+            m1.intoArray(min1, lane);
+            m2.intoArray(min2, lane);
+            m3.intoArray(min3, lane);
+        }
+    }
+
+    @Override
+    public void smooth(float falloff, float cutoff, float[] pointX, float[] pointY, float[] pointZ, float[] x_r, float[] y_r, float[] z_r, int cells, float[] out){
+        for(int lane = 0; lane < BLOCK; lane = lane + SPECIES.length()){
+            FloatVector sampleX = FloatVector.fromArray(SPECIES, x_r, lane);
+            FloatVector sampleY = FloatVector.fromArray(SPECIES, y_r, lane);
+            FloatVector sampleZ = FloatVector.fromArray(SPECIES, z_r, lane);
+            FloatVector minDistSq = FloatVector.broadcast(SPECIES, FAR_DIST_SQ);
+            for(int i = 0; i < cells; i++){
+                int index = i * BLOCK + lane;
+                FloatVector d_x = FloatVector.fromArray(SPECIES, pointX, index).sub(sampleX);
+                FloatVector d_y = FloatVector.fromArray(SPECIES, pointY, index).sub(sampleY);
+                FloatVector d_z = FloatVector.fromArray(SPECIES, pointZ, index).sub(sampleZ);
+                minDistSq = minDistSq.min(d_x.mul(d_x).add(d_y.mul(d_y)).add(d_z.mul(d_z)));
+            }
+            FloatVector minDist = minDistSq.sqrt();
+            FloatVector res = FloatVector.zero(SPECIES);
+            for(int i = 0; i < cells; i++){
+                int index = i * BLOCK + lane;
+                FloatVector d_x = FloatVector.fromArray(SPECIES, pointX, index).sub(sampleX);
+                FloatVector d_y = FloatVector.fromArray(SPECIES, pointY, index).sub(sampleY);
+                FloatVector d_z = FloatVector.fromArray(SPECIES, pointZ, index).sub(sampleZ);
+                FloatVector delta = d_x.mul(d_x).add(d_y.mul(d_y)).add(d_z.mul(d_z)).sqrt().sub(minDist).mul(falloff);
+                res = res.add(delta.neg().lanewise(VectorOperators.EXP), delta.lt(cutoff));
+            }
+            minDist.sub(res.lanewise(VectorOperators.LOG).div(falloff)).intoArray(out, lane);
+        }
+    }
+
+}
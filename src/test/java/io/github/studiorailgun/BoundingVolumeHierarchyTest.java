@@ -0,0 +1,189 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.joml.AABBd;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the queries of {@link BoundingVolumeHierarchy} against brute force over every box
+ */
+public class BoundingVolumeHierarchyTest {
+
+    /**
+     * Queries match brute force after building, after moving boxes and refitting, and after rebuilding, for several leaf sizes
+     */
+    @Test
+    public void queriesMatchBruteForce(){
+        for(int leafSize : new int[]{ 1, BoundingVolumeHierarchy.DEFAULT_LEAF_SIZE, 16 }){
+            SplittableRandom random = new SplittableRandom(12);
+            AABBd[] boxes = new AABBd[300];
+            for(int i = 0; i < boxes.length; i++){
+                boxes[i] = SpatialHashGridTest.randomBox(random);
+            }
+            BoundingVolumeHierarchy bvh = BoundingVolumeHierarchyTest.build(boxes, leafSize);
+            BoundingVolumeHierarchyTest.checkQueries(bvh, boxes, random, 300);
+            for(int round = 0; round < 5; round++){
+                //move a third of the boxes, some of them far, so the refit tree's nodes overlap heavily
+                for(int i = 0; i < boxes.length / 3; i++){
+                    int id = random.nextInt(boxes.length);
+                    AABBd box = SpatialHashGridTest.randomBox(random);
+                    if(random.nextInt(4) == 0){
+                        box.translate(30, -20, 10);
+                    }
+                    boxes[id] = box;
+                    bvh.setBounds(id, box);
+                }
+                bvh.refit();
+                BoundingVolumeHierarchyTest.checkQueries(bvh, boxes, random, 100);
+            }
+            bvh.rebuild();
+            BoundingVolumeHierarchyTest.checkQueries(bvh, boxes, random, 300);
+        }
+    }
+
+    /**
+     * Boxes that all share one center can't be separated by any split, so ranges of them are halved; the queries still match and the tree stays shallow
+     */
+    @Test
+    public void identicalCenters(){
+        SplittableRandom random = new SplittableRandom(13);
+        AABBd[] boxes = new AABBd[200];
+        for(int i = 0; i < boxes.length; i++){
+            if(i % 2 == 0){
+                //nested boxes around the same center, and repeated points
+                double extent = i % 4 == 0 ? 0 : random.nextDouble() * 3;
+                boxes[i] = new AABBd(1 - extent, 2 - extent, 3 - extent, 1 + extent, 2 + extent, 3 + extent);
+            } else {
+                boxes[i] = SpatialHashGridTest.randomBox(random);
+            }
+        }
+        BoundingVolumeHierarchy bvh = BoundingVolumeHierarchyTest.build(boxes, BoundingVolumeHierarchy.DEFAULT_LEAF_SIZE);
+        BoundingVolumeHierarchyTest.checkQueries(bvh, boxes, random, 300);
+
+        AABBd[] same = new AABBd[100];
+        for(int i = 0; i < same.length; i++){
+            same[i] = new AABBd(-1, -1, -1, 1, 1, 1);
+        }
+        BoundingVolumeHierarchy sameBvh = BoundingVolumeHierarchyTest.build(same, 2);
+        assertTrue(sameBvh.getDepth() <= 8, "Depth " + sameBvh.getDepth());
+        BoundingVolumeHierarchyTest.checkQueries(sameBvh, same, random, 100);
+    }
+
+    /**
+     * NaN bounds are rejected when building and when moving a box, leaving the box unchanged
+     */
+    @Test
+    public void rejectsNaN(){
+        assertThrows(Error.class, () -> new BoundingVolumeHierarchy(new AABBd[]{ new AABBd(Double.NaN, 0, 0, 1, 1, 1) }));
+        BoundingVolumeHierarchy bvh = new BoundingVolumeHierarchy(new AABBd[]{ new AABBd(0, 0, 0, 1, 1, 1) });
+        assertThrows(Error.class, () -> bvh.setBounds(0, 0, 0, 0, 1, Double.NaN, 1));
+        assertThrows(Error.class, () -> bvh.setBounds(0, 0, 0, Double.NaN, 1, 1, Double.NaN));
+        assertEquals(new AABBd(0, 0, 0, 1, 1, 1), bvh.getBounds(0, new AABBd()));
+    }
+
+    /**
+     * Builds a hierarchy from boxes
+     * @param boxes The boxes
+     * @param leafSize The maximum number of boxes in a leaf
+     * @return The hierarchy
+     */
+    private static BoundingVolumeHierarchy build(AABBd[] boxes, int leafSize){
+        int count = boxes.length;
+        double[] minX = new double[count];
+        double[] minY = new double[count];
+        double[] minZ = new double[count];
+        double[] maxX = new double[count];
+        double[] maxY = new double[count];
+        double[] maxZ = new double[count];
+        for(int i = 0; i < count; i++){
+            minX[i] = boxes[i].minX;
+            minY[i] = boxes[i].minY;
+            minZ[i] = boxes[i].minZ;
+            maxX[i] = boxes[i].maxX;
+            maxY[i] = boxes[i].maxY;
+            maxZ[i] = boxes[i].maxZ;
+        }
+        return new BoundingVolumeHierarchy(minX, minY, minZ, maxX, maxY, maxZ, count, leafSize);
+    }
+
+    /**
+     * Runs random radius, tube and k-nearest queries and checks each against brute force
+     * @param bvh The hierarchy
+     * @param boxes The current bounds of every box
+     * @param random The source of the queries
+     * @param queries The number of queries of each kind
+     */
+    private static void checkQueries(BoundingVolumeHierarchy bvh, AABBd[] boxes, SplittableRandom random, int queries){
+        Set<Integer> expected = new HashSet<Integer>();
+        Set<Integer> found = new HashSet<Integer>();
+        for(int q = 0; q < queries; q++){
+            boolean huge = random.nextInt(4) == 0;
+            double x = (random.nextDouble() - 0.5) * 24;
+            double y = (random.nextDouble() - 0.5) * 24;
+            double z = (random.nextDouble() - 0.5) * 24;
+
+            //radius
+            double radius = huge ? 60 : random.nextDouble() * 2.5;
+            expected.clear();
+            for(int id = 0; id < boxes.length; id++){
+                if(SpatialHashGridTest.distanceSquared(boxes[id], x, y, z) <= radius * radius){
+                    expected.add(id);
+                }
+            }
+            found.clear();
+            bvh.queryRadius(x, y, z, radius, (int id) -> assertTrue(found.add(id), "Id reported twice " + id));
+            assertEquals(expected, found);
+
+            //tube
+            double length = huge ? 40 : 4;
+            Vector3d start = new Vector3d(x, y, z);
+            Vector3d end = new Vector3d(
+                x + (random.nextDouble() - 0.5) * length,
+                y + (random.nextDouble() - 0.5) * length,
+                z + (random.nextDouble() - 0.5) * length
+            );
+            double tubeRadius = random.nextDouble() * 1.5;
+            expected.clear();
+            for(int id = 0; id < boxes.length; id++){
+                if(GeomUtils.intersectAABBTube(boxes[id], start, end, tubeRadius)){
+                    expected.add(id);
+                }
+            }
+            found.clear();
+            bvh.queryTube(start, end, tubeRadius, (int id) -> assertTrue(found.add(id), "Id reported twice " + id));
+            assertEquals(expected, found);
+
+            //k-nearest, including points far outside the boxes and k larger than the number of boxes
+            if(random.nextInt(8) == 0){
+                x = x * 50;
+            }
+            int k = random.nextInt(10) == 0 ? boxes.length + 3 : random.nextInt(1, 12);
+            int[] ids = new int[k];
+            double[] distances = new double[k];
+            int count = bvh.queryNearest(x, y, z, k, ids, distances);
+            double[] bruteDistances = new double[boxes.length];
+            for(int id = 0; id < boxes.length; id++){
+                bruteDistances[id] = SpatialHashGridTest.distanceSquared(boxes[id], x, y, z);
+            }
+            Arrays.sort(bruteDistances);
+            assertEquals(Math.min(k, boxes.length), count);
+            found.clear();
+            for(int i = 0; i < count; i++){
+                //ties may be broken either way, so compare distances and check each id has the distance it was reported with
+                assertEquals(bruteDistances[i], distances[i]);
+                assertTrue(found.add(ids[i]), "Id reported twice " + ids[i]);
+                assertEquals(distances[i], SpatialHashGridTest.distanceSquared(boxes[ids[i]], x, y, z));
+            }
+        }
+    }
+
+}
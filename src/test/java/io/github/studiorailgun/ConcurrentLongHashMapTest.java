@@ -0,0 +1,259 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link ConcurrentLongHashMap} against {@link HashMap}, from one thread and from several
+ */
+public class ConcurrentLongHashMapTest {
+
+    /**
+     * The number of threads of the stress test
+     */
+    private static final int THREADS = 8;
+
+    /**
+     * Random operations from a single thread give the same results as a HashMap, including the zero key, whole chunk removal and growth from an empty table
+     */
+    @Test
+    public void matchesHashMap(){
+        SplittableRandom random = new SplittableRandom(7);
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>(0, 4);
+        Map<Long,Long> expected = new HashMap<Long,Long>();
+        for(int i = 0; i < 100000; i++){
+            int chunkX = random.nextInt(4);
+            int chunkY = random.nextInt(2);
+            long key = VecHashUtils.hashVoxel(chunkX, chunkY, 0, random.nextInt(4), random.nextInt(4), random.nextInt(4));
+            Long value = random.nextLong();
+            int op = random.nextInt(100);
+            if(op < 30){
+                assertEquals(expected.put(key, value), map.put(key, value));
+            } else if(op < 40){
+                assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+            } else if(op < 50){
+                assertEquals(expected.computeIfAbsent(key, k -> value), map.computeIfAbsent(key, k -> value));
+            } else if(op < 75){
+                assertEquals(expected.remove(key), map.remove(key));
+            } else if(op < 77){
+                //a run of keys of one chunk, as putAll is used for
+                int count = random.nextInt(1, 16);
+                long[] keys = new long[count];
+                Long[] values = new Long[count];
+                for(int j = 0; j < count; j++){
+                    keys[j] = VecHashUtils.hashVoxel(chunkX, chunkY, 0, random.nextInt(4), random.nextInt(4), random.nextInt(4));
+                    values[j] = random.nextLong();
+                    expected.put(keys[j], values[j]);
+                }
+                map.putAll(keys, values, count);
+            } else if(op < 78){
+                assertEquals(ConcurrentLongHashMapTest.removeChunk(expected, chunkX, chunkY, 0), map.removeChunk(chunkX, chunkY, 0));
+            } else if(op < 79){
+                ConcurrentLongHashMapTest.assertChunk(expected, map, chunkX, chunkY, 0);
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+            }
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.size(), map.size());
+        }
+        ConcurrentLongHashMapTest.assertSameEntries(expected, map);
+    }
+
+    /**
+     * Removing a chunk rechecks a slot after the backward shift moves another entry of the chunk into it,
+     * for every insertion order of a run of colliding keys that wraps around the end of the table
+     */
+    @Test
+    public void removeChunkRechecksShiftedSlot(){
+        int length = LongHashMap.tableSizeFor(LongHashMap.DEFAULT_CAPACITY);
+        int shift = 64 - Integer.numberOfTrailingZeros(length);
+        //three keys of chunk (1,0,0) and one of chunk (2,0,0), all with their home in the last slot
+        long[] keys = new long[4];
+        int index = 0;
+        for(int voxel = 0; index < keys.length; voxel++){
+            long key = VecHashUtils.hashVoxel(index < 3 ? 1 : 2, 0, 0, voxel & 0xFF, voxel >> 8, 0);
+            if(LongHashMap.spread(key, shift) == length - 1){
+                keys[index] = key;
+                index++;
+            }
+        }
+        for(int permutation = 0; permutation < 24; permutation++){
+            ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>(LongHashMap.DEFAULT_CAPACITY, 1);
+            for(long key : ConcurrentLongHashMapTest.permute(keys, permutation)){
+                map.put(key, key);
+            }
+            assertEquals(3, map.removeChunk(1, 0, 0));
+            for(int i = 0; i < 3; i++){
+                assertFalse(map.containsKey(keys[i]));
+            }
+            assertEquals(keys[3], map.get(keys[3]));
+            assertEquals(1, map.size());
+        }
+    }
+
+    /**
+     * The zero key belongs to chunk (0,0,0)
+     */
+    @Test
+    public void zeroKeyChunk(){
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>();
+        map.put(0, 5L);
+        map.put(VecHashUtils.hashVoxel(0, 0, 0, 1, 0, 0), 6L);
+        map.put(VecHashUtils.hashVoxel(1, 0, 0, 0, 0, 0), 7L);
+        assertEquals(2, map.removeChunk(0, 0, 0));
+        assertNull(map.get(0));
+        assertEquals(7L, map.get(VecHashUtils.hashVoxel(1, 0, 0, 0, 0, 0)));
+    }
+
+    /**
+     * Eight threads each modify the keys of their own chunks, which share segments with the other threads' chunks, while the segments grow.
+     * Each thread checks every result against its own HashMap (nothing else writes its keys), and the final map holds the union of them.
+     */
+    @Test
+    public void concurrentStress() throws Exception {
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<Long>(0, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Map<Long,Long>>> futures = new ArrayList<Future<Map<Long,Long>>>();
+        try {
+            for(int t = 0; t < THREADS; t++){
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return ConcurrentLongHashMapTest.stress(map, thread);
+                }));
+            }
+            start.countDown();
+            Map<Long,Long> expected = new HashMap<Long,Long>();
+            for(Future<Map<Long,Long>> future : futures){
+                expected.putAll(future.get(120, TimeUnit.SECONDS));
+            }
+            ConcurrentLongHashMapTest.assertSameEntries(expected, map);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs random operations on the keys of one thread's chunks
+     * @param map The shared map
+     * @param thread The index of the thread, which is the x position of its chunks
+     * @return The entries the thread's keys should have at the end
+     */
+    private static Map<Long,Long> stress(ConcurrentLongHashMap<Long> map, int thread){
+        SplittableRandom random = new SplittableRandom(100 + thread);
+        Map<Long,Long> expected = new HashMap<Long,Long>();
+        for(int i = 0; i < 50000; i++){
+            int chunkY = random.nextInt(2);
+            long key = VecHashUtils.hashVoxel(thread, chunkY, 0, random.nextInt(8), random.nextInt(8), random.nextInt(4));
+            Long value = random.nextLong();
+            int op = random.nextInt(1000);
+            if(op < 350){
+                assertEquals(expected.put(key, value), map.put(key, value));
+            } else if(op < 450){
+                assertEquals(expected.computeIfAbsent(key, k -> value), map.computeIfAbsent(key, k -> value));
+            } else if(op < 700){
+                assertEquals(expected.remove(key), map.remove(key));
+            } else if(op < 702){
+                assertEquals(ConcurrentLongHashMapTest.removeChunk(expected, thread, chunkY, 0), map.removeChunk(thread, chunkY, 0));
+            } else if(op < 705){
+                ConcurrentLongHashMapTest.assertChunk(expected, map, thread, chunkY, 0);
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+                assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Removes every key of a chunk from a HashMap
+     * @param expected The HashMap
+     * @param chunkX The chunk x position
+     * @param chunkY The chunk y position
+     * @param chunkZ The chunk z position
+     * @return The number of removed keys
+     */
+    private static int removeChunk(Map<Long,Long> expected, int chunkX, int chunkY, int chunkZ){
+        long chunk = VecHashUtils.hashVoxel(chunkX, chunkY, chunkZ, 0, 0, 0);
+        int before = expected.size();
+        expected.keySet().removeIf(key -> (key & ConcurrentLongHashMap.CHUNK_MASK) == chunk);
+        return before - expected.size();
+    }
+
+    /**
+     * Asserts the entries of a chunk match those of a HashMap
+     * @param expected The HashMap
+     * @param map The map
+     * @param chunkX The chunk x position
+     * @param chunkY The chunk y position
+     * @param chunkZ The chunk z position
+     */
+    private static void assertChunk(Map<Long,Long> expected, ConcurrentLongHashMap<Long> map, int chunkX, int chunkY, int chunkZ){
+        long chunk = VecHashUtils.hashVoxel(chunkX, chunkY, chunkZ, 0, 0, 0);
+        Map<Long,Long> chunkEntries = new HashMap<Long,Long>();
+        for(Map.Entry<Long,Long> entry : expected.entrySet()){
+            if((entry.getKey() & ConcurrentLongHashMap.CHUNK_MASK) == chunk){
+                chunkEntries.put(entry.getKey(), entry.getValue());
+            }
+        }
+        Map<Long,Long> actual = new HashMap<Long,Long>();
+        map.forEachInChunk(chunkX, chunkY, chunkZ, (key, value) -> {
+            assertNull(actual.put(key, value));
+        });
+        assertEquals(chunkEntries, actual);
+    }
+
+    /**
+     * Asserts a map holds the same entries as a HashMap
+     * @param expected The HashMap
+     * @param map The map
+     */
+    private static void assertSameEntries(Map<Long,Long> expected, ConcurrentLongHashMap<Long> map){
+        assertEquals(expected.size(), map.size());
+        Map<Long,Long> actual = new HashMap<Long,Long>();
+        map.forEach((key, value) -> {
+            assertNull(actual.put(key, value));
+        });
+        assertEquals(expected, actual);
+        for(Map.Entry<Long,Long> entry : expected.entrySet()){
+            assertTrue(map.containsKey(entry.getKey()));
+        }
+    }
+
+    /**
+     * Gets a permutation of an array
+     * @param values The array
+     * @param permutation The index of the permutation, in [0, values.length!)
+     * @return A new array with the permuted values
+     */
+    private static long[] permute(long[] values, int permutation){
+        List<Long> remaining = new ArrayList<Long>();
+        for(long value : values){
+            remaining.add(value);
+        }
+        long[] rVal = new long[values.length];
+        for(int i = 0; i < rVal.length; i++){
+            int choice = permutation % remaining.size();
+            permutation = permutation / remaining.size();
+            rVal[i] = remaining.remove(choice);
+        }
+        return rVal;
+    }
+
+}
@@ -0,0 +1,33 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link CounterRandom} against the {@link java.util.random.RandomGenerator} contracts
+ */
+public class CounterRandomTest {
+
+    /**
+     * A negative number of splits is an illegal argument, as the splittable generator contract requires
+     */
+    @Test
+    public void splitsRejectsNegativeSize(){
+        CounterRandom random = new CounterRandom(1);
+        assertThrows(IllegalArgumentException.class, () -> random.splits(-1));
+        assertThrows(IllegalArgumentException.class, () -> random.splits(-1, new CounterRandom(2)));
+    }
+
+    /**
+     * A sized split stream has exactly the requested number of generators
+     */
+    @Test
+    public void splitsHasRequestedSize(){
+        CounterRandom random = new CounterRandom(1);
+        assertEquals(0, random.splits(0).count());
+        assertEquals(5, random.splits(5).count());
+    }
+
+}
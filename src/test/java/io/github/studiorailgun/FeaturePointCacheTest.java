@@ -0,0 +1,100 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link FeaturePointCache} serves the points of its own backend
+ */
+public class FeaturePointCacheTest {
+
+    /**
+     * A cache keeps serving the points of the backend it was created with after the global backend changes, without being cleared
+     */
+    @Test
+    public void backendIsFixedAtConstruction(){
+        RandUtils.RandBackend previous = RandUtils.getBackend();
+        try {
+            RandUtils.setBackend(RandUtils.RandBackend.SINE);
+            FeaturePointCache cache = new FeaturePointCache(64);
+            assertEquals(RandUtils.RandBackend.SINE, cache.getBackend());
+            double[] point = new double[3];
+            cache.getPoint(1, 2, 3, point, 0);
+            RandUtils.setBackend(RandUtils.RandBackend.INTEGER_HASH);
+            //the cached point is served, the counters keep counting
+            cache.getPoint(1, 2, 3, point, 0);
+            assertEquals(1, cache.getHits());
+            assertEquals(1, cache.getMisses());
+            assertEquals(RandUtils.rand(RandUtils.RandBackend.SINE, 1, 2, 3, 0), point[0]);
+            //a newly computed point also comes from the cache's backend
+            cache.getPoint(4, 5, 6, point, 0);
+            assertEquals(RandUtils.rand(RandUtils.RandBackend.SINE, 4, 5, 6, 0), point[0]);
+            assertEquals(RandUtils.rand(RandUtils.RandBackend.SINE, 4, 5, 6, 1), point[1]);
+            assertEquals(RandUtils.rand(RandUtils.RandBackend.SINE, 4, 5, 6, 2), point[2]);
+        } finally {
+            RandUtils.setBackend(previous);
+        }
+    }
+
+    /**
+     * A cache created with an explicit backend computes that backend's points
+     */
+    @Test
+    public void explicitBackend(){
+        FeaturePointCache cache = new FeaturePointCache(64, RandUtils.RandBackend.INTEGER_HASH);
+        double[] point = new double[3];
+        for(int i = -10; i < 10; i++){
+            cache.getPoint(i, -i, i * 7, point, 0);
+            assertEquals(RandUtils.hashRand(i, -i, i * 7, 0), point[0]);
+            assertEquals(RandUtils.hashRand(i, -i, i * 7, 1), point[1]);
+            assertEquals(RandUtils.hashRand(i, -i, i * 7, 2), point[2]);
+        }
+    }
+
+    /**
+     * Threads sharing a small cache (so points are evicted and recomputed) while the global backend flips always get the cache's points
+     * @throws Exception If a worker fails
+     */
+    @Test
+    public void concurrentLookupsWhileBackendChanges() throws Exception {
+        RandUtils.RandBackend previous = RandUtils.getBackend();
+        FeaturePointCache cache = new FeaturePointCache(64, RandUtils.RandBackend.INTEGER_HASH);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for(int t = 0; t < 4; t++){
+                int seed = t;
+                futures.add(pool.submit(() -> {
+                    double[] point = new double[3];
+                    for(int i = 0; i < 20000; i++){
+                        long x = (i * 31 + seed) % 97;
+                        long y = (i * 17) % 13;
+                        cache.getPoint(x, y, seed, point, 0);
+                        assertEquals(RandUtils.hashRand(x, y, seed, 0), point[0]);
+                        assertEquals(RandUtils.hashRand(x, y, seed, 1), point[1]);
+                        assertEquals(RandUtils.hashRand(x, y, seed, 2), point[2]);
+                    }
+                }));
+            }
+            for(int i = 0; i < 200; i++){
+                RandUtils.setBackend(i % 2 == 0 ? RandUtils.RandBackend.SINE : RandUtils.RandBackend.INTEGER_HASH);
+                Thread.yield();
+            }
+            for(Future<?> future : futures){
+                future.get();
+            }
+            assertEquals(4 * 20000, cache.getHits() + cache.getMisses());
+        } finally {
+            pool.shutdown();
+            RandUtils.setBackend(previous);
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.studiorailgun.FractalNoise.FractalMode;
+import io.github.studiorailgun.NoiseUtils.CellNoiseType;
+
+/**
+ * Checks that the grid fill of {@link FractalNoise} matches its scalar sampling
+ */
+public class FractalNoiseTest {
+
+    /**
+     * The number of samples along each axis
+     */
+    private static final int DIM = 12;
+
+    /**
+     * The grid fill gives exactly the values of sample() for every mode, including lacunarities that aren't powers of two
+     * (whose positions round differently if the origin and step are scaled instead of each position)
+     */
+    @Test
+    public void fillGridMatchesSample(){
+        CellNoiseType[] types = new CellNoiseType[]{ CellNoiseType.VORONOI, CellNoiseType.SMOOTH_VORONOI_FAST, CellNoiseType.VORONOI_RELAXED };
+        for(CellNoiseType type : types){
+            double param = type == CellNoiseType.VORONOI_RELAXED ? 0.5 : 16;
+            for(FractalMode mode : FractalMode.values()){
+                for(double lacunarity : new double[]{ 2.0, 1.9, 2.7, 0.5 }){
+                    FractalNoise noise = new FractalNoise(type, param, mode, 5, lacunarity, 0.5);
+                    for(double step : new double[]{ 0.13, 0.7 }){
+                        double originX = -7.3;
+                        double originY = 2.1;
+                        double originZ = 40.6;
+                        double[] out = new double[DIM * DIM * DIM];
+                        noise.fillGrid(out, originX, originY, originZ, step, DIM, DIM, DIM);
+                        for(int z = 0; z < DIM; z++){
+                            for(int y = 0; y < DIM; y++){
+                                for(int x = 0; x < DIM; x++){
+                                    double expected = noise.sample(originX + x * step, originY + y * step, originZ + z * step);
+                                    assertEquals(expected, out[x + DIM * (y + DIM * z)], 0, type + " " + mode + " lacunarity " + lacunarity + " step " + step + " at " + x + "," + y + "," + z);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The grid fill skips the same octaves as sample() when a tolerance is set
+     */
+    @Test
+    public void fillGridMatchesSampleWithTolerance(){
+        FractalNoise noise = new FractalNoise(CellNoiseType.VORONOI, 0, FractalMode.RIDGED, 10, 2.3, 0.4, 0.01);
+        double[] out = new double[DIM * DIM * DIM];
+        noise.fillGrid(out, 3.2, -1.5, 0.25, 0.31, DIM, DIM, DIM);
+        for(int z = 0; z < DIM; z++){
+            for(int y = 0; y < DIM; y++){
+                for(int x = 0; x < DIM; x++){
+                    double expected = noise.sample(3.2 + x * 0.31, -1.5 + y * 0.31, 0.25 + z * 0.31);
+                    assertEquals(expected, out[x + DIM * (y + DIM * z)], 0, "at " + x + "," + y + "," + z);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.joml.Vector3d;
+import org.joml.Vector3i;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the axis aligned box distance functions of {@link GeomUtils}
+ */
+public class GeomUtilsTest {
+
+    /**
+     * Boxes and points at the ends of the int range, whose differences overflow an int
+     */
+    private static final int[][] EXTREME_CASES = new int[][]{
+        //pos, min, max
+        {Integer.MAX_VALUE, 0, 0, Integer.MIN_VALUE, 0, 0, Integer.MIN_VALUE, 0, 0},
+        {Integer.MIN_VALUE, 0, 0, Integer.MAX_VALUE, 0, 0, Integer.MAX_VALUE, 0, 0},
+        {0, Integer.MAX_VALUE, 0, 0, -10, 0, 0, Integer.MIN_VALUE + 5, 0},
+        {0, 0, Integer.MIN_VALUE, 0, 0, 1, 0, 0, Integer.MAX_VALUE},
+        {Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, -1, Integer.MAX_VALUE, 0},
+        {Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE},
+    };
+
+    /**
+     * The int functions give the same distance as the double function when the differences overflow an int
+     */
+    @Test
+    public void intDistanceDoesNotOverflow(){
+        int count = EXTREME_CASES.length;
+        double[] out = new double[1];
+        for(int i = 0; i < count; i++){
+            int[] c = EXTREME_CASES[i];
+            //the double function is exact here, every difference of two ints is representable
+            double expected = GeomUtils.getMinSquaredDistanceAABB((double)c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], c[8]);
+            assertEquals(expected, GeomUtils.getMinSquaredDistanceAABBUnrolled(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], c[8]), 0, "unrolled case " + i);
+            GeomUtils.getMinSquaredDistancesAABB(c[0], c[1], c[2], new int[]{c[3]}, new int[]{c[4]}, new int[]{c[5]}, new int[]{c[6]}, new int[]{c[7]}, new int[]{c[8]}, out, 1);
+            assertEquals(expected, out[0], 0, "batch case " + i);
+        }
+    }
+
+    /**
+     * The batch int function gives the same distances as the double function for a large batch, so the vectorized body and the tail loop are both covered
+     */
+    @Test
+    public void intBatchMatchesDoubleAcrossRange(){
+        int count = 1003;
+        int[] minX = new int[count];
+        int[] minY = new int[count];
+        int[] minZ = new int[count];
+        int[] maxX = new int[count];
+        int[] maxY = new int[count];
+        int[] maxZ = new int[count];
+        SplittableRandom random = new SplittableRandom(24);
+        for(int i = 0; i < count; i++){
+            int[] a = new int[]{random.nextInt(), random.nextInt(), random.nextInt()};
+            int[] b = new int[]{random.nextInt(), random.nextInt(), random.nextInt()};
+            minX[i] = Math.min(a[0], b[0]);
+            minY[i] = Math.min(a[1], b[1]);
+            minZ[i] = Math.min(a[2], b[2]);
+            maxX[i] = Math.max(a[0], b[0]);
+            maxY[i] = Math.max(a[1], b[1]);
+            maxZ[i] = Math.max(a[2], b[2]);
+        }
+        double[] out = new double[count];
+        for(int[] pos : new int[][]{{0, 0, 0}, {Integer.MAX_VALUE, Integer.MIN_VALUE, 7}, {Integer.MIN_VALUE, Integer.MAX_VALUE, -7}}){
+            GeomUtils.getMinSquaredDistancesAABB(pos[0], pos[1], pos[2], minX, minY, minZ, maxX, maxY, maxZ, out, count);
+            for(int i = 0; i < count; i++){
+                double expected = GeomUtils.getMinSquaredDistanceAABB((double)pos[0], pos[1], pos[2], minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i]);
+                assertEquals(expected, out[i], 0, "box " + i);
+            }
+        }
+    }
+
+    /**
+     * The unrolled function includes the y term when the point is outside the box on x and y but inside it on z.
+     * These leaves used to drop the y term.
+     */
+    @Test
+    public void unrolledKeepsYTerm(){
+        //below on x and y
+        assertEquals(3 * 3 + 4 * 4, GeomUtils.getMinSquaredDistanceAABBUnrolled(0, 0, 5, 3, 4, 0, 10, 10, 10), 0);
+        //above on x, below on y
+        assertEquals(2 * 2 + 4 * 4, GeomUtils.getMinSquaredDistanceAABBUnrolled(12, 0, 5, 3, 4, 0, 10, 10, 10), 0);
+        //below on x, above on y
+        assertEquals(3 * 3 + 5 * 5, GeomUtils.getMinSquaredDistanceAABBUnrolled(0, 15, 5, 3, 4, 0, 10, 10, 10), 0);
+        //above on x and y
+        assertEquals(2 * 2 + 5 * 5, GeomUtils.getMinSquaredDistanceAABBUnrolled(12, 15, 5, 3, 4, 0, 10, 10, 10), 0);
+    }
+
+    /**
+     * The branchless functions give the same distances as the branching Vector3i and Vector3d functions.
+     * The points are placed around the boxes so every one of the 27 regions (and the faces between them) is hit.
+     */
+    @Test
+    public void branchlessMatchesBranchTree(){
+        int count = 4096;
+        int[] minX = new int[count];
+        int[] minY = new int[count];
+        int[] minZ = new int[count];
+        int[] maxX = new int[count];
+        int[] maxY = new int[count];
+        int[] maxZ = new int[count];
+        double[] minXd = new double[count];
+        double[] minYd = new double[count];
+        double[] minZd = new double[count];
+        double[] maxXd = new double[count];
+        double[] maxYd = new double[count];
+        double[] maxZd = new double[count];
+        SplittableRandom random = new SplittableRandom(27);
+        for(int i = 0; i < count; i++){
+            minX[i] = random.nextInt(-8, 8);
+            minY[i] = random.nextInt(-8, 8);
+            minZ[i] = random.nextInt(-8, 8);
+            maxX[i] = minX[i] + random.nextInt(0, 8);
+            maxY[i] = minY[i] + random.nextInt(0, 8);
+            maxZ[i] = minZ[i] + random.nextInt(0, 8);
+            minXd[i] = minX[i];
+            minYd[i] = minY[i];
+            minZd[i] = minZ[i];
+            maxXd[i] = maxX[i];
+            maxYd[i] = maxY[i];
+            maxZd[i] = maxZ[i];
+        }
+        double[] out = new double[count];
+        double[] outd = new double[count];
+        for(int j = 0; j < 200; j++){
+            int posX = random.nextInt(-20, 20);
+            int posY = random.nextInt(-20, 20);
+            int posZ = random.nextInt(-20, 20);
+            Vector3i pos = new Vector3i(posX, posY, posZ);
+            Vector3d posd = new Vector3d(posX, posY, posZ);
+            GeomUtils.getMinSquaredDistancesAABB(posX, posY, posZ, minX, minY, minZ, maxX, maxY, maxZ, out, count);
+            GeomUtils.getMinSquaredDistancesAABB((double)posX, posY, posZ, minXd, minYd, minZd, maxXd, maxYd, maxZd, outd, count);
+            for(int i = 0; i < count; i++){
+                long expected = GeomUtils.getMinSquaredDistanceAABB(pos, new Vector3i(minX[i], minY[i], minZ[i]), new Vector3i(maxX[i], maxY[i], maxZ[i]));
+                assertEquals(expected, GeomUtils.getMinSquaredDistanceAABB(posd, new Vector3d(minXd[i], minYd[i], minZd[i]), new Vector3d(maxXd[i], maxYd[i], maxZd[i])), 0, "vector3d tree");
+                assertEquals(expected, GeomUtils.getMinSquaredDistanceAABBUnrolled(posX, posY, posZ, minX[i], minY[i], minZ[i], maxX[i], maxY[i], maxZ[i]), 0, "unrolled");
+                assertEquals(expected, GeomUtils.getMinSquaredDistanceAABB((double)posX, posY, posZ, minXd[i], minYd[i], minZd[i], maxXd[i], maxYd[i], maxZd[i]), 0, "scalar double");
+                assertEquals(expected, out[i], 0, "int batch");
+                assertEquals(expected, outd[i], 0, "double batch");
+            }
+        }
+    }
+
+}
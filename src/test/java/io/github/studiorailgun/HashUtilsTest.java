@@ -0,0 +1,273 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Quality checks of the hashes in {@link HashUtils}
+ */
+public class HashUtilsTest {
+
+    /**
+     * Flipping any input bit of the mixer flips each output bit with probability close to one half
+     */
+    @Test
+    public void mix64Avalanche(){
+        SplittableRandom random = new SplittableRandom(3);
+        int trials = 2000;
+        int[][] flips = new int[64][64];
+        for(int t = 0; t < trials; t++){
+            long input = random.nextLong();
+            long base = HashUtils.mix64(input);
+            for(int in = 0; in < 64; in++){
+                long diff = base ^ HashUtils.mix64(input ^ (1L << in));
+                for(int out = 0; out < 64; out++){
+                    flips[in][out] += (int)((diff >>> out) & 1L);
+                }
+            }
+        }
+        RandUtilsTest.assertAvalanche(flips, trials);
+    }
+
+    /**
+     * The mixer is a bijection, so it never maps two inputs to the same output; spot check that consecutive inputs stay distinct
+     */
+    @Test
+    public void mix64Distinct(){
+        HashSet<Long> seen = new HashSet<Long>();
+        for(long i = -50000; i < 50000; i++){
+            seen.add(HashUtils.mix64(i));
+        }
+        assertEquals(100000, seen.size());
+    }
+
+    /**
+     * The 2 number hash has no collisions over a dense grid of negative and positive coordinates, where cantor pairing collides
+     */
+    @Test
+    public void hash2DenseGridCollisions(){
+        int radius = 1024;
+        int count = (2 * radius) * (2 * radius);
+        long[] hashes = new long[count];
+        long[] cantor = new long[count];
+        int i = 0;
+        for(int b = -radius; b < radius; b++){
+            for(int a = -radius; a < radius; a++){
+                hashes[i] = HashUtils.hash(a, b);
+                cantor[i] = HashUtils.cantor(a, b);
+                i++;
+            }
+        }
+        HashUtilsTest.assertFewerCollisions(hashes, cantor);
+    }
+
+    /**
+     * The 3 number hash has no collisions over a dense voxel grid of negative and positive coordinates, where the cantor hash collides
+     */
+    @Test
+    public void hash3DenseGridCollisions(){
+        int radius = 64;
+        int count = (2 * radius) * (2 * radius) * (2 * radius);
+        long[] hashes = new long[count];
+        long[] cantor = new long[count];
+        int i = 0;
+        for(int c = -radius; c < radius; c++){
+            for(int b = -radius; b < radius; b++){
+                for(int a = -radius; a < radius; a++){
+                    hashes[i] = HashUtils.hash(a, b, c);
+                    cantor[i] = HashUtils.cantorHash(a, b, c);
+                    i++;
+                }
+            }
+        }
+        HashUtilsTest.assertFewerCollisions(hashes, cantor);
+    }
+
+    /**
+     * The 3 number hash has no collisions and evenly distributed table slots over a voxel grid far from the origin, where the nested cantor pairings overflow
+     */
+    @Test
+    public void hash3FarGrid(){
+        int size = 64;
+        int buckets = 4096;
+        long base = 3_000_000_000L;
+        long[] hashes = new long[size * size * size];
+        long[] slots = new long[buckets];
+        int i = 0;
+        for(int c = 0; c < size; c++){
+            for(int b = 0; b < size; b++){
+                for(int a = 0; a < size; a++){
+                    hashes[i] = HashUtils.hash(base + a, base + b, base + c);
+                    slots[(int)(hashes[i] & (buckets - 1))]++;
+                    i++;
+                }
+            }
+        }
+        assertEquals(0, HashUtilsTest.countCollisions(hashes));
+        RandUtilsTest.assertUniform(slots);
+    }
+
+    /**
+     * The 4 number hash has no collisions over a dense grid of negative and positive coordinates, where the cantor hash collides
+     */
+    @Test
+    public void hash4DenseGridCollisions(){
+        int radius = 16;
+        int side = 2 * radius;
+        long[] hashes = new long[side * side * side * side];
+        long[] cantor = new long[side * side * side * side];
+        int i = 0;
+        for(int d = -radius; d < radius; d++){
+            for(int c = -radius; c < radius; c++){
+                for(int b = -radius; b < radius; b++){
+                    for(int a = -radius; a < radius; a++){
+                        hashes[i] = HashUtils.hash(a, b, c, d);
+                        cantor[i] = HashUtils.cantorHash(a, b, c, d);
+                        i++;
+                    }
+                }
+            }
+        }
+        HashUtilsTest.assertFewerCollisions(hashes, cantor);
+    }
+
+    /**
+     * The low and high bits of the 3 number hash of a dense voxel grid (ie the slot of a hash table) are uniformly distributed
+     */
+    @Test
+    public void hash3GridBuckets(){
+        int buckets = 4096;
+        long[] low = new long[buckets];
+        long[] high = new long[buckets];
+        for(int c = 0; c < 64; c++){
+            for(int b = 0; b < 64; b++){
+                for(int a = 0; a < 64; a++){
+                    long hash = HashUtils.hash(a, b, c);
+                    low[(int)(hash & (buckets - 1))]++;
+                    high[(int)(hash >>> 52)]++;
+                }
+            }
+        }
+        RandUtilsTest.assertUniform(low);
+        RandUtilsTest.assertUniform(high);
+    }
+
+    /**
+     * Flipping any input bit of any of the 3 numbers flips each output bit with probability close to one half
+     */
+    @Test
+    public void hash3Avalanche(){
+        SplittableRandom random = new SplittableRandom(4);
+        int trials = 2000;
+        int[][] flips = new int[3 * 64][64];
+        for(int t = 0; t < trials; t++){
+            long a = random.nextLong();
+            long b = random.nextLong();
+            long c = random.nextLong();
+            long base = HashUtils.hash(a, b, c);
+            for(int in = 0; in < 64; in++){
+                long flip = 1L << in;
+                long diffA = base ^ HashUtils.hash(a ^ flip, b, c);
+                long diffB = base ^ HashUtils.hash(a, b ^ flip, c);
+                long diffC = base ^ HashUtils.hash(a, b, c ^ flip);
+                for(int out = 0; out < 64; out++){
+                    flips[in][out] += (int)((diffA >>> out) & 1L);
+                    flips[64 + in][out] += (int)((diffB >>> out) & 1L);
+                    flips[128 + in][out] += (int)((diffC >>> out) & 1L);
+                }
+            }
+        }
+        RandUtilsTest.assertAvalanche(flips, trials);
+    }
+
+    /**
+     * The batch variants are identical to the scalar hashes
+     */
+    @Test
+    public void batchMatchesScalar(){
+        int count = 1000;
+        SplittableRandom random = new SplittableRandom(5);
+        int[] ai = new int[count];
+        int[] bi = new int[count];
+        int[] ci = new int[count];
+        int[] di = new int[count];
+        long[] al = new long[count];
+        long[] bl = new long[count];
+        long[] cl = new long[count];
+        long[] dl = new long[count];
+        long[] expected2 = new long[count];
+        long[] expected3 = new long[count];
+        long[] expected4 = new long[count];
+        for(int i = 0; i < count; i++){
+            ai[i] = random.nextInt();
+            bi[i] = random.nextInt();
+            ci[i] = random.nextInt();
+            di[i] = random.nextInt();
+            al[i] = random.nextLong();
+            bl[i] = random.nextLong();
+            cl[i] = random.nextLong();
+            dl[i] = random.nextLong();
+        }
+        long[] out = new long[count];
+
+        for(int i = 0; i < count; i++){
+            expected2[i] = HashUtils.hash(ai[i], bi[i]);
+            expected3[i] = HashUtils.hash(ai[i], bi[i], ci[i]);
+            expected4[i] = HashUtils.hash(ai[i], bi[i], ci[i], di[i]);
+        }
+        HashUtils.hash(ai, bi, out, count);
+        assertArrayEquals(expected2, out);
+        HashUtils.hash(ai, bi, ci, out, count);
+        assertArrayEquals(expected3, out);
+        HashUtils.hash(ai, bi, ci, di, out, count);
+        assertArrayEquals(expected4, out);
+
+        for(int i = 0; i < count; i++){
+            expected2[i] = HashUtils.hash(al[i], bl[i]);
+            expected3[i] = HashUtils.hash(al[i], bl[i], cl[i]);
+            expected4[i] = HashUtils.hash(al[i], bl[i], cl[i], dl[i]);
+        }
+        HashUtils.hash(al, bl, out, count);
+        assertArrayEquals(expected2, out);
+        HashUtils.hash(al, bl, cl, out, count);
+        assertArrayEquals(expected3, out);
+        HashUtils.hash(al, bl, cl, dl, out, count);
+        assertArrayEquals(expected4, out);
+    }
+
+    /**
+     * Asserts a set of hashes has no collisions, while the cantor hashes of the same inputs do
+     * @param hashes The hashes
+     * @param cantor The cantor hashes of the same inputs
+     */
+    private static void assertFewerCollisions(long[] hashes, long[] cantor){
+        int collisions = HashUtilsTest.countCollisions(hashes);
+        int cantorCollisions = HashUtilsTest.countCollisions(cantor);
+        assertEquals(0, collisions, "Hash collisions (cantor had " + cantorCollisions + ")");
+        assertTrue(cantorCollisions > 0, "Expected the cantor hash to collide on this grid");
+    }
+
+    /**
+     * Counts the values that equal an earlier value
+     * @param values The values (sorted in place)
+     * @return The number of collisions
+     */
+    private static int countCollisions(long[] values){
+        Arrays.sort(values);
+        int rVal = 0;
+        for(int i = 1; i < values.length; i++){
+            if(values[i] == values[i - 1]){
+                rVal++;
+            }
+        }
+        return rVal;
+    }
+
+}
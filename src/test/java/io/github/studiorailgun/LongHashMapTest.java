@@ -0,0 +1,173 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link LongHashMap} against {@link HashMap}
+ */
+public class LongHashMapTest {
+
+    /**
+     * Random puts, removes and lookups give the same results as a HashMap, over a small key range so keys are reused,
+     * including the zero key and keys that collide at the end of the table and wrap around to its start
+     */
+    @Test
+    public void matchesHashMap(){
+        SplittableRandom random = new SplittableRandom(5);
+        long[] pool = LongHashMapTest.keyPool(random);
+        LongHashMap<Long> map = new LongHashMap<Long>(2);
+        Map<Long,Long> expected = new HashMap<Long,Long>();
+        for(int i = 0; i < 200000; i++){
+            long key = pool[random.nextInt(pool.length)];
+            int op = random.nextInt(6);
+            switch(op){
+                case 0:
+                case 1: {
+                    Long value = random.nextLong();
+                    assertEquals(expected.put(key, value), map.put(key, value));
+                } break;
+                case 2:
+                case 3: {
+                    assertEquals(expected.remove(key), map.remove(key));
+                } break;
+                case 4: {
+                    Long value = random.nextLong();
+                    assertEquals(expected.computeIfAbsent(key, k -> value), map.computeIfAbsent(key, k -> value));
+                } break;
+                default: {
+                    assertEquals(expected.get(key), map.get(key));
+                    assertEquals(expected.getOrDefault(key, -1L), map.getOrDefault(key, -1L));
+                } break;
+            }
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.size(), map.size());
+            //occasionally empty the maps so they grow again from a small table
+            if(random.nextInt(20000) == 0){
+                expected.clear();
+                map.clear();
+            }
+            if(i % 1000 == 0){
+                LongHashMapTest.assertSameEntries(expected, map);
+            }
+        }
+        LongHashMapTest.assertSameEntries(expected, map);
+    }
+
+    /**
+     * Removing the first of a run of keys that wraps around the end of the table shifts the rest back, keeping them reachable
+     */
+    @Test
+    public void wrapAroundRemoval(){
+        int length = LongHashMap.tableSizeFor(LongHashMap.DEFAULT_CAPACITY);
+        int shift = 64 - Integer.numberOfTrailingZeros(length);
+        long[] run = LongHashMapTest.keysWithHome(length - 1, shift, 4);
+        for(int removed = 0; removed < run.length; removed++){
+            LongHashMap<Long> map = new LongHashMap<Long>();
+            for(long key : run){
+                map.put(key, key);
+            }
+            assertEquals(run[removed], map.remove(run[removed]));
+            for(int i = 0; i < run.length; i++){
+                assertEquals(i == removed ? null : run[i], map.get(run[i]));
+            }
+            assertEquals(run.length - 1, map.size());
+        }
+    }
+
+    /**
+     * The map keeps every entry while growing well past its initial capacity
+     */
+    @Test
+    public void resize(){
+        LongHashMap<Long> map = new LongHashMap<Long>(0);
+        for(long key = -5000; key < 5000; key++){
+            map.put(key * 0x10000L, key);
+        }
+        assertEquals(10000, map.size());
+        for(long key = -5000; key < 5000; key++){
+            assertEquals(key, map.get(key * 0x10000L));
+        }
+    }
+
+    /**
+     * A table at the maximum size refuses to grow rather than overflowing its length
+     */
+    @Test
+    public void growthIsCapped(){
+        assertEquals(LongHashMap.MAX_TABLE_SIZE, LongHashMap.grownTableSize(LongHashMap.MAX_TABLE_SIZE / 2));
+        assertThrows(Error.class, () -> LongHashMap.grownTableSize(LongHashMap.MAX_TABLE_SIZE));
+        assertThrows(Error.class, () -> LongHashMap.tableSizeFor(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Asserts a map holds the same entries as a HashMap
+     * @param expected The HashMap
+     * @param map The map
+     */
+    private static void assertSameEntries(Map<Long,Long> expected, LongHashMap<Long> map){
+        assertEquals(expected.size(), map.size());
+        long[] keys = map.keys();
+        long[] expectedKeys = expected.keySet().stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(keys);
+        Arrays.sort(expectedKeys);
+        assertArrayEquals(expectedKeys, keys);
+        map.forEach((key, value) -> assertEquals(expected.get(key), value));
+    }
+
+    /**
+     * Builds the keys used by the differential tests: zero, small keys, packed keys and runs of keys that share a home slot at the end of small tables
+     * @param random The source of random keys
+     * @return The keys
+     */
+    static long[] keyPool(SplittableRandom random){
+        long[] rVal = new long[256];
+        int index = 0;
+        rVal[index] = 0;
+        index++;
+        for(int length = 2; length <= 64; length = length * 2){
+            long[] run = LongHashMapTest.keysWithHome(length - 1, 64 - Integer.numberOfTrailingZeros(length), 4);
+            for(long key : run){
+                rVal[index] = key;
+                index++;
+            }
+        }
+        for(int i = 0; i < 32; i++){
+            rVal[index] = i - 16;
+            index++;
+        }
+        while(index < rVal.length){
+            rVal[index] = VecHashUtils.hashIVec(random.nextInt(16), random.nextInt(16), random.nextInt(16));
+            index++;
+        }
+        return rVal;
+    }
+
+    /**
+     * Finds non-zero keys that all hash to the same slot
+     * @param home The slot
+     * @param shift 64 minus the number of bits in the table size
+     * @param count The number of keys
+     * @return The keys
+     */
+    static long[] keysWithHome(int home, int shift, int count){
+        long[] rVal = new long[count];
+        int index = 0;
+        for(long key = 1; index < count; key++){
+            if(LongHashMap.spread(key, shift) == home){
+                rVal[index] = key;
+                index++;
+            }
+        }
+        return rVal;
+    }
+
+}
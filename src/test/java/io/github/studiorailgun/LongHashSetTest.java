@@ -0,0 +1,106 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link LongHashSet} against {@link HashSet}
+ */
+public class LongHashSetTest {
+
+    /**
+     * Random adds, removes and lookups give the same results as a HashSet, including the zero key and keys that wrap around the end of the table
+     */
+    @Test
+    public void matchesHashSet(){
+        SplittableRandom random = new SplittableRandom(6);
+        long[] pool = LongHashMapTest.keyPool(random);
+        LongHashSet set = new LongHashSet(2);
+        Set<Long> expected = new HashSet<Long>();
+        for(int i = 0; i < 200000; i++){
+            long key = pool[random.nextInt(pool.length)];
+            int op = random.nextInt(5);
+            switch(op){
+                case 0:
+                case 1: {
+                    assertEquals(expected.add(key), set.add(key));
+                } break;
+                case 2:
+                case 3: {
+                    assertEquals(expected.remove(key), set.remove(key));
+                } break;
+                default: {
+                    assertEquals(expected.contains(key), set.contains(key));
+                } break;
+            }
+            assertEquals(expected.size(), set.size());
+            //occasionally empty the sets so they grow again from a small table
+            if(random.nextInt(20000) == 0){
+                expected.clear();
+                set.clear();
+            }
+            if(i % 1000 == 0){
+                LongHashSetTest.assertSameKeys(expected, set);
+            }
+        }
+        LongHashSetTest.assertSameKeys(expected, set);
+    }
+
+    /**
+     * Removing the first of a run of keys that wraps around the end of the table shifts the rest back, keeping them reachable
+     */
+    @Test
+    public void wrapAroundRemoval(){
+        int length = LongHashMap.tableSizeFor(LongHashMap.DEFAULT_CAPACITY);
+        int shift = 64 - Integer.numberOfTrailingZeros(length);
+        long[] run = LongHashMapTest.keysWithHome(length - 1, shift, 4);
+        for(int removed = 0; removed < run.length; removed++){
+            LongHashSet set = new LongHashSet();
+            for(long key : run){
+                set.add(key);
+            }
+            assertTrue(set.remove(run[removed]));
+            for(int i = 0; i < run.length; i++){
+                assertEquals(i != removed, set.contains(run[i]));
+            }
+            assertEquals(run.length - 1, set.size());
+        }
+    }
+
+    /**
+     * The set keeps every key while growing well past its initial capacity
+     */
+    @Test
+    public void resize(){
+        LongHashSet set = new LongHashSet(0);
+        for(long key = -5000; key < 5000; key++){
+            assertTrue(set.add(key * 0x10000L));
+        }
+        assertEquals(10000, set.size());
+        for(long key = -5000; key < 5000; key++){
+            assertTrue(set.contains(key * 0x10000L));
+        }
+    }
+
+    /**
+     * Asserts a set holds the same keys as a HashSet
+     * @param expected The HashSet
+     * @param set The set
+     */
+    private static void assertSameKeys(Set<Long> expected, LongHashSet set){
+        long[] keys = set.toArray();
+        long[] expectedKeys = expected.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(keys);
+        Arrays.sort(expectedKeys);
+        assertArrayEquals(expectedKeys, keys);
+    }
+
+}
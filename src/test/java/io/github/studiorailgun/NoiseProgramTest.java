@@ -0,0 +1,153 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks {@link NoiseProgram} evaluation, in particular that the per-thread register pool never leaks values between evaluations
+ */
+public class NoiseProgramTest {
+
+    /**
+     * A program's values match sampling the noise directly
+     */
+    @Test
+    public void matchesDirectSampling(){
+        NoiseGraph graph = new NoiseGraph();
+        int x = graph.x();
+        int y = graph.y();
+        int z = graph.z();
+        int two = graph.constant(2);
+        int output = graph.add(graph.voronoi(x, y, z), graph.mul(two, graph.diamond(x, y, z)));
+        NoiseProgram program = graph.compile(output);
+        SplittableRandom random = new SplittableRandom(8);
+        for(int i = 0; i < 1000; i++){
+            double px = (random.nextDouble() - 0.5) * 100;
+            double py = (random.nextDouble() - 0.5) * 100;
+            double pz = (random.nextDouble() - 0.5) * 100;
+            double expected = NoiseUtils.sample(NoiseUtils.CellNoiseType.VORONOI, 0, px, py, pz) + 2 * NoiseUtils.sample(NoiseUtils.CellNoiseType.DIAMOND, 0, px, py, pz);
+            assertEquals(expected, program.evaluate(px, py, pz));
+        }
+    }
+
+    /**
+     * Batches of shrinking and growing sizes, interleaved between programs with different register counts, give the same values as single samples
+     */
+    @Test
+    public void poolReuse(){
+        NoiseProgram large = NoiseProgramTest.largeProgram();
+        NoiseProgram small = NoiseProgramTest.smallProgram();
+        SplittableRandom random = new SplittableRandom(9);
+        int[] counts = new int[]{ 4096, 1, 37, 4096, 500, 8192, 3 };
+        for(int count : counts){
+            for(NoiseProgram program : new NoiseProgram[]{ large, small }){
+                double[] xs = new double[count];
+                double[] ys = new double[count];
+                double[] zs = new double[count];
+                for(int i = 0; i < count; i++){
+                    xs[i] = (random.nextDouble() - 0.5) * 50;
+                    ys[i] = (random.nextDouble() - 0.5) * 50;
+                    zs[i] = (random.nextDouble() - 0.5) * 50;
+                }
+                double[] out = new double[count];
+                program.evaluate(xs, ys, zs, out, count);
+                for(int i = 0; i < count; i++){
+                    assertEquals(program.evaluate(xs[i], ys[i], zs[i]), out[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Grids match single samples at the grid positions, after the pool was grown by a larger grid
+     */
+    @Test
+    public void gridMatchesSamples(){
+        NoiseProgram program = NoiseProgramTest.largeProgram();
+        program.evaluateGrid(new double[16 * 16 * 16], 3, 4, 5, 0.5, 16, 16, 16);
+        int dimX = 7;
+        int dimY = 5;
+        int dimZ = 3;
+        double[] out = new double[dimX * dimY * dimZ];
+        program.evaluateGrid(out, -2.5, 1.25, 7, 0.3, dimX, dimY, dimZ);
+        for(int z = 0; z < dimZ; z++){
+            for(int y = 0; y < dimY; y++){
+                for(int x = 0; x < dimX; x++){
+                    double expected = program.evaluate(-2.5 + x * 0.3, 1.25 + y * 0.3, 7 + z * 0.3);
+                    assertEquals(expected, out[x + dimX * (y + dimY * z)]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Threads evaluating the same program at once each use their own registers
+     */
+    @Test
+    public void concurrentEvaluation() throws Exception {
+        NoiseProgram program = NoiseProgramTest.largeProgram();
+        int dim = 12;
+        double[] expected = new double[dim * dim * dim];
+        program.evaluateGrid(expected, 0, 0, 0, 0.7, dim, dim, dim);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for(int t = 0; t < 4; t++){
+                futures.add(executor.submit(() -> {
+                    for(int i = 0; i < 20; i++){
+                        double[] out = new double[expected.length];
+                        program.evaluateGrid(out, 0, 0, 0, 0.7, dim, dim, dim);
+                        for(int j = 0; j < out.length; j++){
+                            assertEquals(expected[j], out[j]);
+                        }
+                    }
+                }));
+            }
+            for(Future<?> future : futures){
+                future.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds a program that needs several registers
+     * @return The program
+     */
+    private static NoiseProgram largeProgram(){
+        NoiseGraph graph = new NoiseGraph();
+        int x = graph.x();
+        int y = graph.y();
+        int z = graph.z();
+        int scale = graph.constant(1.7);
+        int sx = graph.mul(x, scale);
+        int sy = graph.mul(y, scale);
+        int sz = graph.mul(z, scale);
+        int base = graph.voronoi(x, y, z);
+        int detail = graph.smoothVoronoi(sx, sy, sz, 8);
+        int ridge = graph.abs(graph.sub(graph.diamond(sz, sx, sy), graph.constant(0.5)));
+        int mask = graph.clamp(graph.div(ridge, graph.constant(0.3)), graph.constant(0), graph.constant(1));
+        int output = graph.max(graph.lerp(base, detail, mask), graph.min(base, ridge));
+        return graph.compile(output);
+    }
+
+    /**
+     * Builds a program that needs few registers
+     * @return The program
+     */
+    private static NoiseProgram smallProgram(){
+        NoiseGraph graph = new NoiseGraph();
+        return graph.compile(graph.diamond(graph.x(), graph.y(), graph.z()));
+    }
+
+}
@@ -0,0 +1,172 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Consistency checks between the scalar and bulk cellular noise functions of {@link NoiseUtils}
+ */
+public class NoiseUtilsTest {
+
+    /**
+     * The number of random sample positions
+     */
+    private static final int SAMPLES = 10000;
+
+    /**
+     * The single precision smooth voronoi stays finite and matches the scalar function at high falloffs, where the raw exponentials underflow a float
+     */
+    @Test
+    public void sampleBatchFloatSmoothHighFalloff(){
+        double[] xs = new double[SAMPLES];
+        double[] ys = new double[SAMPLES];
+        double[] zs = new double[SAMPLES];
+        NoiseUtilsTest.randomPositions(xs, ys, zs, 4);
+        float[] out = new float[SAMPLES];
+        for(double falloff : new double[]{ 8, 64, 128, 256, 1024 }){
+            NoiseUtils.sampleBatchFloat(NoiseUtils.CellNoiseType.SMOOTH_VORONOI, falloff, xs, ys, zs, out, SAMPLES, null);
+            for(int i = 0; i < SAMPLES; i++){
+                assertTrue(Float.isFinite(out[i]), "Non-finite value at falloff " + falloff + " " + out[i]);
+                if(falloff <= 256){
+                    //the scalar function is in double precision, which underflows above roughly 256
+                    double expected = NoiseUtils.sample(NoiseUtils.CellNoiseType.SMOOTH_VORONOI, falloff, xs[i], ys[i], zs[i]);
+                    assertEquals(expected, out[i], 1e-4);
+                }
+            }
+        }
+    }
+
+    /**
+     * The single precision batch matches the scalar functions for every noise type, with and without the vector kernel
+     */
+    @Test
+    public void sampleBatchFloatMatchesScalar(){
+        double[] xs = new double[SAMPLES];
+        double[] ys = new double[SAMPLES];
+        double[] zs = new double[SAMPLES];
+        NoiseUtilsTest.randomPositions(xs, ys, zs, 5);
+        //include runs of samples in the same cell, which reuse the previous sample's points
+        for(int i = 1; i < SAMPLES; i = i + 7){
+            xs[i] = Math.floor(xs[i - 1]) + 0.25;
+            ys[i] = Math.floor(ys[i - 1]) + 0.5;
+            zs[i] = Math.floor(zs[i - 1]) + 0.75;
+        }
+        //an odd count, so the last block is padded
+        int count = SAMPLES - 3;
+        float[] scalar = new float[SAMPLES];
+        float[] vector = new float[SAMPLES];
+        FloatCellKernel kernel = FloatCellKernel.load();
+        for(NoiseUtils.CellNoiseType type : NoiseUtils.CellNoiseType.values()){
+            double param = type == NoiseUtils.CellNoiseType.VORONOI_RELAXED ? 0.5 : 16;
+            NoiseUtils.sampleBatchFloat(type, param, xs, ys, zs, scalar, count, null);
+            NoiseUtils.sampleBatchFloat(type, param, xs, ys, zs, vector, count, kernel);
+            for(int i = 0; i < count; i++){
+                double expected = NoiseUtils.sample(type, param, xs[i], ys[i], zs[i]);
+                assertEquals(expected, scalar[i], 1e-4, type + " at " + xs[i] + "," + ys[i] + "," + zs[i]);
+                assertEquals(expected, vector[i], 1e-4, type + " at " + xs[i] + "," + ys[i] + "," + zs[i]);
+            }
+        }
+    }
+
+    /**
+     * The vector kernel loads when the vector module is present (the vector profile adds it and the vector classes to the tests)
+     */
+    @Test
+    public void vectorKernelLoads(){
+        if(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()){
+            assertNotNull(FloatCellKernel.load());
+        }
+    }
+
+    /**
+     * The double precision bulk and cached functions give exactly the scalar function's values for every noise type
+     */
+    @Test
+    public void bulkMatchesScalarExactly(){
+        double[] xs = new double[SAMPLES];
+        double[] ys = new double[SAMPLES];
+        double[] zs = new double[SAMPLES];
+        NoiseUtilsTest.randomPositions(xs, ys, zs, 7);
+        double[] batch = new double[SAMPLES];
+        FeaturePointCache cache = new FeaturePointCache(4096);
+        for(NoiseUtils.CellNoiseType type : NoiseUtils.CellNoiseType.values()){
+            for(double param : NoiseUtilsTest.params(type)){
+                NoiseUtils.sampleBatch(type, param, xs, ys, zs, batch, SAMPLES);
+                for(int i = 0; i < SAMPLES; i++){
+                    double expected = NoiseUtils.sample(type, param, xs[i], ys[i], zs[i]);
+                    assertEquals(expected, batch[i], 0, type + " " + param + " batch");
+                    assertEquals(expected, NoiseUtils.sample(type, param, xs[i], ys[i], zs[i], cache), 0, type + " " + param + " cache");
+                }
+            }
+        }
+    }
+
+    /**
+     * Grids give exactly the scalar function's values for every noise type, on both the dense (slab) and sparse (per-sample) paths
+     */
+    @Test
+    public void fillGridMatchesScalarExactly(){
+        int dim = 12;
+        double[] grid = new double[dim * dim * dim];
+        for(NoiseUtils.CellNoiseType type : NoiseUtils.CellNoiseType.values()){
+            for(double param : NoiseUtilsTest.params(type)){
+                for(double step : new double[]{ 0.17, 3.5 }){
+                    NoiseUtils.fillGrid(type, param, grid, 3.7, -12.2, 0.4, step, dim, dim, dim);
+                    for(int z = 0; z < dim; z++){
+                        for(int y = 0; y < dim; y++){
+                            for(int x = 0; x < dim; x++){
+                                double expected = NoiseUtils.sample(type, param, 3.7 + x * step, -12.2 + y * step, 0.4 + z * step);
+                                assertEquals(expected, grid[x + dim * (y + dim * z)], 0, type + " " + param + " step " + step);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets parameters to test a noise type with
+     * @param type The type
+     * @return The parameters
+     */
+    private static double[] params(NoiseUtils.CellNoiseType type){
+        switch(type){
+            case VORONOI_RELAXED: {
+                return new double[]{ 0.25, 0.75 };
+            }
+            case SMOOTH_VORONOI: {
+                return new double[]{ 4, 32 };
+            }
+            case SMOOTH_VORONOI_FAST: {
+                //negative falloffs disable the skipping of distant cells
+                return new double[]{ -2, 4, 32, 256 };
+            }
+            default: {
+                return new double[]{ 0 };
+            }
+        }
+    }
+
+    /**
+     * Fills arrays with random positions
+     * @param xs The x coordinates
+     * @param ys The y coordinates
+     * @param zs The z coordinates
+     * @param seed The seed
+     */
+    static void randomPositions(double[] xs, double[] ys, double[] zs, long seed){
+        SplittableRandom random = new SplittableRandom(seed);
+        for(int i = 0; i < xs.length; i++){
+            xs[i] = (random.nextDouble() - 0.5) * 200;
+            ys[i] = (random.nextDouble() - 0.5) * 200;
+            zs[i] = (random.nextDouble() - 0.5) * 200;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import io.github.studiorailgun.NoiseUtils.CellNoiseType;
+
+/**
+ * Checks that generated volumes don't depend on how they are split into tiles
+ */
+public class NoiseVolumeGeneratorTest {
+
+    /**
+     * The number of samples along each axis
+     */
+    private static final int DIM = 20;
+
+    /**
+     * Every noise type gives the same volume for every tile size, for steps that take both the dense (slab) and sparse (per-sample) grid paths
+     */
+    @Test
+    public void tileSizeInvariance(){
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for(CellNoiseType type : CellNoiseType.values()){
+                double param = type == CellNoiseType.VORONOI_RELAXED ? 0.5 : 16;
+                for(double step : new double[]{ 0.13, 1.0, 3.5 }){
+                    double[] expected = new double[DIM * DIM * DIM];
+                    new NoiseVolumeGenerator(pool, DIM).generate(type, param, expected, -7.3, 2.1, 40.6, step, DIM, DIM, DIM);
+                    for(int tileSize : new int[]{ 1, 3, 8 }){
+                        double[] actual = new double[DIM * DIM * DIM];
+                        new NoiseVolumeGenerator(pool, tileSize).generate(type, param, actual, -7.3, 2.1, 40.6, step, DIM, DIM, DIM);
+                        assertArrayEquals(expected, actual, type + " step " + step + " tile size " + tileSize);
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
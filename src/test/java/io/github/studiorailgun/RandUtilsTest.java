@@ -0,0 +1,271 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Statistical quality checks of the integer hash backend of {@link RandUtils}
+ */
+public class RandUtilsTest {
+
+    /**
+     * The number of buckets the chi-square tests sort values into
+     */
+    private static final int BUCKETS = 256;
+
+    /**
+     * Every value is in [0,1), including for negative, zero and huge coordinates
+     */
+    @Test
+    public void hashRandRange(){
+        SplittableRandom random = new SplittableRandom(1);
+        double[] special = new double[]{ 0.0, -0.0, 1.0, -1.0, 1e7, -1e7, 1e300, Double.MAX_VALUE, Double.MIN_VALUE };
+        for(double x : special){
+            for(double y : special){
+                RandUtilsTest.assertUnit(RandUtils.hashRand(x, y));
+                RandUtilsTest.assertUnit(RandUtils.hashRand(x, y, x));
+                RandUtilsTest.assertUnit(RandUtils.hashRand(x, y, x, y));
+            }
+        }
+        for(int i = 0; i < 100000; i++){
+            double x = (random.nextDouble() - 0.5) * 1e8;
+            RandUtilsTest.assertUnit(RandUtils.hashRand(x));
+        }
+    }
+
+    /**
+     * -0.0 and 0.0 hash to the same value, so a cell's value does not depend on how its coordinate was computed
+     */
+    @Test
+    public void hashRandSignedZero(){
+        assertEquals(RandUtils.hashRand(0.0, 5.0, 0.0), RandUtils.hashRand(-0.0, 5.0, -0.0));
+    }
+
+    /**
+     * The dispatching functions use the selected backend
+     */
+    @Test
+    public void backendDispatch(){
+        RandUtils.RandBackend previous = RandUtils.getBackend();
+        try {
+            RandUtils.setBackend(RandUtils.RandBackend.INTEGER_HASH);
+            assertEquals(RandUtils.hashRand(3, 4, 5, 1), RandUtils.rand(3, 4, 5, 1));
+            assertEquals(RandUtils.RandBackend.INTEGER_HASH, RandUtils.getBackend());
+        } finally {
+            RandUtils.setBackend(previous);
+        }
+    }
+
+    /**
+     * The explicit backend function gives the values of the dispatching function with that backend set
+     */
+    @Test
+    public void explicitBackend(){
+        RandUtils.RandBackend previous = RandUtils.getBackend();
+        try {
+            for(RandUtils.RandBackend backend : RandUtils.RandBackend.values()){
+                RandUtils.setBackend(backend);
+                for(int i = -20; i < 20; i++){
+                    assertEquals(RandUtils.rand(i, i * 3, -i, i & 3), RandUtils.rand(backend, i, i * 3, -i, i & 3));
+                }
+            }
+        } finally {
+            RandUtils.setBackend(previous);
+        }
+    }
+
+    /**
+     * Values over dense integer grids (the feature point use case) are uniformly distributed, for every number of inputs
+     */
+    @Test
+    public void hashRandGridChiSquare(){
+        long[] counts1 = new long[BUCKETS];
+        long[] counts2 = new long[BUCKETS];
+        long[] counts3 = new long[BUCKETS];
+        long[] counts4 = new long[BUCKETS];
+        for(int z = -8; z < 8; z++){
+            for(int y = -32; y < 32; y++){
+                for(int x = -32; x < 32; x++){
+                    counts1[RandUtilsTest.bucket(RandUtils.hashRand(x + 64 * (y + 64 * z)))]++;
+                    counts2[RandUtilsTest.bucket(RandUtils.hashRand(x, y + 64 * z))]++;
+                    counts3[RandUtilsTest.bucket(RandUtils.hashRand(x, y, z))]++;
+                    counts4[RandUtilsTest.bucket(RandUtils.hashRand(x, y, z, 2))]++;
+                }
+            }
+        }
+        RandUtilsTest.assertUniform(counts1);
+        RandUtilsTest.assertUniform(counts2);
+        RandUtilsTest.assertUniform(counts3);
+        RandUtilsTest.assertUniform(counts4);
+    }
+
+    /**
+     * Values far from the origin, where the sine backend loses precision, are still uniformly distributed
+     */
+    @Test
+    public void hashRandFarChiSquare(){
+        long[] counts = new long[BUCKETS];
+        for(int y = 0; y < 256; y++){
+            for(int x = 0; x < 256; x++){
+                counts[RandUtilsTest.bucket(RandUtils.hashRand(4_000_000.0 + x, -7_000_000.0 + y, 12_345_678.0))]++;
+            }
+        }
+        RandUtilsTest.assertUniform(counts);
+    }
+
+    /**
+     * The w channels of a cell (used for the x,y,z of a feature point) are uncorrelated with each other and with the neighboring cell
+     */
+    @Test
+    public void hashRandNeighborCorrelation(){
+        int count = 100000;
+        double[] base = new double[count];
+        double[] otherChannel = new double[count];
+        double[] neighbor = new double[count];
+        for(int i = 0; i < count; i++){
+            double x = i % 100;
+            double y = (i / 100) % 100;
+            double z = i / 10000;
+            base[i] = RandUtils.hashRand(x, y, z, 0);
+            otherChannel[i] = RandUtils.hashRand(x, y, z, 1);
+            neighbor[i] = RandUtils.hashRand(x + 1, y, z, 0);
+        }
+        //the standard deviation of the correlation of independent samples is 1/sqrt(count), roughly 0.003
+        assertTrue(Math.abs(RandUtilsTest.correlation(base, otherChannel)) < 0.02);
+        assertTrue(Math.abs(RandUtilsTest.correlation(base, neighbor)) < 0.02);
+    }
+
+    /**
+     * Flipping any mantissa bit of an input flips each of the 53 output bits with probability close to one half
+     */
+    @Test
+    public void hashRandAvalanche(){
+        SplittableRandom random = new SplittableRandom(2);
+        int trials = 2000;
+        int[][] flips = new int[52][53];
+        for(int t = 0; t < trials; t++){
+            double x = (random.nextDouble() - 0.5) * 1e6;
+            double y = (random.nextDouble() - 0.5) * 1e6;
+            double z = (random.nextDouble() - 0.5) * 1e6;
+            long base = RandUtilsTest.outputBits(RandUtils.hashRand(x, y, z));
+            for(int bit = 0; bit < 52; bit++){
+                //rotate the flipped input between the axes so every input is covered
+                double fx = bit % 3 == 0 ? Double.longBitsToDouble(Double.doubleToRawLongBits(x) ^ (1L << bit)) : x;
+                double fy = bit % 3 == 1 ? Double.longBitsToDouble(Double.doubleToRawLongBits(y) ^ (1L << bit)) : y;
+                double fz = bit % 3 == 2 ? Double.longBitsToDouble(Double.doubleToRawLongBits(z) ^ (1L << bit)) : z;
+                long diff = base ^ RandUtilsTest.outputBits(RandUtils.hashRand(fx, fy, fz));
+                for(int out = 0; out < 53; out++){
+                    flips[bit][out] += (int)((diff >>> out) & 1L);
+                }
+            }
+        }
+        RandUtilsTest.assertAvalanche(flips, trials);
+    }
+
+    /**
+     * Counter based integers are uniform over ranges that are not powers of two
+     */
+    @Test
+    public void counterRandIntChiSquare(){
+        int range = 37;
+        long[] counts = new long[range];
+        for(int i = 0; i < 370000; i++){
+            int value = RandUtils.counterRandInt(99, i, 0, range - 1);
+            counts[value]++;
+        }
+        RandUtilsTest.assertUniform(counts);
+    }
+
+    /**
+     * Asserts a value is in [0,1)
+     * @param value The value
+     */
+    private static void assertUnit(double value){
+        assertTrue(value >= 0 && value < 1, "Value out of range " + value);
+    }
+
+    /**
+     * Gets the bucket of a value in [0,1)
+     * @param value The value
+     * @return The bucket
+     */
+    private static int bucket(double value){
+        return (int)(value * BUCKETS);
+    }
+
+    /**
+     * Gets the 53 random bits of a value in [0,1)
+     * @param value The value
+     * @return The bits
+     */
+    private static long outputBits(double value){
+        return (long)(value * 0x1.0p53);
+    }
+
+    /**
+     * Asserts bucket counts are consistent with a uniform distribution, with a chi-square test at six standard deviations
+     * @param counts The number of values in each bucket
+     */
+    static void assertUniform(long[] counts){
+        long total = 0;
+        for(long count : counts){
+            total = total + count;
+        }
+        double expected = total / (double)counts.length;
+        double chiSquare = 0;
+        for(long count : counts){
+            chiSquare = chiSquare + (count - expected) * (count - expected) / expected;
+        }
+        //the chi-square statistic has a mean of df and a variance of 2 * df
+        int degreesOfFreedom = counts.length - 1;
+        double limit = degreesOfFreedom + 6 * Math.sqrt(2.0 * degreesOfFreedom);
+        assertTrue(chiSquare < limit, "Chi-square " + chiSquare + " exceeds " + limit);
+    }
+
+    /**
+     * Asserts every input bit flips every output bit in roughly half of the trials
+     * @param flips The number of trials each input bit flipped each output bit in
+     * @param trials The number of trials
+     */
+    static void assertAvalanche(int[][] flips, int trials){
+        //the standard deviation of the fraction is 0.5 / sqrt(trials), about 0.011 for 2000 trials; allow six of them
+        double tolerance = 6 * 0.5 / Math.sqrt(trials);
+        for(int in = 0; in < flips.length; in++){
+            for(int out = 0; out < flips[in].length; out++){
+                double fraction = flips[in][out] / (double)trials;
+                assertTrue(Math.abs(fraction - 0.5) < tolerance, "Input bit " + in + " flips output bit " + out + " with probability " + fraction);
+            }
+        }
+    }
+
+    /**
+     * Gets the pearson correlation of two series
+     * @param a The first series
+     * @param b The second series
+     * @return The correlation
+     */
+    private static double correlation(double[] a, double[] b){
+        double meanA = 0;
+        double meanB = 0;
+        for(int i = 0; i < a.length; i++){
+            meanA = meanA + a[i];
+            meanB = meanB + b[i];
+        }
+        meanA = meanA / a.length;
+        meanB = meanB / b.length;
+        double covariance = 0;
+        double varianceA = 0;
+        double varianceB = 0;
+        for(int i = 0; i < a.length; i++){
+            covariance = covariance + (a[i] - meanA) * (b[i] - meanB);
+            varianceA = varianceA + (a[i] - meanA) * (a[i] - meanA);
+            varianceB = varianceB + (b[i] - meanB) * (b[i] - meanB);
+        }
+        return covariance / Math.sqrt(varianceA * varianceB);
+    }
+
+}
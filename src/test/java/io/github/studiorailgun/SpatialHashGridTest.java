@@ -0,0 +1,194 @@
+package io.github.studiorailgun;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.joml.AABBd;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the queries of {@link SpatialHashGrid} against brute force over every object
+ */
+public class SpatialHashGridTest {
+
+    /**
+     * After every random insert, update and remove, each query finds exactly the objects brute force finds.
+     * Boxes span several cells, and both tiny and huge queries are run so the cell walk and the occupied cell scan are both used.
+     */
+    @Test
+    public void queriesMatchBruteForce(){
+        for(double cellSize : new double[]{ 1.0, 2.5, 0.3 }){
+            SplittableRandom random = new SplittableRandom(10);
+            SpatialHashGrid grid = new SpatialHashGrid(cellSize);
+            Map<Integer,AABBd> objects = new HashMap<Integer,AABBd>();
+            for(int i = 0; i < 3000; i++){
+                int id = random.nextInt(150);
+                int op = random.nextInt(10);
+                if(objects.containsKey(id)){
+                    if(op < 6){
+                        AABBd box = SpatialHashGridTest.randomBox(random);
+                        grid.update(id, box);
+                        objects.put(id, box);
+                    } else {
+                        assertTrue(grid.remove(id));
+                        objects.remove(id);
+                    }
+                } else {
+                    AABBd box = SpatialHashGridTest.randomBox(random);
+                    grid.insert(id, box);
+                    objects.put(id, box);
+                }
+                assertEquals(objects.size(), grid.size());
+                SpatialHashGridTest.checkQueries(grid, objects, random);
+            }
+        }
+    }
+
+    /**
+     * An object listed in many cells is reported once by every query that overlaps several of them
+     */
+    @Test
+    public void multiCellObjectReportedOnce(){
+        SpatialHashGrid grid = new SpatialHashGrid(1.0);
+        grid.insert(3, -1.5, -1.5, -1.5, 1.5, 1.5, 1.5);
+        grid.insert(4, 0.1, 0.1, 0.1);
+        assertEquals(64, grid.getCellCount());
+        Map<Integer,AABBd> objects = new HashMap<Integer,AABBd>();
+        objects.put(3, new AABBd(-1.5, -1.5, -1.5, 1.5, 1.5, 1.5));
+        objects.put(4, new AABBd(0.1, 0.1, 0.1, 0.1, 0.1, 0.1));
+        SplittableRandom random = new SplittableRandom(11);
+        for(int i = 0; i < 200; i++){
+            SpatialHashGridTest.checkQueries(grid, objects, random);
+        }
+        //move the big box into a different range of cells, then back into a single cell
+        grid.update(3, 0.5, -2.5, 0.5, 4.5, 0.5, 0.7);
+        objects.put(3, new AABBd(0.5, -2.5, 0.5, 4.5, 0.5, 0.7));
+        for(int i = 0; i < 200; i++){
+            SpatialHashGridTest.checkQueries(grid, objects, random);
+        }
+        grid.update(3, 0.2, 0.2, 0.2, 0.3, 0.3, 0.3);
+        objects.put(3, new AABBd(0.2, 0.2, 0.2, 0.3, 0.3, 0.3));
+        assertEquals(1, grid.getCellCount());
+        for(int i = 0; i < 200; i++){
+            SpatialHashGridTest.checkQueries(grid, objects, random);
+        }
+    }
+
+    /**
+     * Runs one radius, box, tube and k-nearest query at random and checks each against brute force
+     * @param grid The grid
+     * @param objects The bounds of every object in the grid
+     * @param random The source of the queries
+     */
+    static void checkQueries(SpatialHashGrid grid, Map<Integer,AABBd> objects, SplittableRandom random){
+        boolean huge = random.nextInt(4) == 0;
+        double x = (random.nextDouble() - 0.5) * 24;
+        double y = (random.nextDouble() - 0.5) * 24;
+        double z = (random.nextDouble() - 0.5) * 24;
+
+        //radius
+        double radius = huge ? 40 : random.nextDouble() * 2.5;
+        Set<Integer> expected = new HashSet<Integer>();
+        for(Map.Entry<Integer,AABBd> entry : objects.entrySet()){
+            if(SpatialHashGridTest.distanceSquared(entry.getValue(), x, y, z) <= radius * radius){
+                expected.add(entry.getKey());
+            }
+        }
+        Set<Integer> found = new HashSet<Integer>();
+        grid.queryRadius(x, y, z, radius, (int id) -> assertTrue(found.add(id), "Id reported twice " + id));
+        assertEquals(expected, found);
+
+        //box
+        double extent = huge ? 40 : random.nextDouble() * 3;
+        AABBd query = new AABBd(x, y, z, x + random.nextDouble() * extent, y + random.nextDouble() * extent, z + random.nextDouble() * extent);
+        expected.clear();
+        for(Map.Entry<Integer,AABBd> entry : objects.entrySet()){
+            AABBd box = entry.getValue();
+            if(box.minX <= query.maxX && box.maxX >= query.minX && box.minY <= query.maxY && box.maxY >= query.minY && box.minZ <= query.maxZ && box.maxZ >= query.minZ){
+                expected.add(entry.getKey());
+            }
+        }
+        found.clear();
+        grid.queryAABB(query, (int id) -> assertTrue(found.add(id), "Id reported twice " + id));
+        assertEquals(expected, found);
+
+        //tube
+        double length = huge ? 30 : 4;
+        Vector3d start = new Vector3d(x, y, z);
+        Vector3d end = new Vector3d(
+            x + (random.nextDouble() - 0.5) * length,
+            y + (random.nextDouble() - 0.5) * length,
+            z + (random.nextDouble() - 0.5) * length
+        );
+        double tubeRadius = random.nextDouble() * 1.5;
+        expected.clear();
+        for(Map.Entry<Integer,AABBd> entry : objects.entrySet()){
+            if(GeomUtils.intersectAABBTube(entry.getValue(), start, end, tubeRadius)){
+                expected.add(entry.getKey());
+            }
+        }
+        found.clear();
+        grid.queryTube(start, end, tubeRadius, (int id) -> assertTrue(found.add(id), "Id reported twice " + id));
+        assertEquals(expected, found);
+
+        //k-nearest, including points far outside the objects and k larger than the number of objects
+        if(random.nextInt(8) == 0){
+            x = x * 50;
+        }
+        int k = random.nextInt(10) == 0 ? objects.size() + 3 : random.nextInt(1, 12);
+        int[] ids = new int[k];
+        double[] distances = new double[k];
+        int count = grid.queryNearest(x, y, z, k, ids, distances);
+        double[] bruteDistances = new double[objects.size()];
+        int index = 0;
+        for(AABBd box : objects.values()){
+            bruteDistances[index] = SpatialHashGridTest.distanceSquared(box, x, y, z);
+            index++;
+        }
+        Arrays.sort(bruteDistances);
+        assertEquals(Math.min(k, objects.size()), count);
+        found.clear();
+        for(int i = 0; i < count; i++){
+            //ties may be broken either way, so compare distances and check each id has the distance it was reported with
+            assertEquals(bruteDistances[i], distances[i]);
+            assertTrue(found.add(ids[i]), "Id reported twice " + ids[i]);
+            assertEquals(distances[i], SpatialHashGridTest.distanceSquared(objects.get(ids[i]), x, y, z));
+        }
+    }
+
+    /**
+     * Gets the squared distance from a point to a box
+     * @param box The box
+     * @param x The x coordinate of the point
+     * @param y The y coordinate of the point
+     * @param z The z coordinate of the point
+     * @return The squared distance
+     */
+    static double distanceSquared(AABBd box, double x, double y, double z){
+        return GeomUtils.getMinSquaredDistanceAABB(x, y, z, box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+    }
+
+    /**
+     * Makes a random point or box within [-10,10], up to 3 wide so it spans several cells
+     * @param random The source of the box
+     * @return The box
+     */
+    static AABBd randomBox(SplittableRandom random){
+        double x = (random.nextDouble() - 0.5) * 20;
+        double y = (random.nextDouble() - 0.5) * 20;
+        double z = (random.nextDouble() - 0.5) * 20;
+        if(random.nextInt(3) == 0){
+            return new AABBd(x, y, z, x, y, z);
+        }
+        return new AABBd(x, y, z, x + random.nextDouble() * 3, y + random.nextDouble() * 3, z + random.nextDouble() * 3);
+    }
+
+}